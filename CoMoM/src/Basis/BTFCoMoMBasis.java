@@ -17,7 +17,7 @@ public class BTFCoMoMBasis extends CoMoMBasis {
 	public int indexOf(PopulationChangeVector n, int m) throws InternalErrorException {	
 		 
 		//Find the position of the n vector in the ordering
-		int population_position = order.indexOf(n);		
+		int population_position = positionOf(n);		
 		int queue_added = m;	
 		
 		if(population_position == -1) throw new InternalErrorException("Invalid PopulationChangeVector:" + n);
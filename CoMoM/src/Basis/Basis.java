@@ -1,7 +1,6 @@
 package Basis;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Set;
@@ -19,9 +18,20 @@ public abstract class Basis {
 	protected QNModel qnm;
 	
 	/**
-	 * Data Structure to hold the ordering of PopualtionChangeVectors
+	 * The ordering of PopulationChangeVectors, each one packed as its rank in 'ranking'
 	 */
-	protected ArrayList<PopulationChangeVector> order;	
+	protected int[] order;
+	
+	/**
+	 * Packs the PopulationChangeVectors into 'order' and unpacks them
+	 */
+	protected VectorRanking ranking;
+	
+	/**
+	 * position[rank] is the position in 'order' of the vector of that rank,
+	 * must be rebuilt by rankOrder() whenever 'order' changes
+	 */
+	private int[] position;
 	
 	/**
 	 * Variables to store qnm fields for easy access	
@@ -36,7 +46,9 @@ public abstract class Basis {
 	private Comparator<EnhancedVector> vector_comparator;
 	
 	/**
-	 * The vectors in which to store the basis values
+	 * The vectors in which to store the basis values. A value is never altered once stored,
+	 * so values are stored and handed out without copies, and the two vectors are swapped
+	 * rather than copied between populations.
 	 */
 	protected BigRational[] basis;	
 	protected BigRational[] previous_basis;
@@ -70,6 +82,7 @@ public abstract class Basis {
 		R = qnm.R;
 		M = qnm.M;
 		setSize();		
+		ranking = new VectorRanking(M, R);
 		basis = new BigRational[size];
 		previous_basis = new BigRational[size];
 		
@@ -110,10 +123,94 @@ public abstract class Basis {
 			//No comparator specified, do nothing.
 			return;
 		} else { //sort the ordering
-			Collections.sort(order, vector_comparator);
+			//Unpack every vector once, and sort their indices
+			PopulationChangeVector[] vectors = new PopulationChangeVector[order.length];
+			int[] indices = new int[order.length];
+			for(int i = 0; i < order.length; i++) {
+				vectors[i] = new PopulationChangeVector(0, R);
+				ranking.unrank(order[i], vectors[i]);
+				indices[i] = i;
+			}
+			mergeSort(indices, indices.clone(), 0, indices.length, vectors);
+			int[] unsorted = order.clone();
+			for(int i = 0; i < order.length; i++) {
+				order[i] = unsorted[indices[i]];
+			}
+			rankOrder();
+		}
+	}
+	
+	/**
+	 * Stable merge sort of indices[from..to-1] by the vectors they point to, like Collections.sort,
+	 * so equal vectors keep their order. scratch must hold the same elements as indices.
+	 */
+	private void mergeSort(int[] indices, int[] scratch, int from, int to, PopulationChangeVector[] vectors) {
+		if(to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		//Sort each half of scratch into it, then merge them into indices
+		mergeSort(scratch, indices, from, middle, vectors);
+		mergeSort(scratch, indices, middle, to, vectors);
+		if(vector_comparator.compare(vectors[scratch[middle - 1]], vectors[scratch[middle]]) <= 0) {
+			System.arraycopy(scratch, from, indices, from, to - from);
+			return;
+		}
+		for(int i = from, p = from, q = middle; i < to; i++) {
+			if(q >= to || (p < middle && vector_comparator.compare(vectors[scratch[p]], vectors[scratch[q]]) <= 0)) {
+				indices[i] = scratch[p++];
+			} else {
+				indices[i] = scratch[q++];
+			}
+		}
+	}
+	
+	/**
+	 * Indexes the positions of the PopulationChangeVectors in 'order', for positionOf()
+	 */
+	protected final void rankOrder() {
+		position = new int[ranking.count()];
+		Arrays.fill(position, -1);
+		for(int i = 0; i < order.length; i++) {
+			position[order[i]] = i;
 		}
 	}
 	
+	/**
+	 * Finds the position of a PopulationChangeVector in 'order', in O(R)
+	 * @param n The vector
+	 * @return The position, or -1 if n is not in 'order'
+	 */
+	protected int positionOf(PopulationChangeVector n) {
+		int rank = ranking.rank(n);
+		return (rank < 0) ? -1 : position[rank];
+	}
+	
+	/**
+	 * @return The number of PopulationChangeVectors in the ordering
+	 */
+	public int getNumberOfPopulationChangeVectors() {
+		return order.length;
+	}
+	
+	/**
+	 * @param index index in order
+	 * @return A new PopulationChangeVector equal to the one at 'index' in 'order'
+	 */
+	public PopulationChangeVector getPopulationChangeVector(int index) {
+		PopulationChangeVector n = new PopulationChangeVector(0, R);
+		ranking.unrank(order[index], n);
+		return n;
+	}
+	
+	/**
+	 * Enumerates the PopulationChangeVectors in the order of the basis, unpacking each one on demand
+	 * @return The enumeration
+	 */
+	public BasisEnumeration enumerate() {
+		return new BasisEnumeration(ranking, order, R, 0, order.length);
+	}
+	
 	/**
 	 * Calculates the size of the basis to be store in variable size
 	 */
@@ -183,9 +280,44 @@ public abstract class Basis {
 		return basis[index];
 	}
 	
+	/**
+	 * Stores a value of the current population, without a copy
+	 * @param value The value, which must not be altered afterwards
+	 * @param index
+	 */
 	public void setValue(BigRational value, int index) {
-		basis[index] = value.copy();
-		
+		basis[index] = value;
+	}
+	
+	/**
+	 * Stores consecutive values of the current population, without copies
+	 * @param values The values, which must not be altered afterwards
+	 * @param from Position of the first value in 'values'
+	 * @param index Position of the first value in the basis
+	 * @param length The number of values
+	 */
+	public void setValues(BigRational[] values, int from, int index, int length) {
+		System.arraycopy(values, from, basis, index, length);
+	}
+	
+	/**
+	 * Bulk view of the values of the previous population, for loops that read many of them.
+	 * The array is the basis' own, so it must not be written to, and it is only valid
+	 * until the next call to startBasisComputation().
+	 * @return The values of the previous population
+	 */
+	public BigRational[] getOldValues() {
+		return previous_basis;
+	}
+	
+	/**
+	 * Bulk view of the values of the current population, for loops that read many of them.
+	 * The array is the basis' own, so it must not be written to, and it is only valid
+	 * until the next call to startBasisComputation().
+	 * @return The values of the current population
+	 */
+	public BigRational[] getNewValues() {
+		return basis;
 	}
 	
 	public void startBasisComputation() {		
@@ -0,0 +1,97 @@
+package Basis;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import DataStructures.PopulationChangeVector;
+
+/**
+ * Enumerates a range of the PopulationChangeVectors of a basis, in the order of the basis.
+ *
+ * The basis only holds the packed ranks of its vectors, and each vector is unpacked
+ * when it is reached, so the full list of vectors is never built. The range can be
+ * split in two with split(), so that separate threads can enumerate the two halves.
+ */
+public class BasisEnumeration implements Iterator<PopulationChangeVector> {
+
+	private VectorRanking ranking;
+	
+	/**
+	 * The ordering of the basis, as ranks
+	 */
+	private int[] order;
+	
+	private int R;
+	
+	/**
+	 * Position of the next vector, and end of the range (exclusive)
+	 */
+	private int next, end;
+	
+	/**
+	 * @param ranking Unpacks the vectors
+	 * @param order The ordering of the basis, as ranks
+	 * @param R The number of classes
+	 * @param from Position of the first vector to enumerate
+	 * @param to Position after the last vector to enumerate
+	 */
+	BasisEnumeration(VectorRanking ranking, int[] order, int R, int from, int to) {
+		this.ranking = ranking;
+		this.order = order;
+		this.R = R;
+		next = from;
+		end = to;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		return next < end;
+	}
+	
+	/**
+	 * @return A new PopulationChangeVector, which the caller may keep or alter
+	 */
+	@Override
+	public PopulationChangeVector next() {
+		if(next >= end) {
+			throw new NoSuchElementException();
+		}
+		PopulationChangeVector n = new PopulationChangeVector(0, R);
+		ranking.unrank(order[next++], n);
+		return n;
+	}
+	
+	/**
+	 * @return The position in the ordering of the vector that next() returns
+	 */
+	public int nextIndex() {
+		return next;
+	}
+	
+	/**
+	 * @return The number of vectors left to enumerate
+	 */
+	public int remaining() {
+		return end - next;
+	}
+	
+	/**
+	 * Hands the second half of the remaining vectors to a new enumeration,
+	 * and keeps the first half
+	 * @return The enumeration of the second half, or null if fewer than two vectors remain
+	 */
+	public BasisEnumeration split() {
+		if(end - next < 2) {
+			return null;
+		}
+		int middle = next + (end - next) / 2;
+		BasisEnumeration second = new BasisEnumeration(ranking, order, R, middle, end);
+		end = middle;
+		return second;
+	}
+	
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("The ordering of a basis cannot be altered.");
+	}
+}
@@ -6,6 +6,7 @@ import java.util.Comparator;
 import DataStructures.BigRational;
 import DataStructures.MultiplicitiesVector;
 import DataStructures.PopulationChangeVector;
+import DataStructures.PopulationVector;
 import DataStructures.QNModel;
 import Exceptions.InternalErrorException;
 import Utilities.MiscFunctions;
@@ -22,29 +23,31 @@ public class CoMoMBasis extends Basis{
 	}	
 	
 	private void initialise() {
-		order = new ArrayList<PopulationChangeVector>();
+		order = new int[ranking.count()];
 		
 		//Generate all the possible population change vectors
 		generate();		
+		rankOrder();
 		
 	}
 	
 	/**
-	 * Fills the list 'order' with all positive vectors of the form (n_1, n_2, ..., n_(R-1), 0 ),
+	 * Fills 'order' with the ranks of all positive vectors of the form (n_1, n_2, ..., n_(R-1), 0 ),
 	 * where n_1 + n_2 + ... + n_(R-1) <= M
 	 */
 	private void generate() {
 		
 		PopulationChangeVector v = new PopulationChangeVector(0,R);		
-		order.add(v);
+		int added = 0;
+		order[added++] = ranking.rank(v);
 		int current_list_end= 1;
 		for(int i = 1; i <= M; i++) {
 			for(int j = 0; j < R - 1; j++) {
 				for(int k = current_list_end - MiscFunctions.binomialCoefficient(R - 1 - j + i - 2, i - 1); 
 					k < current_list_end; k++) {
-						v = order.get(k);						
+						ranking.unrank(order[k], v);
 						v.plusOne(j+1);
-						order.add(v.copy());						
+						order[added++] = ranking.rank(v);
 						v.restore();
 				}				
 			}
@@ -72,29 +75,20 @@ public class CoMoMBasis extends Basis{
 	 * @throws InternalErrorException
 	 */
 	public int indexOf(PopulationChangeVector n, int m) throws InternalErrorException {
-		int population_position = order.indexOf(n);
+		int population_position = positionOf(n);
 		if(population_position == -1) throw new InternalErrorException("Invalid PopulationChangeVector");
 		
 		//order multiplicities 0,1,2,3,...M						
 		return population_position*(qnm.M + 1) + m;
 	}
 	
-	/**
-	 * @param index index in order
-	 * @return Vector store in 'order' at 'index'
-	 */
-	public PopulationChangeVector getPopulationChangeVector(int index) {
-		return order.get(index);
-	}
-	
-	
 	/**
 	 * Prints the vectors in the 'order' vector
 	 */
 	public void print() {
 		int total = 0;
-		 for (PopulationChangeVector m : order) {
-			 m.print();			 
+		 for (BasisEnumeration it = enumerate(); it.hasNext(); ) {
+			 it.next().print();			 
 			 total++;
 		 }
 		 System.out.println("total: " + total);
@@ -144,36 +138,58 @@ public class CoMoMBasis extends Basis{
 		//Array of Mean Queue Lengths
         BigRational[][] Q = new BigRational[qnm.M][qnm.R];
         
-        PopulationChangeVector n = new PopulationChangeVector(0,R);
-        
-        //Computing Throughput
-        for(int job_class = 1; job_class < qnm.R; job_class++) {
-        	n.plusOne(job_class);
-        	System.out.println(n);
-        	System.out.println(indexOf(n, 0));
-        	X[job_class-1] = (basis[indexOf(n, 0)]).copy().divide(qnm.getNormalisingConstant());
-        	n.restore();
-        }
-        X[qnm.R-1] = (previous_basis[indexOf(n, 0)]).copy().divide(qnm.getNormalisingConstant());        
-        
-        //Computing Queue Lengths
-        for(int queue = 1; queue <= qnm.M; queue++) {
-        	for(int job_class = 1; job_class < qnm.R; job_class++) {
-        		Q[queue-1][job_class-1] = qnm.getDemandAsBigRational(queue - 1, job_class - 1).copy();
-        		n.plusOne(job_class);
-        		Q[queue-1][job_class-1] = Q[queue-1][job_class-1].multiply(basis[indexOf(n, queue)]);
-        		n.restore();
-        		Q[queue-1][job_class-1] = Q[queue-1][job_class-1].divide(qnm.getNormalisingConstant());
-        	}    
-        	Q[queue-1][qnm.R-1] = qnm.getDemandAsBigRational(queue - 1, qnm.R - 1).copy();    		
-        	Q[queue-1][qnm.R-1] = Q[queue-1][qnm.R-1].multiply(previous_basis[indexOf(n, queue)]);    		
-        	Q[queue-1][qnm.R-1] = Q[queue-1][qnm.R-1].divide(qnm.getNormalisingConstant());        	
-        }
+        computePerformanceMeasures(qnm.N, qnm.R, X, Q);
         
         //Store outcome in queueing network model
         qnm.setPerformanceMeasures(Q, X);		
 	}
 	
+	/**
+	 * Computes Mean Throughput and Mean Queue Length performance indices of the population
+	 * whose basis was computed last, which need not be the target population
+	 * @param population The population of the current basis
+	 * @param last_class The class whose population was increased last, so that the previous basis
+	 * is that of population - 1_last_class (starts from 1)
+	 * @param X Array in which to store the Mean Throughput of each class
+	 * @param Q Array in which to store the Mean Queue Length of each class at each queue
+	 * @throws InternalErrorException
+	 */
+	public void computePerformanceMeasures(PopulationVector population, int last_class, BigRational[] X, BigRational[][] Q) throws InternalErrorException {
+		
+		BigRational G = getNormalisingConstant();
+		
+		PopulationChangeVector n = new PopulationChangeVector(0,R);
+		
+		for(int job_class = 1; job_class <= qnm.R; job_class++) {
+			if(population.get(job_class - 1) == 0) {
+				//No jobs of this class
+				X[job_class-1] = BigRational.ZERO;
+				for(int queue = 1; queue <= qnm.M; queue++) {
+					Q[queue-1][job_class-1] = BigRational.ZERO;
+				}
+				continue;
+			}
+			
+			//G(population - 1_job_class) is in the previous basis for the last class, and in the current basis otherwise
+			BigRational[] values = (job_class == last_class) ? previous_basis : basis;
+			if(job_class != last_class) {
+				n.plusOne(job_class);
+			}
+			
+			//Computing Throughput
+			X[job_class-1] = values[indexOf(n, 0)].divide(G);
+			
+			//Computing Queue Lengths
+			for(int queue = 1; queue <= qnm.M; queue++) {
+				Q[queue-1][job_class-1] = qnm.getDemandAsBigRational(queue - 1, job_class - 1).multiply(values[indexOf(n, queue)]).divide(G);
+			}
+			
+			if(job_class != last_class) {
+				n.restore();
+			}
+		}
+	}
+	
 	/**
 	 * Returns the Normalising Constant for the current computed population  
 	 * @throws InternalErrorException 
@@ -204,8 +220,12 @@ public class CoMoMBasis extends Basis{
 		System.out.print("\n\n");				
 	}
 	
-	//For testing purposes
+	//For testing purposes, unpacks the whole ordering
 	public ArrayList<PopulationChangeVector> getOrder() {
-		return order;
+		ArrayList<PopulationChangeVector> vectors = new ArrayList<PopulationChangeVector>(order.length);
+		for (BasisEnumeration it = enumerate(); it.hasNext(); ) {
+			vectors.add(it.next());
+		}
+		return vectors;
 	}
 }
@@ -16,7 +16,7 @@ public class CoMoMBasisMLorder extends BTFCoMoMBasis{
 	@Override
 	public int indexOf(PopulationChangeVector n, int m) throws InternalErrorException {
 		
-		int population_position = order.indexOf(n);
+		int population_position = positionOf(n);
 		int queue_added = m;	
 		
 		if(population_position == -1) throw new InternalErrorException("Invalid PopulationChangeVector");
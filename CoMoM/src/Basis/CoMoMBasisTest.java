@@ -103,4 +103,46 @@ public class CoMoMBasisTest {
 			e.printStackTrace();
 		}		
 	}
+	
+	/**
+	 * Ensures the ranking used by indexOf finds every vector at its position in the ordering,
+	 * and rejects vectors outside the basis
+	 */
+	@Test
+	public void testIndexOfMatchesOrder() throws InternalErrorException {
+		ArrayList<PopulationChangeVector> order = basis.getOrder();
+		for(int i = 0; i < order.size(); i++) {
+			assertEquals("Wrong position of " + order.get(i), i * qnm.M, basis.indexOf(order.get(i), 1));
+		}
+		
+		PopulationChangeVector n = new PopulationChangeVector(0,qnm.R);
+		n.plusOne(qnm.R);
+		try {
+			basis.indexOf(n, 1);
+			fail("A vector with a non-zero last element was found!");
+		} catch (InternalErrorException e) {
+			//expected
+		}
+	}
+	
+	/**
+	 * Ensures the two halves of a split enumeration together produce the ordering, in order
+	 */
+	@Test
+	public void testEnumerateSplit() {
+		ArrayList<PopulationChangeVector> order = basis.getOrder();
+		BasisEnumeration first = basis.enumerate();
+		BasisEnumeration second = first.split();
+		assertNotNull("Enumeration not split!", second);
+		assertEquals("Halves do not cover the ordering!", order.size(), first.remaining() + second.remaining());
+		int i = 0;
+		while(first.hasNext()) {
+			assertEquals("Wrong vector in the first half!", order.get(i++), first.next());
+		}
+		assertEquals("Halves are not adjacent!", i, second.nextIndex());
+		while(second.hasNext()) {
+			assertEquals("Wrong vector in the second half!", order.get(i++), second.next());
+		}
+		assertEquals("Wrong amount of vectors enumerated!", order.size(), i);
+	}
 }
@@ -47,10 +47,10 @@ public class CoMoMReorderingBasis extends CoMoMBasis {
 		int moved_count = 0;		
 		int index = 0;
 		
-		for(int n_pos = 0; n_pos < order.size(); n_pos++) {
+		for(BasisEnumeration it = enumerate(); it.hasNext(); ) {
 			
 			
-			if(order.get(n_pos).sumTail(current_class-1) <= 0) {
+			if(it.next().sumTail(current_class-1) <= 0) {
 				moved_count++;
 				//send 0 queue to back	
 				order_offset[index] = - index + size - total_moved + moved_count - 1;			
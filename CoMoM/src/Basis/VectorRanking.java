@@ -0,0 +1,94 @@
+package Basis;
+
+import DataStructures.EnhancedVector;
+
+/**
+ * Packs the PopulationChangeVectors of a basis into ints and back, in O(R).
+ *
+ * The vectors (n_1, ..., n_(R-1), 0) with n_1 + ... + n_(R-1) <= M are ranked
+ * lexicographically with the combinatorial number system, which needs no search,
+ * so the ordering of a basis can be held as an array of ranks.
+ */
+public class VectorRanking {
+
+	/**
+	 * Maximum sum of the vectors, and number of their elements that may be non-zero
+	 */
+	private int M, k;
+
+	/**
+	 * binomial[a][b] is a choose b
+	 */
+	private int[][] binomial;
+
+	/**
+	 * @param M The number of queues
+	 * @param R The number of classes
+	 */
+	public VectorRanking(int M, int R) {
+		this.M = M;
+		k = R - 1;
+		binomial = new int[M + k + 2][k + 2];
+		for(int a = 0; a < binomial.length; a++) {
+			binomial[a][0] = 1;
+			for(int b = 1; b <= Math.min(a, k + 1); b++) {
+				binomial[a][b] = binomial[a - 1][b - 1] + (b < a ? binomial[a - 1][b] : 0);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of vectors, which are ranked 0 to count() - 1
+	 */
+	public int count() {
+		return binomial[M + k][k];
+	}
+
+	/**
+	 * Returns the lexicographic rank of a vector among all the vectors of length R
+	 * with a zero last element, non-negative elements and a sum of at most M
+	 * @param n The vector
+	 * @return The rank, or -1 if the vector is not of this form
+	 */
+	public int rank(EnhancedVector n) {
+		if(n.size() != k + 1 || n.get(k) != 0) {
+			return -1;
+		}
+		int rank = 0;
+		int remaining = M;
+		for(int i = 0; i < k; i++) {
+			int a = n.get(i);
+			if(a < 0 || a > remaining) {
+				return -1;
+			}
+			//The vectors with the same first i elements and a smaller element i number
+			//sum_(v < a) C(remaining - v + j, j) = C(remaining + j + 1, j + 1) - C(remaining - a + j + 1, j + 1),
+			//with j elements after element i
+			int j = k - 1 - i;
+			rank += binomial[remaining + j + 1][j + 1] - binomial[remaining - a + j + 1][j + 1];
+			remaining -= a;
+		}
+		return rank;
+	}
+
+	/**
+	 * Inverse of rank(), in O(M + R)
+	 * @param rank The rank, from 0 to count() - 1
+	 * @param n Vector of length R in which to store the elements of the vector of that rank
+	 */
+	public void unrank(int rank, EnhancedVector n) {
+		int remaining = M;
+		for(int i = 0; i < k; i++) {
+			int j = k - 1 - i;
+			//Each value a of element i covers the C(remaining - a + j, j) vectors completing it
+			int a = 0;
+			while(rank >= binomial[remaining - a + j][j]) {
+				rank -= binomial[remaining - a + j][j];
+				a++;
+			}
+			n.set(i, a);
+			remaining -= a;
+		}
+		n.set(k, 0);
+	}
+}
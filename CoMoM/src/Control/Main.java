@@ -17,20 +17,30 @@
 
 package Control;
 
+import java.io.File;
 import java.io.PrintStream;
 
 import javax.naming.OperationNotSupportedException;
 
 import QueuingNet.CoMoMBTFSolver;
 import QueuingNet.CoMoMSimpleSolver;
+import QueuingNet.CoMoMSolver;
 import QueuingNet.ConvolutionSolver;
+import QueuingNet.LogRECALSolver;
 import QueuingNet.MoMSolver;
 import QueuingNet.RECALSolver;
+import DataStructures.BigRational;
+import DataStructures.PopulationVector;
 import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.InconsistentLinearSystemException;
 import Exceptions.InternalErrorException;
+import LinearSystemSolver.BareissSolver;
+import LinearSystemSolver.ModularSolver;
+import LinearSystemSolver.SparseSolver;
 import QueuingNet.RECALNonRecursiveSolver;
+import QueuingNet.RecursiveSolver;
+import QueuingNet.SweepListener;
 import Utilities.MiscFunctions;
 
 /**
@@ -105,8 +115,12 @@ public class Main {
 
     // This method prints a help message regarding the command line arguments.
     private static void printHelp() {
-        System.out.println("Usage: java -jar MoM.jar <Algorithm> <Output Performance Indices> <Input File> [<Number of Threads>]");
-        System.out.println("Output Performance Indices: 0 for no, 1 for yes");
+        System.out.println("Usage: java -jar MoM.jar <Algorithm> <Output Performance Indices> <Input File> <Number of Threads> <M> <R> [<Options>]");
+        System.out.println("Output Performance Indices: 0 for no, 1 for yes, 2 for every population on the way to the target (CoMoM only)");
+        System.out.println("Options:");
+        System.out.println("--gmap-capacity=<n>: the greatest number of normalising constants kept by Convolution and RECAL (recursive), 0 for no limit");
+        System.out.println("--tolerance=<e>: the relative error tolerated by RECAL (double precision), which is then checked against exact RECAL");
+        System.out.println("--lup-cache=<dir>: the directory where CoMoM (BTF) caches its LUP decompositions");
         System.out.println("Available algorithms:");
         System.out.println("0: Convolution");
         System.out.println("1: RECAL (recursive)");
@@ -117,6 +131,16 @@ public class Main {
         System.out.println("6: CoMoM (parallel)");
         System.out.println("7: CoMoM (serial)");
         System.out.println("8: CoMoM (BTF)");
+        System.out.println("9: MoM (parallel, word-sized moduli)");
+        System.out.println("10: CoMoM (parallel, word-sized moduli)");
+        System.out.println("11: MoM (parallel, early-terminating moduli)");
+        System.out.println("12: CoMoM (parallel, early-terminating moduli)");
+        System.out.println("13: CoMoM (serial, fraction-free Bareiss)");
+        System.out.println("14: CoMoM (serial, sparse LU)");
+        System.out.println("15: RECAL (non-recursive, parallel)");
+        System.out.println("16: RECAL (recursive, parallel)");
+        System.out.println("17: RECAL (double precision, log-scaled)");
+        System.out.println("18: MoM (serial, sparse LU)");
         
         //System.out.println("999: Interface test mode");
     }
@@ -147,7 +171,7 @@ public class Main {
                     return;
                 }
                 int performanceMeasures = Integer.parseInt(args[1]);
-                if (performanceMeasures != 0 && performanceMeasures != 1) {
+                if (performanceMeasures < 0 || performanceMeasures > 2) {
                     printHelp();
                     return;
                 }
@@ -166,6 +190,26 @@ public class Main {
                 qnm.setM(M);
                 qnm.setR(R);
                 
+                // Named options, after M and R
+                Integer gmapCapacity = null;
+                Double tolerance = null;
+                File lupCache = null;
+                for (int i = 6; i < args.length; i++) {
+                    String option = args[i];
+                    String value = option.substring(option.indexOf('=') + 1);
+                    if (option.startsWith("--gmap-capacity=")) {
+                        gmapCapacity = Integer.parseInt(value);
+                    } else if (option.startsWith("--tolerance=")) {
+                        tolerance = Double.parseDouble(value);
+                    } else if (option.startsWith("--lup-cache=")) {
+                        lupCache = new File(value);
+                    } else {
+                        System.err.println("Unknown option " + option);
+                        printHelp();
+                        return;
+                    }
+                }
+                
                 QueuingNet.QNSolver c;
                 if (algorithm == 5) {
                     int matrixSize = MoMMatrixSize(qnm);
@@ -208,20 +252,81 @@ public class Main {
                     	c= new CoMoMSimpleSolver(qnm, 1);
                     	break;
                     case 8:
-                    	c= new CoMoMBTFSolver(qnm);
+                    	c = new CoMoMBTFSolver(qnm, lupCache, nThreads);
                     	break;
+                    case 9:
+                        c = new MoMSolver(qnm, nThreads, ModularSolver.WORD_SIZED_MODULI);
+                        break;
+                    case 10:
+                        c = new CoMoMSimpleSolver(qnm, nThreads, ModularSolver.WORD_SIZED_MODULI);
+                        break;
+                    case 11:
+                        c = new MoMSolver(qnm, nThreads, ModularSolver.EARLY_TERMINATION_VERIFIED);
+                        break;
+                    case 12:
+                        c = new CoMoMSimpleSolver(qnm, nThreads, ModularSolver.EARLY_TERMINATION_VERIFIED);
+                        break;
+                    case 13:
+                        c = new CoMoMSimpleSolver(qnm, new BareissSolver());
+                        break;
+                    case 14:
+                        c = new CoMoMSimpleSolver(qnm, new SparseSolver());
+                        break;
+                    case 15:
+                        c = new RECALNonRecursiveSolver(qnm, nThreads);
+                        break;
+                    case 16:
+                        c = new RECALSolver(qnm, nThreads);
+                        break;
+                    case 17:
+                        c = new LogRECALSolver(qnm);
+                        break;
+                    case 18:
+                        c = new MoMSolver(qnm, new SparseSolver());
+                        break;
                     default:
                         printHelp();
                         return;
                 }
+                // The non-recursive RECAL only keeps two levels, so it has no capacity to set
+                boolean usesGmapCapacity = (c instanceof RecursiveSolver) && !(c instanceof RECALNonRecursiveSolver);
+                if ((gmapCapacity != null && !usesGmapCapacity)
+                        || (tolerance != null && !(c instanceof LogRECALSolver))
+                        || (lupCache != null && !(c instanceof CoMoMBTFSolver))) {
+                    System.err.println("An option is not used by algorithm " + algorithm);
+                    printHelp();
+                    return;
+                }
+                if (performanceMeasures == 2 && !(c instanceof CoMoMSolver)) {
+                    System.err.println("Output Performance Indices 2 is only supported by CoMoM");
+                    printHelp();
+                    return;
+                }
+                if (gmapCapacity != null) {
+                    ((RecursiveSolver) c).setGmapCapacity(gmapCapacity);
+                }
                 System.out.println("Will read " + filename);
                 qnm.printModel();
                 c.printWelcome();
-                c.computeNormalisingConstant();
+                if (performanceMeasures == 2) {
+                    ((CoMoMSolver) c).sweep(new SweepListener() {
+                        @Override
+                        public void populationSolved(PopulationVector N, BigRational G, BigRational[] X, BigRational[][] Q) {
+                            System.out.println("\nN = " + N);
+                            System.out.println("G(N) = " + G);
+                            System.out.println("X(N) = ");
+                            MiscFunctions.printPrettyMatrix(X);
+                            System.out.println("Q(N) = ");
+                            MiscFunctions.printPrettyMatrix(Q);
+                        }
+                    });
+                } else {
+                    c.computeNormalisingConstant();
+                }
                 System.out.println("G = " + qnm.getPrettyNormalisingConstant());
                 c.printTimeStatistics();
                 c.printMemUsage();
-                if (performanceMeasures == 1) {
+                if (performanceMeasures >= 1) {
                     c.computePerformanceMeasures();
                     System.out.println("\nX = ");
                     MiscFunctions.printPrettyMatrix(qnm.getMeanThroughputs());
@@ -230,6 +335,9 @@ public class Main {
                     System.out.println();
                     c.printTimeStatistics();
                 }
+                if (tolerance != null) {
+                    checkAgainstRECAL((LogRECALSolver) c, filename, M, R, performanceMeasures == 1, tolerance);
+                }
             } catch (NumberFormatException ex) {
                 System.err.println("\nIllegal argument " + ex.getMessage());
                 /*System.out.println("\n======= DEBUGGING INFO =======");
@@ -247,6 +355,36 @@ public class Main {
         }
     }
 
+    /**
+     * Solves the network again with the exact RECAL solver and prints the
+     * relative error of the approximate results. The exact results are
+     * printed too if the error is above the tolerance.
+     */
+    private static void checkAgainstRECAL(LogRECALSolver c, String filename, int M, int R, boolean performanceMeasures, double tolerance) throws Exception {
+        QNModel exact = new QNModel(filename);
+        exact.setM(M);
+        exact.setR(R);
+        RECALSolver e = new RECALSolver(exact);
+        e.computeNormalisingConstant();
+        if (performanceMeasures) {
+            e.computePerformanceMeasures();
+        }
+        double error = c.relativeError(exact);
+        if (error <= tolerance) {
+            System.out.println("Relative error against RECAL: " + error + " (within the tolerance of " + tolerance + ")");
+        } else {
+            System.out.println("Relative error against RECAL: " + error + " (above the tolerance of " + tolerance + "), exact results:");
+            System.out.println("G = " + exact.getPrettyNormalisingConstant());
+            if (performanceMeasures) {
+                System.out.println("\nX = ");
+                MiscFunctions.printPrettyMatrix(exact.getMeanThroughputs());
+                System.out.println("\nQ = ");
+                MiscFunctions.printPrettyMatrix(exact.getMeanQueueLengths());
+                System.out.println();
+            }
+        }
+    }
+
     private static int MoMMatrixSize(QNModel qnm) {
         return MiscFunctions.binomialCoefficient(qnm.M + qnm.R, qnm.R) * qnm.R;
     }
@@ -25,6 +25,11 @@ import java.math.RoundingMode;
  * This class is a representation of rational numbers. Essentially, it uses two 
  * BigIntegers to represent any rational number. It also contains the necessary
  * methods for the basic arithmetic operations.
+ *
+ * Numbers whose numerator and denominator fit in SMALL_BITS bits are held in
+ * two longs instead (always reduced, with a positive denominator), and
+ * arithmetic between operands of at most HALF_BITS bits is carried out on
+ * longs, so that it cannot overflow. Anything larger is promoted to BigInteger.
  * 
  * @author Michail Makaronidis, 2010
  * 
@@ -43,8 +48,31 @@ public class BigRational implements Comparable<BigRational> {
      * This is a variable equal to minus one.
      */
     public final static BigRational MINUS_ONE = new BigRational(-1);
-    private BigInteger num;   // the numerator
-    private BigInteger den;   // the denominator
+    private BigInteger num;   // the numerator, or null if the number is small
+    private BigInteger den;   // the denominator, or null if the number is small
+    private long smallNum;    // the numerator of a small number
+    private long smallDen;    // the (positive) denominator of a small number
+    private boolean reduced;  // true if num/den is known to be in lowest terms
+    /**
+     * The maximum bit length of the numerator and denominator of a number held in longs.
+     */
+    private static final int SMALL_BITS = 62;
+    /**
+     * The maximum bit length of operands whose products and sums of products
+     * are computed on longs.
+     */
+    private static final int HALF_BITS = 31;
+    private static final long HALF_LIMIT = 1L << HALF_BITS;
+    private static final int CACHE_LOW = -128, CACHE_HIGH = 1024;
+    private static final BigRational[] cache = new BigRational[CACHE_HIGH - CACHE_LOW + 1];
+    /**
+     * Results held in BigIntegers whose numerator and denominator together
+     * have at most this many bits are not reduced when they are created. Two
+     * words cover the results that have just outgrown the long representation;
+     * deferring the gcd of larger fractions makes the operands of later
+     * arithmetic grow faster than the gcd saves. See setNormalisationThreshold(..).
+     */
+    private static volatile int normalisationThreshold = 128;
     private boolean undefined = false;
     private BigDecimal asBigDecimal;
 
@@ -54,7 +82,7 @@ public class BigRational implements Comparable<BigRational> {
      * @param denominator The denominator of the rational number
      */
     public BigRational(int numerator, int denominator) {
-        this(new BigInteger("" + numerator), new BigInteger("" + denominator));
+        initSmall(numerator, denominator);
     }
 
     /**
@@ -110,6 +138,36 @@ public class BigRational implements Comparable<BigRational> {
         init(numerator, denominator, isNormal);
     }
 
+    /**
+     * This private constructor creates a new BigRational object held in longs.
+     *
+     * @param numerator The numerator of the rational number
+     * @param denominator The denominator of the rational number, at most SMALL_BITS bits long
+     */
+    private BigRational(long numerator, long denominator) {
+        initSmall(numerator, denominator);
+    }
+
+    /**
+     * Returns a BigRational equal to an integer. Small values are served from a
+     * cache of shared instances, so the result must not be flagged as undefined;
+     * use the constructor for values that may be.
+     *
+     * @param n The number
+     * @return A BigRational equal to n
+     */
+    public static BigRational valueOf(long n) {
+        if (n >= CACHE_LOW && n <= CACHE_HIGH) {
+            BigRational cached = cache[(int) (n - CACHE_LOW)];
+            if (cached == null) {
+                cached = new BigRational(n, 1L);
+                cache[(int) (n - CACHE_LOW)] = cached;
+            }
+            return cached;
+        }
+        return new BigRational(n, 1L);
+    }
+
     /**
      * The constructor creates and initialises a new BigRational object
      * @param numerator The numerator of the rational number
@@ -178,17 +236,41 @@ public class BigRational implements Comparable<BigRational> {
      * @return The BigRational object copy
      */
     public BigRational copy() {
-    	BigRational b = new BigRational(num, den);
+    	BigRational b = isSmall() ? new BigRational(smallNum, smallDen) : new BigRational(num, den);
     	if(undefined) {
     		b.makeUndefined();
     	}
     	return b;
     }
 
+    /**
+     * Sets the size below which the reduction of new fractions is deferred.
+     * Deferring the gcd computation does not affect exactness: fractions are
+     * compared by cross-multiplication, and the accessors that expose the
+     * numerator and denominator (and toString()) always return lowest terms.
+     * A threshold of zero reduces every fraction as soon as it is created.
+     *
+     * @param bits The maximum combined bit length of numerator and denominator of an unreduced fraction
+     */
+    public static void setNormalisationThreshold(int bits) {
+        normalisationThreshold = bits;
+    }
+
+    /**
+     * Returns the size below which the reduction of new fractions is deferred.
+     *
+     * @return The maximum combined bit length of numerator and denominator of an unreduced fraction
+     */
+    public static int getNormalisationThreshold() {
+        return normalisationThreshold;
+    }
+
     /**
      * This method is the core of all constructors. It takes the numerator and
      * the  denominator as BigIntegers and produces a BigRational, reducing the
-     * fraction if needed.
+     * fraction if needed. Fractions that fit in longs are always reduced, as
+     * that is cheap; larger ones are left unreduced while they are below the
+     * normalisation threshold, and reduced when their canonical form is requested.
      *
      * @param numerator The numerator of the rational number
      * @param denominator The denominator of the rational number
@@ -200,26 +282,129 @@ public class BigRational implements Comparable<BigRational> {
         if (denominator.equals(BigInteger.ZERO)) {
             throw new RuntimeException("Denominator is zero");
         }
+        if (numerator.bitLength() <= SMALL_BITS && denominator.bitLength() <= SMALL_BITS) {
+            initSmall(numerator.longValue(), denominator.longValue());
+            return;
+        }
+        if (denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+        if (denominator.equals(BigInteger.ONE)) {
+            isNormal = true;
+        }
+        reduced = isNormal;
 
-        if (!isNormal) {
+        if (!isNormal && numerator.bitLength() + denominator.bitLength() <= normalisationThreshold) {
+            num = numerator;
+            den = denominator;
+        } else if (!isNormal) {
+            reduced = true;
             // reduce fraction
             BigInteger g = numerator.gcd(denominator);
 
             num = numerator.divide(g);
             den = denominator.divide(g);
+            if (num.bitLength() <= SMALL_BITS && den.bitLength() <= SMALL_BITS) {
+                initSmall(num.longValue(), den.longValue());
+            }
         } else {
             num = numerator;
             den = denominator;
         }
     }
 
+    /**
+     * Initialises a number held in longs, reducing the fraction and making
+     * the denominator positive.
+     *
+     * @param numerator The numerator of the rational number
+     * @param denominator The denominator of the rational number, at most SMALL_BITS bits long
+     */
+    private void initSmall(long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new RuntimeException("Denominator is zero");
+        }
+        if (denominator < 0) {
+            numerator = -numerator;
+            denominator = -denominator;
+        }
+        if (denominator != 1) {
+            long a = Math.abs(numerator), b = denominator;
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            if (a != 1) {
+                numerator /= a;
+                denominator /= a;
+            }
+        }
+        num = null;
+        den = null;
+        smallNum = numerator;
+        smallDen = denominator;
+        reduced = true;
+    }
+
+    /**
+     * Checks whether the number is held in longs.
+     */
+    private boolean isSmall() {
+        return num == null;
+    }
+
+    /**
+     * Checks whether the number is held in longs and its numerator and
+     * denominator have at most HALF_BITS bits.
+     */
+    private boolean isHalf() {
+        return num == null && smallNum > -HALF_LIMIT && smallNum < HALF_LIMIT && smallDen < HALF_LIMIT;
+    }
+
+    /**
+     * Checks whether the number is an integer held in a long of at most HALF_BITS bits.
+     */
+    boolean isHalfInteger() {
+        return num == null && smallDen == 1 && smallNum > -HALF_LIMIT && smallNum < HALF_LIMIT;
+    }
+
+    /**
+     * Returns the numerator of a number held in longs.
+     */
+    long smallNumerator() {
+        return smallNum;
+    }
+
+    /**
+     * Returns the stored numerator as a BigInteger. The fraction may not be reduced.
+     */
+    BigInteger bigNum() {
+        return (num == null) ? BigInteger.valueOf(smallNum) : num;
+    }
+
+    /**
+     * Returns the stored denominator as a BigInteger. The fraction may not be reduced.
+     */
+    BigInteger bigDen() {
+        return (num == null) ? BigInteger.valueOf(smallDen) : den;
+    }
+
+    /**
+     * Returns the sign of the stored numerator.
+     */
+    private int numSignum() {
+        return (num == null) ? Long.signum(smallNum) : num.signum();
+    }
+
     /**
      * This method ensures that the denominator of the fraction is positive. It
      * is used for easy comparison.
      */
     private void ensureDenoimatorPositive() {
         // to ensure invariant that denominator is positive
-        if (den.signum() == -1) {
+        if (!isSmall() && den.signum() == -1) {
             den = den.negate();
             num = num.negate();
         }
@@ -231,10 +416,14 @@ public class BigRational implements Comparable<BigRational> {
      */
     @Override
     public String toString() {
-        if (den.equals(BigInteger.ONE)) {
-            return num.toString();
+        if (isSmall()) {
+            return (smallDen == 1) ? Long.toString(smallNum) : smallNum + "/" + smallDen;
+        }
+        BigInteger n = getNumerator(), d = getDenominator();
+        if (d.equals(BigInteger.ONE)) {
+            return n.toString();
         } else {
-            return num.toString() + "/" + den.toString();
+            return n.toString() + "/" + d.toString();
         }
     }
 
@@ -245,14 +434,17 @@ public class BigRational implements Comparable<BigRational> {
      */
     @Override
     public int compareTo(BigRational b) {
-        if (this.num.signum() > b.num.signum()) {
+        if (this.numSignum() > b.numSignum()) {
             return +1;
-        } else if (this.num.signum() < b.num.signum()) {
+        } else if (this.numSignum() < b.numSignum()) {
             return -1;
+        } else if (this.isHalf() && b.isHalf()) {
+            long l = this.smallNum * b.smallDen, r = this.smallDen * b.smallNum;
+            return (l < r) ? -1 : ((l == r) ? 0 : 1);
         } else {
             BigRational a = this;
             a.ensureDenoimatorPositive();
-            return a.num.multiply(b.den).compareTo(a.den.multiply(b.num));
+            return a.bigNum().multiply(b.bigDen()).compareTo(a.bigDen().multiply(b.bigNum()));
         }
     }
 
@@ -314,7 +506,7 @@ public class BigRational implements Comparable<BigRational> {
      * @return True if equal to zero, false otherwise
      */
     public boolean isZero() {
-        return (num == BigInteger.ZERO) || (num.signum() == 0);
+        return (num == null) ? smallNum == 0 : num.signum() == 0;
     }
  /**
      * Decides if this BigRational is equal to one.
@@ -322,6 +514,9 @@ public class BigRational implements Comparable<BigRational> {
      * @return True if equal to one, false otherwise
      */
     public boolean isOne() {
+        if (isSmall()) {
+            return smallNum == 1 && smallDen == 1;
+        }
         return (this == ONE) || (this.equals(ONE));
     }
 
@@ -331,6 +526,9 @@ public class BigRational implements Comparable<BigRational> {
      * @return True if equal to minus one, false otherwise
      */
     public boolean isMinusOne() {
+        if (isSmall()) {
+            return smallNum == -1 && smallDen == 1;
+        }
         return (this == MINUS_ONE) || (this.equals(MINUS_ONE));
     }
 
@@ -341,7 +539,7 @@ public class BigRational implements Comparable<BigRational> {
      */
     public boolean isPositive() {
         this.ensureDenoimatorPositive();
-        return num.signum() == 1;
+        return numSignum() == 1;
     }
 
     /**
@@ -351,7 +549,7 @@ public class BigRational implements Comparable<BigRational> {
      */
     public boolean isNegative() {
         this.ensureDenoimatorPositive();
-        return num.signum() == -1;
+        return numSignum() == -1;
     }
 
     /**
@@ -359,7 +557,7 @@ public class BigRational implements Comparable<BigRational> {
      * @return The absolute value BigRational
      */
     public BigRational abs() {
-        int s = num.signum();
+        int s = numSignum();
         if (s == -1) {
             return this.negate();
         } else {
@@ -385,6 +583,9 @@ public class BigRational implements Comparable<BigRational> {
             return false;
         }
         BigRational b = (BigRational) y;
+        if (this.isSmall() && b.isSmall()) {
+            return this.smallNum == b.smallNum && this.smallDen == b.smallDen;
+        }
         b.ensureDenoimatorPositive();
         this.ensureDenoimatorPositive();
         return compareTo(b) == 0;
@@ -412,12 +613,14 @@ public class BigRational implements Comparable<BigRational> {
             return b;
         } else if (b.isOne()) {
             return this;
-        } else if (a.isInteger()) {
-            return new BigRational(a.num.multiply(b.num), b.den);
-        } else if (b.isInteger()) {
-            return new BigRational(a.num.multiply(b.num), a.den);
+        } else if (a.isHalf() && b.isHalf()) {
+            return new BigRational(a.smallNum * b.smallNum, a.smallDen * b.smallDen);
+        } else if (a.hasUnitDenominator()) {
+            return new BigRational(a.bigNum().multiply(b.bigNum()), b.bigDen());
+        } else if (b.hasUnitDenominator()) {
+            return new BigRational(a.bigNum().multiply(b.bigNum()), a.bigDen());
         } else {
-            return new BigRational(a.num.multiply(b.num), a.den.multiply(b.den));
+            return new BigRational(a.bigNum().multiply(b.bigNum()), a.bigDen().multiply(b.bigDen()));
         }
     }
 
@@ -430,10 +633,10 @@ public class BigRational implements Comparable<BigRational> {
         BigRational a = this;
         if (a.isZero() || b.equals(BigInteger.ZERO)) {
             return BigRational.ZERO;
-        } else if (a.isInteger()) {
-            return new BigRational(a.num.multiply(b), BigInteger.ONE);
+        } else if (a.hasUnitDenominator()) {
+            return new BigRational(a.bigNum().multiply(b), BigInteger.ONE);
         } else {
-            return new BigRational(a.num.multiply(b), a.den);
+            return new BigRational(a.bigNum().multiply(b), a.bigDen());
         }
     }
 
@@ -442,7 +645,37 @@ public class BigRational implements Comparable<BigRational> {
  * @return True if it represents an integer, no otherwise
  */
     public boolean isInteger() {
-        return (this.den.equals(BigInteger.ONE));
+        return hasUnitDenominator() || (!reduced && bigNum().mod(bigDen().abs()).signum() == 0);
+    }
+
+    /**
+     * Checks the stored denominator only, without reducing the fraction.
+     */
+    private boolean hasUnitDenominator() {
+        return isSmall() ? smallDen == 1 : this.den.equals(BigInteger.ONE);
+    }
+
+    /**
+     * Returns the numerator of the (reduced) fraction.
+     * @return The numerator
+     */
+    public BigInteger getNumerator() {
+        // The stored fraction is never overwritten, so that it can be shared between threads
+        if (isSmall()) {
+            return BigInteger.valueOf(smallNum);
+        }
+        return reduced ? num : num.divide(num.gcd(den));
+    }
+
+    /**
+     * Returns the denominator of the (reduced) fraction.
+     * @return The denominator
+     */
+    public BigInteger getDenominator() {
+        if (isSmall()) {
+            return BigInteger.valueOf(smallDen);
+        }
+        return reduced ? den : den.divide(num.gcd(den));
     }
 
     /**
@@ -453,8 +686,11 @@ public class BigRational implements Comparable<BigRational> {
      */
     public BigRational add(BigRational b) {
         BigRational a = this;
-        BigInteger numerator = a.num.multiply(b.den).add(b.num.multiply(a.den));
-        BigInteger denominator = a.den.multiply(b.den);
+        if (a.isHalf() && b.isHalf()) {
+            return new BigRational(a.smallNum * b.smallDen + b.smallNum * a.smallDen, a.smallDen * b.smallDen);
+        }
+        BigInteger numerator = a.bigNum().multiply(b.bigDen()).add(b.bigNum().multiply(a.bigDen()));
+        BigInteger denominator = a.bigDen().multiply(b.bigDen());
         return new BigRational(numerator, denominator);
     }
 
@@ -464,7 +700,10 @@ public class BigRational implements Comparable<BigRational> {
      * @return The number -a
      */
     public BigRational negate() {
-        BigRational toReturn = new BigRational(num.negate(), den, true);
+        if (isSmall()) {
+            return new BigRational(-smallNum, smallDen);
+        }
+        BigRational toReturn = new BigRational(num.negate(), den, reduced);
         toReturn.ensureDenoimatorPositive();
         return toReturn;
     }
@@ -483,6 +722,11 @@ public class BigRational implements Comparable<BigRational> {
             return b.negate();
         } else if (this.equals(b)) {
             return BigRational.ZERO;
+        } else if (this.isHalf() && b.isHalf()) {
+            return new BigRational(this.smallNum * b.smallDen - b.smallNum * this.smallDen, this.smallDen * b.smallDen);
+        } else if (this.isSmall() || b.isSmall()) {
+            BigInteger numerator = a.bigNum().multiply(b.bigDen()).subtract(b.bigNum().multiply(a.bigDen()));
+            return new BigRational(numerator, a.bigDen().multiply(b.bigDen()));
         } else if (this.den == b.den) {
             return new BigRational(this.num.subtract(b.num), this.den);
         } else if (this.den.equals(BigInteger.ONE)) {
@@ -496,13 +740,62 @@ public class BigRational implements Comparable<BigRational> {
         }
     }
 
+    /**
+     * Subtracts the product of two numbers (b and c) from this one (a). This is
+     * the update of Gaussian elimination, computed over a single common
+     * denominator so that at most one fraction has to be reduced.
+     *
+     * @param b The number b
+     * @param c The number c
+     * @return The number a-b*c
+     */
+    public BigRational subtractProduct(BigRational b, BigRational c) {
+        if (b.isZero() || c.isZero()) {
+            return this;
+        }
+        if (b.isHalf() && c.isHalf()) {
+            long pn = b.smallNum * c.smallNum, pd = b.smallDen * c.smallDen;
+            if (this.isHalf() && pn > -HALF_LIMIT && pn < HALF_LIMIT && pd < HALF_LIMIT) {
+                return new BigRational(this.smallNum * pd - pn * this.smallDen, this.smallDen * pd);
+            }
+        }
+        BigInteger productNum = b.bigNum().multiply(c.bigNum());
+        BigInteger productDen;
+        if (b.hasUnitDenominator()) {
+            productDen = c.bigDen();
+        } else if (c.hasUnitDenominator()) {
+            productDen = b.bigDen();
+        } else {
+            productDen = b.bigDen().multiply(c.bigDen());
+        }
+        if (this.isZero()) {
+            BigRational toReturn = new BigRational(productNum.negate(), productDen);
+            toReturn.ensureDenoimatorPositive();
+            return toReturn;
+        }
+        BigInteger thisNum = this.bigNum(), thisDen = this.bigDen();
+        if (thisDen.equals(productDen)) {
+            return new BigRational(thisNum.subtract(productNum), thisDen);
+        } else if (productDen.equals(BigInteger.ONE)) {
+            return new BigRational(thisNum.subtract(thisDen.multiply(productNum)), thisDen);
+        } else if (this.hasUnitDenominator()) {
+            return new BigRational(thisNum.multiply(productDen).subtract(productNum), productDen);
+        } else {
+            BigInteger numerator = thisNum.multiply(productDen).subtract(productNum.multiply(thisDen));
+            return new BigRational(numerator, thisDen.multiply(productDen));
+        }
+    }
+
     /**
      * Return the reciprocal (1/a) of this number (a)
      *
      * @return The number 1/a
      */
     public BigRational reciprocal() {
-        return new BigRational(den, num, true);
+        if (isSmall()) {
+            return new BigRational(smallDen, smallNum);
+        }
+        return new BigRational(den, num, reduced);
     }
 
     /**
@@ -534,8 +827,8 @@ public class BigRational implements Comparable<BigRational> {
 
     private BigRational divide(BigInteger b) {
         if (b.compareTo(BigInteger.ZERO) != 0) {
-            BigInteger newDen = den.multiply(b);
-            BigRational toRet = new BigRational(num, newDen);
+            BigInteger newDen = bigDen().multiply(b);
+            BigRational toRet = new BigRational(bigNum(), newDen);
             toRet.ensureDenoimatorPositive();
             return toRet;
         } else {
@@ -549,8 +842,8 @@ public class BigRational implements Comparable<BigRational> {
      * @return The result of the exponentiation
      */
     public BigRational pow(int n) {
-        BigInteger newNumerator = num.pow(n);
-        BigInteger newDenominator = den.pow(n);
+        BigInteger newNumerator = bigNum().pow(n);
+        BigInteger newDenominator = bigDen().pow(n);
         return new BigRational(newNumerator, newDenominator);
     }
 
@@ -565,11 +858,11 @@ public class BigRational implements Comparable<BigRational> {
         if (asBigDecimal != null) {
             return asBigDecimal;
         } else {
-            BigDecimal result = new BigDecimal(num);
+            BigDecimal result = new BigDecimal(bigNum());
             try {
-                result = result.divide(new BigDecimal(den));
+                result = result.divide(new BigDecimal(bigDen()));
             } catch (ArithmeticException ex) {
-                result = result.divide(new BigDecimal(den), 60, RoundingMode.HALF_EVEN);
+                result = result.divide(new BigDecimal(bigDen()), 60, RoundingMode.HALF_EVEN);
             }
             return result;
         }
@@ -584,8 +877,8 @@ public class BigRational implements Comparable<BigRational> {
      */
     public boolean isBigDecimal() {
         try {
-            BigDecimal result = new BigDecimal(num);
-            asBigDecimal = result.divide(new BigDecimal(den));
+            BigDecimal result = new BigDecimal(bigNum());
+            asBigDecimal = result.divide(new BigDecimal(bigDen()));
         } catch (ArithmeticException ex) {
             return false;
         }
@@ -604,9 +897,9 @@ public class BigRational implements Comparable<BigRational> {
         if (isBigDecimal()) {
             return asBigDecimal().doubleValue();
         } else {
-            BigDecimal toReturn = new BigDecimal(num);
+            BigDecimal toReturn = new BigDecimal(bigNum());
             toReturn = toReturn.setScale(11);
-            toReturn = toReturn.divide(new BigDecimal(den), RoundingMode.HALF_EVEN);
+            toReturn = toReturn.divide(new BigDecimal(bigDen()), RoundingMode.HALF_EVEN);
             return toReturn.doubleValue();
         }
     }
@@ -646,9 +939,9 @@ public class BigRational implements Comparable<BigRational> {
             return this.negate().mod(m).negate();
         } else {
             BigRational toReturn;
-            BigInteger a = this.num;
-            BigInteger b = this.den.multiply(m);
-            toReturn = new BigRational(a.mod(b), den);
+            BigInteger a = this.bigNum();
+            BigInteger b = this.bigDen().multiply(m);
+            toReturn = new BigRational(a.mod(b), bigDen());
             return toReturn;
         }
     }
@@ -663,9 +956,9 @@ public class BigRational implements Comparable<BigRational> {
             return this; // We cannot compute the mod of an "uncomputable" number.
         }else {
             BigRational toReturn;
-            BigInteger a = this.num;
-            BigInteger b = this.den.multiply(m);
-            toReturn = new BigRational(a.mod(b), den);
+            BigInteger a = this.bigNum();
+            BigInteger b = this.bigDen().multiply(m);
+            toReturn = new BigRational(a.mod(b), bigDen());
             return toReturn;
         }
     }
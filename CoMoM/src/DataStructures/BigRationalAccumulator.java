@@ -0,0 +1,136 @@
+package DataStructures;
+
+import java.math.BigInteger;
+
+/**
+ * The BigRationalAccumulator is a mutable sum of BigRationals and products of
+ * BigRationals, for dot products such as the rows of B times G. Terms are
+ * added over a common denominator without reducing the intermediate fraction,
+ * and products of small integers are summed in a long, so a sum of n terms
+ * creates a single normalised BigRational (in toBigRational()) instead of n.
+ */
+public class BigRationalAccumulator {
+
+    /**
+     * The sum is num / den + pending.
+     */
+    private BigInteger num = BigInteger.ZERO;
+    private BigInteger den = BigInteger.ONE;
+    private long pending;
+
+    /**
+     * Creates an accumulator equal to zero.
+     */
+    public BigRationalAccumulator() {
+    }
+
+    /**
+     * Creates an accumulator equal to a number.
+     * @param a The initial value
+     */
+    public BigRationalAccumulator(BigRational a) {
+        add(a);
+    }
+
+    /**
+     * Sets the accumulator back to zero.
+     */
+    public void reset() {
+        num = BigInteger.ZERO;
+        den = BigInteger.ONE;
+        pending = 0;
+    }
+
+    /**
+     * Adds a number to the sum.
+     * @param a The number
+     */
+    public void add(BigRational a) {
+        if (a.isZero()) {
+            return;
+        }
+        if (a.isHalfInteger()) {
+            addPending(a.smallNumerator());
+        } else {
+            addFraction(a.bigNum(), a.bigDen());
+        }
+    }
+
+    /**
+     * Adds the product of two numbers to the sum.
+     * @param a The first number
+     * @param b The second number
+     */
+    public void addProduct(BigRational a, BigRational b) {
+        if (a.isZero() || b.isZero()) {
+            return;
+        }
+        if (a.isHalfInteger() && b.isHalfInteger()) {
+            addPending(a.smallNumerator() * b.smallNumerator());
+        } else {
+            addFraction(a.bigNum().multiply(b.bigNum()), a.bigDen().multiply(b.bigDen()));
+        }
+    }
+
+    /**
+     * Subtracts the product of two numbers from the sum.
+     * @param a The first number
+     * @param b The second number
+     */
+    public void subtractProduct(BigRational a, BigRational b) {
+        if (a.isZero() || b.isZero()) {
+            return;
+        }
+        if (a.isHalfInteger() && b.isHalfInteger()) {
+            addPending(-a.smallNumerator() * b.smallNumerator());
+        } else {
+            addFraction(a.bigNum().multiply(b.bigNum()).negate(), a.bigDen().multiply(b.bigDen()));
+        }
+    }
+
+    /**
+     * Returns the sum as a (normalised) BigRational. The accumulator is not
+     * modified.
+     * @return The sum
+     */
+    public BigRational toBigRational() {
+        BigInteger n = num;
+        if (pending != 0) {
+            n = n.add(BigInteger.valueOf(pending).multiply(den));
+        }
+        return new BigRational(n, den);
+    }
+
+    /**
+     * Adds an integer term of at most 62 bits to the long part of the sum,
+     * moving the long part into num / den if it would overflow.
+     */
+    private void addPending(long term) {
+        long sum = pending + term;
+        if (((pending ^ sum) & (term ^ sum)) < 0) {
+            num = num.add(BigInteger.valueOf(pending).multiply(den));
+            sum = term;
+        }
+        pending = sum;
+    }
+
+    /**
+     * Adds n / d, with d > 0, to num / den.
+     */
+    private void addFraction(BigInteger n, BigInteger d) {
+        if (d.equals(den)) {
+            num = num.add(n);
+        } else if (d.equals(BigInteger.ONE)) {
+            num = num.add(n.multiply(den));
+        } else if (den.equals(BigInteger.ONE)) {
+            num = num.multiply(d).add(n);
+            den = d;
+        } else {
+            // Only the denominators are reduced, which keeps den at the lcm of the terms' denominators
+            BigInteger g = den.gcd(d);
+            BigInteger dg = d.divide(g);
+            num = num.multiply(dg).add(n.multiply(den.divide(g)));
+            den = den.multiply(dg);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package DataStructures;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BigRationalTest {
+
+	private int threshold;
+
+	@Before
+	public void setUp() throws Exception {
+		threshold = BigRational.getNormalisationThreshold();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		BigRational.setNormalisationThreshold(threshold);
+	}
+
+	@Test
+	public void testDeferredNormalisation() {
+		BigRational.setNormalisationThreshold(Integer.MAX_VALUE);
+		// Multi-word operands with a common factor of 2^100 * 7
+		BigInteger common = BigInteger.ONE.shiftLeft(100).multiply(BigInteger.valueOf(7));
+		BigInteger p = BigInteger.ONE.shiftLeft(89).subtract(BigInteger.ONE);
+		BigInteger q = BigInteger.ONE.shiftLeft(107).subtract(BigInteger.ONE);
+		BigRational a = new BigRational(p.multiply(common), q.multiply(common));
+
+		// Stored unreduced until the canonical form is read
+		assertEquals(p.multiply(common), a.bigNum());
+		assertEquals(q.multiply(common), a.bigDen());
+		assertEquals(p, a.getNumerator());
+		assertEquals(q, a.getDenominator());
+		assertEquals(p.multiply(common), a.bigNum());
+		assertEquals(p + "/" + q, a.toString());
+
+		BigRational reduced = new BigRational(p, q);
+		assertEquals(reduced, a);
+		assertEquals(reduced.hashCode(), a.hashCode());
+		assertEquals(0, reduced.compareTo(a));
+		assertEquals(new BigRational(q, p), a.reciprocal());
+		assertTrue(new BigRational(q.multiply(common), common).isInteger());
+		assertFalse(a.isInteger());
+
+		// Sums of unreduced operands stay exact
+		BigRational sum = a.add(a).subtract(reduced);
+		assertEquals(reduced, sum);
+	}
+
+	@Test
+	public void testDefaultThreshold() {
+		// The default threshold must defer the gcd of values that span more than one word
+		assertTrue(BigRational.getNormalisationThreshold() >= 2 * 64);
+		BigInteger common = BigInteger.ONE.shiftLeft(61).add(BigInteger.ONE);
+		BigRational a = new BigRational(common.multiply(BigInteger.valueOf(3)), common.multiply(BigInteger.valueOf(2)));
+		assertEquals(common.multiply(BigInteger.valueOf(3)), a.bigNum());
+		assertEquals(new BigRational(3, 2), a);
+
+		BigRational.setNormalisationThreshold(0);
+		BigRational b = new BigRational(common.multiply(BigInteger.valueOf(3)), common.multiply(BigInteger.valueOf(2)));
+		assertEquals(BigInteger.valueOf(3), b.bigNum());
+	}
+
+	@Test
+	public void testSubtractProduct() {
+		BigRational a = new BigRational(7, 3);
+		BigRational b = new BigRational(5, 6);
+		BigRational c = new BigRational(-4, 5);
+
+		assertEquals(a.subtract(b.multiply(c)), a.subtractProduct(b, c));
+		assertEquals(b.multiply(c).negate(), BigRational.ZERO.subtractProduct(b, c));
+		assertEquals(a, a.subtractProduct(BigRational.ZERO, c));
+		assertEquals(new BigRational(-3), new BigRational(5).subtractProduct(new BigRational(2), new BigRational(4)));
+	}
+}
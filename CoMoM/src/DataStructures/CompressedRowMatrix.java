@@ -0,0 +1,185 @@
+package DataStructures;
+
+import java.util.Arrays;
+
+/**
+ * The CompressedRowMatrix is a square BigRational matrix in compressed sparse
+ * row form, which is assembled row by row: the elements of row i are
+ * values[rowStart[i] .. rowStart[i + 1] - 1], in the columns columns[..].
+ * Rows must be written in non-decreasing order, which is how the linear
+ * systems of CoMoM and MoM are generated, so assembling a matrix needs memory
+ * and time in O(nnz) instead of O(n^2). Within a row the elements are kept in
+ * the order they were first written, and writing an element again overwrites it.
+ */
+public class CompressedRowMatrix {
+
+    private final int N;
+    private int[] rowStart, columns;
+    private BigRational[] values;
+    private int nnz;
+    /**
+     * The last row that has been written to. Every later row is still empty.
+     */
+    private int currentRow;
+
+    /**
+     * Creates an empty N x N matrix.
+     * @param N The number of rows and columns
+     */
+    public CompressedRowMatrix(int N) {
+        this.N = N;
+        rowStart = new int[N + 1];
+        columns = new int[Math.max(N, 1)];
+        values = new BigRational[Math.max(N, 1)];
+    }
+
+    /**
+     * Returns the number of rows (and columns) of the matrix.
+     * @return The size of the matrix
+     */
+    public int size() {
+        return N;
+    }
+
+    /**
+     * Returns the number of stored elements, including any zeros written explicitly.
+     * @return The number of stored elements
+     */
+    public int nonZeros() {
+        return nnz;
+    }
+
+    /**
+     * Writes value v at position (i, j). Zeros are stored as well, so that
+     * elements that are updated later keep their place in the structure.
+     * @param i The row, which must not be smaller than any row written before
+     * @param j The column
+     * @param v The value
+     * @throws IllegalArgumentException Thrown when a row before the current one is written
+     */
+    public void write(int i, int j, BigRational v) {
+        if (i < currentRow) {
+            throw new IllegalArgumentException("Row " + i + " written after row " + currentRow + ".");
+        }
+        while (currentRow < i) {
+            currentRow++;
+            rowStart[currentRow] = nnz;
+        }
+        for (int k = rowStart[i]; k < nnz; k++) {
+            if (columns[k] == j) {
+                values[k] = v;
+                return;
+            }
+        }
+        if (nnz == columns.length) {
+            columns = Arrays.copyOf(columns, 2 * nnz);
+            values = Arrays.copyOf(values, 2 * nnz);
+        }
+        columns[nnz] = j;
+        values[nnz++] = v;
+        rowStart[i + 1] = nnz;
+    }
+
+    /**
+     * Returns the element at position (i, j).
+     * @param i The row
+     * @param j The column
+     * @return The element, which is zero if it has not been written
+     */
+    public BigRational get(int i, int j) {
+        int end = rowEnd(i);
+        for (int k = rowStart(i); k < end; k++) {
+            if (columns[k] == j) {
+                return values[k];
+            }
+        }
+        return BigRational.ZERO;
+    }
+
+    /**
+     * Returns the position of the first element of row i.
+     * @param i The row
+     * @return The index in the arrays of getColumns() and getValues()
+     */
+    public int rowStart(int i) {
+        return (i <= currentRow) ? rowStart[i] : nnz;
+    }
+
+    /**
+     * Returns the position after the last element of row i.
+     * @param i The row
+     * @return The index in the arrays of getColumns() and getValues()
+     */
+    public int rowEnd(int i) {
+        return (i < currentRow) ? rowStart[i + 1] : nnz;
+    }
+
+    /**
+     * Returns the column of every stored element. The array is not copied and
+     * may be longer than nonZeros().
+     * @return The columns of the elements
+     */
+    public int[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns every stored element. The array is not copied and may be longer
+     * than nonZeros().
+     * @return The values of the elements
+     */
+    public BigRational[] getValues() {
+        return values;
+    }
+
+    /**
+     * Multiplies the matrix by a vector. As in MiscFunctions.matrixVectorMultiply(..),
+     * only positive elements of v contribute, and a row that meets an undefined
+     * element of v gives an undefined result.
+     * @param v The vector, of which only the first N elements are used
+     * @return The product
+     */
+    public BigRational[] multiply(BigRational[] v) {
+        if (v.length < N) {
+            throw new ArithmeticException("Cannot multiply matrices with wrong sizes! (" + N + "x" + N + ")x(" + v.length + "x1)");
+        }
+        BigRational[] c = new BigRational[N];
+        BigRationalAccumulator sum = new BigRationalAccumulator();
+        for (int i = 0; i < N; i++) {
+            sum.reset();
+            int end = rowEnd(i);
+            for (int k = rowStart(i); k < end; k++) {
+                if (!values[k].isZero()) {
+                    BigRational x = v[columns[k]];
+                    if (x.isPositive()) {
+                        sum.addProduct(values[k], x);
+                    } else if (x.isUndefined()) {
+                        c[i] = new BigRational(-1);
+                        c[i].makeUndefined();
+                        break;
+                    }
+                }
+            }
+            if (c[i] == null) {
+                c[i] = sum.toBigRational();
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Returns the matrix as a dense array, for the solvers that work on one.
+     * @return A new N x N array
+     */
+    public BigRational[][] toArray() {
+        BigRational[][] array = new BigRational[N][N];
+        for (int i = 0; i < N; i++) {
+            Arrays.fill(array[i], BigRational.ZERO);
+            int end = rowEnd(i);
+            for (int k = rowStart(i); k < end; k++) {
+                array[i][columns[k]] = values[k];
+            }
+        }
+        return array;
+    }
+}
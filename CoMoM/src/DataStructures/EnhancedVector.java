@@ -18,27 +18,55 @@
 package DataStructures;
 
 import Exceptions.InternalErrorException;
-import java.util.ArrayList;
-import java.util.Stack;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
 import javax.naming.OperationNotSupportedException;
 
 /**
- * This class extends the ArrayList<Integer> object class by adding several useful
- * methods for operations encountered when dealing with the algorithms that
- * compute the normalising constants.
+ * This class implements a List<Integer> backed by a primitive int array, with
+ * several useful methods for operations encountered when dealing with the
+ * algorithms that compute the normalising constants. Its equals(), hashCode()
+ * and toString() agree with those of an ArrayList<Integer> holding the same
+ * elements.
+ *
+ * The hash code is cached and kept up to date by minusOne(), plusOne() and
+ * restore(), so vectors that are altered and then looked up in a HashMap are
+ * not rehashed element by element, and none of these methods allocates.
  *
  * @author Michail Makaronidis, 2010, amended by Jack Bradshaw 2012
  * 
  * Amendments: No longer implements comparable, to allow subclasses to do so
  */
-public class EnhancedVector extends ArrayList<Integer> implements Comparable<EnhancedVector> {
+public class EnhancedVector extends AbstractList<Integer> implements RandomAccess, Serializable, Comparable<EnhancedVector> {
+
+    private static final long serialVersionUID = 1L;
+
+    // Powers of 31, for updating the hash code after a single element changes.
+    private static final int[] POWERS_OF_31 = new int[64];
 
-    //TODO: More efficient implementation of several functions here. Special properties (i.e. zeroVector, containsMinusOne, etc) can be produced during every access, and not be the result of element-by-element search.
+    static {
+        POWERS_OF_31[0] = 1;
+        for (int i = 1; i < POWERS_OF_31.length; i++) {
+            POWERS_OF_31[i] = 31 * POWERS_OF_31[i - 1];
+        }
+    }
 
-    // This stack holds the "positions" of the elenents that have been altered.
-    private Stack<Integer> positions = new Stack<Integer>();
-    // This stack holds the "deltas" of alterations corresponding to each position.
-    private Stack<Integer> deltas = new Stack<Integer>();
+    private static final int[] EMPTY = new int[0];
+
+    // The elements of the vector are elements[0..size-1].
+    private int[] elements = EMPTY;
+    private int size;
+
+    private transient int hash;
+    private transient boolean hashValid;
+
+    // This stack holds the alterations made by minusOne() and plusOne(), each
+    // one encoded as (position << 1) | (delta > 0 ? 1 : 0). It is only
+    // allocated when the first alteration is made.
+    private int[] history;
+    private int historySize;
 
     /**
      * Creates an empty EnhancedVector object.
@@ -54,8 +82,9 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      */
     public EnhancedVector(Integer[] A) {
         super();
+        elements = new int[A.length];
         for (Integer el : A) {
-            this.add(el);
+            elements[size++] = el;
         }
     }
 
@@ -67,10 +96,126 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      * @param length The length of the EnhancedVector
      */
     public EnhancedVector(int k, int length) {
-        this.clear();
-        for (int i = 0; i < length; i++) {
-            this.add(k);
+        elements = new int[length];
+        if (k != 0) {
+            Arrays.fill(elements, k);
+        }
+        size = length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Integer get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * Returns an element as an int, without boxing it as get() does.
+     *
+     * @param index The index of the element
+     * @return The element
+     */
+    public int getInt(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    @Override
+    public Integer set(int index, Integer element) {
+        checkIndex(index);
+        int previous = elements[index];
+        elements[index] = element;
+        hashValid = false;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Integer element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+        modCount++;
+        hashValid = false;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        checkIndex(index);
+        int previous = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        hashValid = false;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+        hashValid = false;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Returns the hash code of the vector, which is the same as that of a
+     * List<Integer> with the same elements.
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        if (!hashValid) {
+            int h = 1;
+            for (int i = 0; i < size; i++) {
+                h = 31 * h + elements[i];
+            }
+            hash = h;
+            hashValid = true;
+        }
+        return hash;
+    }
+
+    /**
+     * Compares the vector with another object. Two EnhancedVectors are equal
+     * if they hold the same elements, whatever their alteration history or
+     * subclass; any other List<Integer> is compared element by element.
+     * @param o The other object
+     * @return True if they are equal, else false
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof EnhancedVector)) {
+            return super.equals(o);
+        }
+        EnhancedVector v = (EnhancedVector) o;
+        if (size != v.size || (hashValid && v.hashValid && hash != v.hash)) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (elements[i] != v.elements[i]) {
+                return false;
+            }
         }
+        return true;
     }
 
     /**
@@ -79,8 +224,8 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      * @return True if it is a zero vector, false otherwise
      */
     public boolean isZeroVector() {
-        for (Integer el : this) {
-            if (el != 0) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] != 0) {
                 return false;
             }
         }
@@ -92,7 +237,12 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      * @return True if -1 is contained, else false.
      */
     public boolean containsMinusOne(){
-        return this.contains(-1);
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == -1) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -103,14 +253,10 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      * @throws InternalErrorException Thrown when used on a zero vector
      */
     public int findFirstNonZeroElement() throws InternalErrorException {
-        int i = 0;
-        for (Integer k : this) {
-            if (k > 0) {
-                return i;
-            } else if (k < 0){
+        for (int i = 0; i < size; i++) {
+            if (elements[i] != 0) {
                 return i;
             }
-            i++;
         }
         throw new InternalErrorException("Internal Error: Called findFirstNonZeroElement() on a zero vector!");
     }
@@ -121,7 +267,8 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      * @return The number in that position as a BigRational
      */
     public BigRational getAsBigRational(int index){
-        return new BigRational(this.get(index));
+        checkIndex(index);
+        return BigRational.valueOf(elements[index]);
     }
 
     /**
@@ -131,8 +278,8 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      */
     public int sum() {
         int sum = 0;
-        for (Integer el : this) {
-            sum += el;
+        for (int i = 0; i < size; i++) {
+            sum += elements[i];
         }
         return sum;
     }
@@ -142,10 +289,35 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      * @param i The index of the position (starts from 0)
      * @param delta The delta added
      */
-    private void alterElementAt(int i, Integer delta) {
-        int prevValue = this.get(i);
-        int newValue = prevValue + delta;
-        this.set(i, newValue);
+    private void alterElementAt(int i, int delta) {
+        checkIndex(i);
+        elements[i] += delta;
+        if (hashValid) {
+            int exponent = size - 1 - i;
+            hash += delta * (exponent < POWERS_OF_31.length ? POWERS_OF_31[exponent] : power31(exponent));
+        }
+    }
+
+    private static int power31(int exponent) {
+        int p = 1;
+        for (int i = 0; i < exponent; i++) {
+            p *= 31;
+        }
+        return p;
+    }
+
+    /**
+     * Pushes an alteration onto the history stack.
+     * @param position The position altered, as passed to minusOne() or plusOne()
+     * @param delta The delta added, -1 or +1
+     */
+    private void pushAlteration(int position, int delta) {
+        if (history == null) {
+            history = new int[8];
+        } else if (historySize == history.length) {
+            history = Arrays.copyOf(history, 2 * historySize);
+        }
+        history[historySize++] = (position << 1) | (delta > 0 ? 1 : 0);
     }
 
     /**
@@ -156,8 +328,7 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
         if (s != 0) {
             this.alterElementAt(s - 1, -1);
         }
-        positions.push(s);
-        deltas.push(-1);
+        pushAlteration(s, -1);
     }
 
     /**
@@ -168,8 +339,7 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
         if (k != 0) {
             this.alterElementAt(k - 1, 1);
         }
-        positions.push(k);
-        deltas.push(+1);
+        pushAlteration(k, +1);
     }
 
     /**
@@ -177,9 +347,10 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      * no alteration has been made, the method terminates silently.
      */
     public void restore() {
-        if (!positions.empty()) {
-            int lastPos = positions.pop();
-            int lastDelta = deltas.pop();
+        if (historySize > 0) {
+            int last = history[--historySize];
+            int lastPos = last >>> 1;
+            int lastDelta = ((last & 1) == 1) ? 1 : -1;
             if (lastPos != 0) {
                 this.alterElementAt(lastPos - 1, -lastDelta);
             }
@@ -194,8 +365,8 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      */
     public int countZeroElements() {
         int count = 0;
-        for (Integer el : this) {
-            if (el == 0) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == 0) {
                 count++;
             }
         }
@@ -209,12 +380,7 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      * @param destination The EnhancedVector to which the current one is copied
      */
     protected void copyTo(EnhancedVector destination) {
-        destination.clear();
-        for (Integer el : this) {
-            destination.add(el);
-        }
-
-        //TODO: Copy stack as well?
+        destination.fillFromMyVector(this);
     }
 
     /**
@@ -224,10 +390,11 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      * @param source The EnhancedVector from which the elements are copied
      */
     protected void fillFromMyVector(EnhancedVector source) {
-        this.clear();
-        for (Integer el : source) {
-            this.add(el);
-        }
+        elements = Arrays.copyOf(source.elements, source.size);
+        size = source.size;
+        hash = source.hash;
+        hashValid = source.hashValid;
+        modCount++;
     }
 
     /**
@@ -238,11 +405,11 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      */
     public int max() throws OperationNotSupportedException {
         int max;
-        if (this.size() > 0) {
-            max = this.get(0);
-            for (int el : this) {
-                if (el > max) {
-                    max = el;
+        if (size > 0) {
+            max = elements[0];
+            for (int i = 1; i < size; i++) {
+                if (elements[i] > max) {
+                    max = elements[i];
                 }
             }
         } else {
@@ -259,11 +426,11 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      */
     public int min() throws OperationNotSupportedException {
         int min;
-        if (this.size() > 0) {
-            min = this.get(0);
-            for (int el : this) {
-                if (el < min) {
-                    min = el;
+        if (size > 0) {
+            min = elements[0];
+            for (int i = 1; i < size; i++) {
+                if (elements[i] < min) {
+                    min = elements[i];
                 }
             }
         } else {
@@ -281,6 +448,9 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      * @return
      */
     public synchronized boolean equalsIgnoreHistory(Object o) {
+        if (o instanceof EnhancedVector) {
+            return this.equals(o);
+        }
         return this.toString().equals(o.toString());
     }
 
@@ -297,24 +467,25 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
         EnhancedVector v1 = this;
         EnhancedVector v2 = o;
 
-        if (v1.size() < v2.size()) {
+        if (v1.size < v2.size) {
             return 1;
-        } else if (v1.size() > v2.size()) {
+        } else if (v1.size > v2.size) {
             return -1;
         } else {
             // Vectors have the same length
             // Check 1: Lower sum ==> Greater vector
-            if (v1.sum() < v2.sum()){
+            int sum1 = v1.sum(), sum2 = v2.sum();
+            if (sum1 < sum2){
                 return -1;
-            } else if (v1.sum() > v2.sum()){
+            } else if (sum1 > sum2){
                 return 1;
             } else {
                 // Vectors have same length and same sum
                 // Check 2: Greater leftmost element ==> Greater vector
-                for (int i = 0; i < v1.size(); i++){
-                    if (v1.get(i) > v2.get(i)){
+                for (int i = 0; i < v1.size; i++){
+                    if (v1.elements[i] > v2.elements[i]){
                         return -1;
-                    } else if  (v1.get(i)< v2.get(i)){
+                    } else if  (v1.elements[i] < v2.elements[i]){
                         return 1;
                     }
                 }
@@ -343,10 +514,11 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      */
     public EnhancedVector addVec(EnhancedVector b) {
         EnhancedVector a = this.copy();
-        if (a.size() == b.size()) {
-            for (int i = 0; i < a.size(); i++) {
-                a.set(i, a.get(i) + b.get(i));
+        if (a.size == b.size) {
+            for (int i = 0; i < a.size; i++) {
+                a.elements[i] += b.elements[i];
             }
+            a.hashValid = false;
             return a;
         } else {
             throw new UnsupportedOperationException("Cannot add vectors of different size.");
@@ -361,10 +533,11 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      */
     public EnhancedVector subVec(EnhancedVector b) {
         EnhancedVector a = this.copy();
-        if (a.size() == b.size()) {
-            for (int i = 0; i < a.size(); i++) {
-                a.set(i, a.get(i) - b.get(i));
+        if (a.size == b.size) {
+            for (int i = 0; i < a.size; i++) {
+                a.elements[i] -= b.elements[i];
             }
+            a.hashValid = false;
             return a;
         } else {
             throw new UnsupportedOperationException("Cannot add vectors of different size.");
@@ -377,8 +550,8 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
     public void print() {
     	String newLine = System.getProperty("line.separator");
     	System.out.print("[");
-    	for(int i = 0; i < this.size(); i++) {
-    		System.out.print(this.get(i) + " ");    	 	
+    	for(int i = 0; i < size; i++) {
+    		System.out.print(elements[i] + " ");    	 	
     	}
     	System.out.print("]" + newLine);
     }
@@ -391,8 +564,8 @@ public class EnhancedVector extends ArrayList<Integer> implements Comparable<Enh
      */
     public int countNonZeroElements() {
         int count = 0;
-        for (Integer el : this) {
-            if (el > 0) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] > 0) {
                 count++;
             }
         }
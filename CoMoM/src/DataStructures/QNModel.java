@@ -152,7 +152,7 @@ public class QNModel {
      * @return The corresponding service demand
      */
     public BigRational getDemandAsBigRational(int k, int r) {
-        return new BigRational(getDemand(k, r));
+        return BigRational.valueOf(getDemand(k, r));
     }
 
     /**
@@ -195,7 +195,7 @@ public class QNModel {
      * @return The corresponding delay (think time)
      */
     public BigRational getDelayAsBigRational(int r) {
-        return new BigRational(getDelay(r));
+        return BigRational.valueOf(getDelay(r));
     }
 
     /**
@@ -410,6 +410,15 @@ public class QNModel {
         }
     }
 
+    /**
+     * Returns whether the performance measures of the current model have been
+     * computed.
+     * @return True if the mean throughputs and queue lengths are available
+     */
+    public boolean arePerformanceMeasuresComputed() {
+        return arePerformanceMeasuresComputed;
+    }
+
     private int getMaxDemand() {
         int max = 0;
         for (int k = 0; k < this.M; k++) {
@@ -530,6 +539,57 @@ public class QNModel {
     	MiscFunctions.printMatrix(Q);
     }
     
+    /**
+     * Adds jobs to a class. The results computed for the previous population
+     * are discarded, so that those of the new population can be stored.
+     *
+     * @param r The class index (starts from 0)
+     * @param jobs The number of jobs to add
+     */
+    public void addJobs(int r, int jobs) {
+        N.set(r, N.get(r) + jobs);
+        discardResults();
+    }
+
+    /**
+     * Moves a class to the last position, R - 1, and the classes after it one
+     * position forward. The solvers that process the classes in order handle
+     * this class last, so that they can resume after jobs are added to it.
+     * Any computed results are discarded.
+     *
+     * @param r The class index (starts from 0)
+     */
+    public void moveClassLast(int r) {
+        for (int s = r; s < R - 1; s++) {
+            swap(N, s, s + 1);
+            swap(Z, s, s + 1);
+        }
+        // The demands may be shared with the caller of the constructor
+        Integer[][] moved = new Integer[D.length][];
+        for (int k = 0; k < D.length; k++) {
+            moved[k] = D[k].clone();
+            for (int s = r; s < R - 1; s++) {
+                Integer temp = moved[k][s];
+                moved[k][s] = moved[k][s + 1];
+                moved[k][s + 1] = temp;
+            }
+        }
+        D = moved;
+        discardResults();
+    }
+
+    private static void swap(EnhancedVector v, int i, int j) {
+        v.set(i, v.set(j, v.get(i)));
+    }
+
+    private void discardResults() {
+        G = null;
+        X = null;
+        Q = null;
+        isNormalisingCOnstantComputed = false;
+        arePerformanceMeasuresComputed = false;
+    }
+
     public void setM(int m) {
     	this.M = m;
     }
@@ -1,7 +1,19 @@
 package LinearSystem.BTF;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import javax.naming.OperationNotSupportedException;
 
+import Basis.BasisEnumeration;
 import Basis.CoMoMBasis;
 import DataStructures.BigRational;
 import DataStructures.PopulationChangeVector;
@@ -11,6 +23,7 @@ import Exceptions.BTFMatrixErrorException;
 import Exceptions.InconsistentLinearSystemException;
 import Exceptions.InternalErrorException;
 import LinearSystem.LinearSystem;
+import LinearSystem.BTF.MicroBlocks.LUP_Decomposition;
 import LinearSystem.BTF.TopLevelBlocks.B1Block;
 import LinearSystem.BTF.TopLevelBlocks.B2Block;
 import LinearSystem.BTF.TopLevelBlocks.CBlock;
@@ -37,12 +50,30 @@ public class BTFLinearSystem extends LinearSystem {
 	//Vector for storing intermediate solution
 	BigRational[] rhs;
 	
+	/**
+	 * Steps of the solve for the current class, with their dependencies
+	 */
+	private BlockSchedule schedule;
+	
 	/**
 	 * Boolean to indicate whether LUP decomposition should happen in place or not.
-	 * The latter is useful for debugging and testing purposes, allowing the original matrix to be inspected.
+	 * The decomposition is now packed separately and never overwrites the matrix, so this has no effect.
 	 */
 	private boolean in_place = true;
 	
+	/**
+	 * Directory where the LUP decompositions of the X block are cached, or null.
+	 * The X block only depends on M, R and the demands, so its decompositions are
+	 * read back instead of recomputed for any model with the same signature.
+	 */
+	private File factor_cache = null;
+	
+	/**
+	 * Pool on which independent steps of the solve are run concurrently, or null to solve serially.
+	 * Its worker threads are daemons, so it needs no shutdown.
+	 */
+	private ForkJoinPool pool = null;
+	
 	public BTFLinearSystem(QNModel qnm, CoMoMBasis basis)
 			throws InternalErrorException, BTFMatrixErrorException, InconsistentLinearSystemException {
 		
@@ -59,6 +90,31 @@ public class BTFLinearSystem extends LinearSystem {
 		initialise();
 	}
 	
+	/**
+	 * @param factor_cache directory where the LUP decompositions of the X block are cached, or null
+	 */
+	public BTFLinearSystem(QNModel qnm, CoMoMBasis basis, boolean in_place, File factor_cache)
+			throws InternalErrorException, BTFMatrixErrorException, InconsistentLinearSystemException {
+		
+		this(qnm, basis, in_place, factor_cache, 1);
+	}
+	
+	/**
+	 * @param factor_cache directory where the LUP decompositions of the X block are cached, or null
+	 * @param nThreads number of threads among which independent steps of the solve are shared
+	 */
+	public BTFLinearSystem(QNModel qnm, CoMoMBasis basis, boolean in_place, File factor_cache, int nThreads)
+			throws InternalErrorException, BTFMatrixErrorException, InconsistentLinearSystemException {
+		
+		super(qnm, basis);		
+		this.in_place = in_place;
+		this.factor_cache = factor_cache;
+		if(nThreads > 1) {
+			pool = new ForkJoinPool(nThreads);
+		}
+		initialise();
+	}
+	
 	private void initialise() throws BTFMatrixErrorException, InternalErrorException, InconsistentLinearSystemException {
 		//Create and initialise the component blocks for the final class
 		x_block  = new XBlock (qnm, basis);
@@ -88,8 +144,8 @@ public class BTFLinearSystem extends LinearSystem {
 	private void generate() throws BTFMatrixErrorException, InternalErrorException, InconsistentLinearSystemException {
 		PopulationChangeVector n;
 		int row_added;
-	   	for(int i = 0; i < MiscFunctions.binomialCoefficient(qnm.M + qnm.R - 1 , qnm.M); i++)  { //loop over all possible population changes n
-	   		n  = basis.getPopulationChangeVector(i).copy(); // To improve bug safety
+	   	for(BasisEnumeration it = basis.enumerate(); it.hasNext(); )  { //loop over all possible population changes n
+	   		n  = it.next(); // a fresh copy, unpacked on demand
 	   		
 	   		if(n.sumHead(qnm.R - 1) < qnm.M) {
 	   			for(int k = 1; k <= qnm.M; k++) {
@@ -106,7 +162,67 @@ public class BTFLinearSystem extends LinearSystem {
 	   			}   			    			    			
 	   		}
 	   	}
-	   	x_block.LUPDecompose(in_place);
+	   	LUPDecompose();
+	}
+	
+	/**
+	 * Decomposes the X block, or reads its decompositions from the cache
+	 */
+	private void LUPDecompose() throws InconsistentLinearSystemException {
+		if(factor_cache == null) {
+			x_block.LUPDecompose(in_place);
+			return;
+		}
+		String signature = factorSignature();
+		File file = new File(factor_cache, "lup_" + qnm.M + "_" + qnm.R + "_" + Integer.toHexString(signature.hashCode()) + ".ser");
+		if(file.exists()) {
+			try {
+				ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+				try {
+					if(signature.equals(in.readObject())) {
+						@SuppressWarnings("unchecked")
+						List<LUP_Decomposition> factors = (List<LUP_Decomposition>) in.readObject();
+						x_block.attachLUP(factors);
+						return;
+					}
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				System.err.println("Cannot read LUP decompositions from " + file + ": " + e.getMessage());
+			} catch (ClassNotFoundException e) {
+				System.err.println("Cannot read LUP decompositions from " + file + ": " + e.getMessage());
+			} catch (ClassCastException e) {
+				System.err.println("Cannot read LUP decompositions from " + file + ": " + e.getMessage());
+			} catch (InconsistentLinearSystemException e) {
+				System.err.println("Cannot use LUP decompositions from " + file + ": " + e.getMessage());
+			}
+		}
+		x_block.LUPDecompose(in_place);
+		try {
+			ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try {
+				out.writeObject(signature);
+				out.writeObject(x_block.getLUP());
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			System.err.println("Cannot write LUP decompositions to " + file + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Returns a string identifying the X block: M, R and the demands
+	 */
+	private String factorSignature() {
+		StringBuilder signature = new StringBuilder(qnm.M + " " + qnm.R);
+		for(int k = 0; k < qnm.M; k++) {
+			for(int r = 0; r < qnm.R; r++) {
+				signature.append(' ').append(qnm.getDemandAsBigRational(k, r));
+			}
+		}
+		return signature.toString();
 	}
 	
 	@Override
@@ -119,6 +235,16 @@ public class BTFLinearSystem extends LinearSystem {
 		b2 = (B2Block) b2_block.subBlock(current_class);
 		c  = (CBlock)   c_block.subBlock(current_class);
 		
+		//Order of solving is important:
+		//B First, then A; Y then X.
+		//The schedule keeps this order only where the blocks access the same rows.
+		schedule = new BlockSchedule();
+		b1.schedule(schedule);
+		b2.schedule(schedule);
+		c.schedule(schedule);
+		y.schedule(schedule);
+		x.schedule(schedule);
+		
 		System.out.print("Matrices for class " + current_class + "\n\n\n");
 		//printWorkingMatrices();		
 	}
@@ -131,17 +257,8 @@ public class BTFLinearSystem extends LinearSystem {
 		//System.out.println("BEFORE: ");
 		//basis.print_values();
 		
-		//Order of solving is important:
-		//B First
-		b1.solve(rhs);
-		b2.solve(rhs);
-		c.solve(rhs);
-		
-		//Then A; Y then X
-		y.solve(rhs);
-		//System.out.println("AFTER Y: ");
-		//basis.print_values();
-		x.solve(rhs);		
+		//Runs the steps of b1, b2, c, y and x in order, or concurrently where they are independent
+		schedule.run(rhs, pool);
 		
 		//basis.print_values();
 	}
@@ -0,0 +1,191 @@
+package LinearSystem.BTF;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.naming.OperationNotSupportedException;
+
+import DataStructures.BigRational;
+import Exceptions.BTFMatrixErrorException;
+import Exceptions.InconsistentLinearSystemException;
+import Exceptions.InternalErrorException;
+
+/**
+ * Dependency graph of the steps of a BTF solve.
+ *
+ * Blocks add their steps in the order of a serial solve, each with the ranges of
+ * the rhs and of the new basis values that it reads and writes. A step depends on
+ * every earlier step whose ranges conflict with its own (read after write, write
+ * after read or write after write), so any execution that respects these
+ * dependencies gives the same result as the serial solve.
+ */
+public class BlockSchedule {
+
+	/**
+	 * Vectors accessed by the steps
+	 */
+	public static final int RHS = 0, BASIS = 1;
+
+	/**
+	 * A step of the solve, which declares the ranges it accesses
+	 */
+	public static abstract class Step {
+
+		/**
+		 * Accessed ranges, in the form {vector, start, end}, with end exclusive
+		 */
+		private List<int[]> reads = new ArrayList<int[]>();
+		private List<int[]> writes = new ArrayList<int[]>();
+
+		private List<Step> successors = new ArrayList<Step>();
+		private int predecessors;
+		private AtomicInteger pending = new AtomicInteger();
+
+		/**
+		 * Declares that the step reads elements start to end - 1 of a vector
+		 * @param vector RHS or BASIS
+		 * @return the step
+		 */
+		public Step reads(int vector, int start, int end) {
+			add(reads, vector, start, end);
+			return this;
+		}
+
+		/**
+		 * Declares that the step writes elements start to end - 1 of a vector
+		 * @param vector RHS or BASIS
+		 * @return the step
+		 */
+		public Step writes(int vector, int start, int end) {
+			add(writes, vector, start, end);
+			return this;
+		}
+
+		private static void add(List<int[]> ranges, int vector, int start, int end) {
+			if(start >= end) {
+				return;
+			}
+			//Extend the last range if the new one follows on from it
+			if(!ranges.isEmpty()) {
+				int[] last = ranges.get(ranges.size() - 1);
+				if(last[0] == vector && last[2] == start) {
+					last[2] = end;
+					return;
+				}
+			}
+			ranges.add(new int[] {vector, start, end});
+		}
+
+		private boolean dependsOn(Step earlier) {
+			return overlap(writes, earlier.writes) || overlap(reads, earlier.writes) || overlap(writes, earlier.reads);
+		}
+
+		private static boolean overlap(List<int[]> a, List<int[]> b) {
+			for(int[] x : a) {
+				for(int[] y : b) {
+					if(x[0] == y[0] && x[1] < y[2] && y[1] < x[2]) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		protected abstract void run(BigRational[] rhs) throws BTFMatrixErrorException, OperationNotSupportedException, InconsistentLinearSystemException, InternalErrorException;
+	}
+
+	/**
+	 * The steps, in the order of a serial solve
+	 */
+	private List<Step> steps = new ArrayList<Step>();
+
+	/**
+	 * Adds a step after all those already added, and links it to the steps it depends on
+	 * @param step
+	 */
+	public void add(Step step) {
+		for(Step earlier : steps) {
+			if(step.dependsOn(earlier)) {
+				earlier.successors.add(step);
+				step.predecessors++;
+			}
+		}
+		steps.add(step);
+	}
+
+	/**
+	 * @return The number of steps
+	 */
+	public int size() {
+		return steps.size();
+	}
+
+	/**
+	 * Runs all the steps. Without a pool they run serially, in the order in which they were added.
+	 * With a pool, each step starts as soon as the steps it depends on have finished.
+	 * @param rhs
+	 * @param pool The pool, or null
+	 */
+	public void run(final BigRational[] rhs, final ForkJoinPool pool) throws BTFMatrixErrorException, OperationNotSupportedException, InconsistentLinearSystemException, InternalErrorException {
+		if(pool == null) {
+			for(Step step : steps) {
+				step.run(rhs);
+			}
+			return;
+		}
+		for(Step step : steps) {
+			step.pending.set(step.predecessors);
+		}
+		final CountDownLatch done = new CountDownLatch(steps.size());
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		for(Step step : steps) {
+			if(step.predecessors == 0) {
+				submit(step, rhs, pool, done, failure);
+			}
+		}
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			throw new InternalErrorException("BTF solve interrupted.");
+		}
+		Throwable cause = failure.get();
+		if(cause == null) {
+			return;
+		}
+		if(cause instanceof BTFMatrixErrorException) throw (BTFMatrixErrorException) cause;
+		if(cause instanceof OperationNotSupportedException) throw (OperationNotSupportedException) cause;
+		if(cause instanceof InconsistentLinearSystemException) throw (InconsistentLinearSystemException) cause;
+		if(cause instanceof InternalErrorException) throw (InternalErrorException) cause;
+		if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+		throw new InternalErrorException("BTF solve failed: " + cause);
+	}
+
+	/**
+	 * Runs a step on the pool, then submits each successor whose dependencies are all complete.
+	 * Once a step has failed, the remaining steps are skipped.
+	 */
+	private static void submit(final Step step, final BigRational[] rhs, final ForkJoinPool pool, final CountDownLatch done, final AtomicReference<Throwable> failure) {
+		pool.execute(new Runnable() {
+			@Override
+			public void run() {
+				if(failure.get() == null) {
+					try {
+						step.run(rhs);
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+				for(Step successor : step.successors) {
+					if(successor.pending.decrementAndGet() == 0) {
+						submit(successor, rhs, pool, done, failure);
+					}
+				}
+				done.countDown();
+			}
+		});
+	}
+}
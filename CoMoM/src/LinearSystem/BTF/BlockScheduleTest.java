@@ -0,0 +1,210 @@
+package LinearSystem.BTF;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import DataStructures.BigRational;
+import Exceptions.BTFMatrixErrorException;
+
+public class BlockScheduleTest {
+
+	private ForkJoinPool pool;
+
+	/**
+	 * Names of the steps, in the order in which they finished
+	 */
+	private List<String> finished;
+
+	/**
+	 * A step that records when it starts and finishes. It may wait for a latch
+	 * while it runs, and check that another step had finished when it started.
+	 */
+	private class RecordingStep extends BlockSchedule.Step {
+
+		private final String name;
+		private final CountDownLatch started = new CountDownLatch(1);
+		private volatile boolean done;
+		private CountDownLatch waitFor;
+		private RecordingStep before;
+		private volatile boolean startedAfterBefore;
+
+		RecordingStep(String name) {
+			this.name = name;
+		}
+
+		@Override
+		protected void run(BigRational[] rhs) throws BTFMatrixErrorException {
+			startedAfterBefore = (before != null) && before.done;
+			started.countDown();
+			if(waitFor != null) {
+				try {
+					waitFor.await();
+				} catch (InterruptedException e) {
+					throw new BTFMatrixErrorException(name + " interrupted");
+				}
+			}
+			finished.add(name);
+			done = true;
+		}
+	}
+
+	@Before
+	public void setUp() {
+		pool = new ForkJoinPool(4);
+		finished = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Runs two steps with the given accesses on the pool. The first does not
+	 * finish until the second has started, which only happens if the schedule
+	 * runs them concurrently.
+	 */
+	private void assertIndependent(int[] first, int[] second) throws Exception {
+		RecordingStep a = new RecordingStep("first"), b = new RecordingStep("second");
+		a.waitFor = b.started;
+		finished.clear();
+		schedule(declare(a, first), declare(b, second)).run(new BigRational[0], pool);
+		assertEquals(2, finished.size());
+	}
+
+	/**
+	 * Runs two steps with the given accesses on a pool of one thread, where the
+	 * first holds the thread until the schedule has submitted every step that
+	 * has no dependencies. The second must not be among them, and must start
+	 * after the first has finished.
+	 */
+	private void assertDependent(int[] first, int[] second) throws Exception {
+		RecordingStep a = new RecordingStep("first"), b = new RecordingStep("second");
+		a.waitFor = new CountDownLatch(1);
+		b.before = a;
+		finished.clear();
+		final BlockSchedule schedule = schedule(declare(a, first), declare(b, second));
+		final ForkJoinPool single = new ForkJoinPool(1);
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		Thread runner = new Thread() {
+			@Override
+			public void run() {
+				try {
+					schedule.run(new BigRational[0], single);
+				} catch (Exception e) {
+					failure.set(e);
+				}
+			}
+		};
+		runner.start();
+		try {
+			a.started.await();
+			//The runner only waits once it has submitted the steps without dependencies
+			while(runner.getState() != Thread.State.WAITING) {
+				Thread.yield();
+			}
+			assertFalse(single.hasQueuedSubmissions());
+		} finally {
+			a.waitFor.countDown();
+			runner.join();
+			single.shutdown();
+		}
+		if(failure.get() != null) {
+			throw failure.get();
+		}
+		assertEquals(Arrays.asList("first", "second"), finished);
+		assertTrue(b.startedAfterBefore);
+	}
+
+	private static BlockSchedule schedule(BlockSchedule.Step first, BlockSchedule.Step second) {
+		BlockSchedule schedule = new BlockSchedule();
+		schedule.add(first);
+		schedule.add(second);
+		return schedule;
+	}
+
+	/**
+	 * @param accesses {read or write (0 or 1), vector, start, end}
+	 */
+	private static BlockSchedule.Step declare(BlockSchedule.Step step, int[] accesses) {
+		if(accesses[0] == 0) {
+			step.reads(accesses[1], accesses[2], accesses[3]);
+		} else {
+			step.writes(accesses[1], accesses[2], accesses[3]);
+		}
+		return step;
+	}
+
+	/**
+	 * A schedule that wrongly orders an independent pair never lets its first
+	 * step finish, so the timeout turns that hang into a failure.
+	 */
+	@Test(timeout = 10000)
+	public void testDependencies() throws Exception {
+		final int R = 0, W = 1;
+		//Read after write, write after read and write after write
+		assertDependent(new int[] {W, BlockSchedule.RHS, 0, 10}, new int[] {R, BlockSchedule.RHS, 9, 12});
+		assertDependent(new int[] {R, BlockSchedule.BASIS, 0, 10}, new int[] {W, BlockSchedule.BASIS, 5, 6});
+		assertDependent(new int[] {W, BlockSchedule.RHS, 3, 4}, new int[] {W, BlockSchedule.RHS, 0, 10});
+		//Reads never conflict, nor do adjacent ranges or ranges of different vectors
+		assertIndependent(new int[] {R, BlockSchedule.RHS, 0, 10}, new int[] {R, BlockSchedule.RHS, 0, 10});
+		assertIndependent(new int[] {W, BlockSchedule.RHS, 0, 10}, new int[] {W, BlockSchedule.RHS, 10, 20});
+		assertIndependent(new int[] {W, BlockSchedule.RHS, 0, 10}, new int[] {R, BlockSchedule.BASIS, 0, 10});
+		//Empty ranges access nothing
+		assertIndependent(new int[] {W, BlockSchedule.RHS, 5, 5}, new int[] {W, BlockSchedule.RHS, 0, 10});
+	}
+
+	/**
+	 * A step that depends on another only through a chain of steps must still
+	 * wait for it, and adjacent ranges declared one after the other are merged.
+	 */
+	@Test
+	public void testChain() throws Exception {
+		BlockSchedule schedule = new BlockSchedule();
+		schedule.add(new RecordingStep("a").writes(BlockSchedule.RHS, 0, 5).writes(BlockSchedule.RHS, 5, 10));
+		schedule.add(new RecordingStep("b").reads(BlockSchedule.RHS, 9, 10).writes(BlockSchedule.BASIS, 0, 3));
+		schedule.add(new RecordingStep("c").reads(BlockSchedule.BASIS, 2, 3).writes(BlockSchedule.RHS, 20, 30));
+		schedule.add(new RecordingStep("d").reads(BlockSchedule.RHS, 25, 26));
+		assertEquals(4, schedule.size());
+		schedule.run(new BigRational[0], pool);
+		assertEquals(4, finished.size());
+		assertEquals(0, finished.indexOf("a"));
+		assertTrue(finished.indexOf("b") < finished.indexOf("c"));
+		assertTrue(finished.indexOf("c") < finished.indexOf("d"));
+	}
+
+	@Test
+	public void testSerial() throws Exception {
+		BlockSchedule schedule = new BlockSchedule();
+		String[] names = {"a", "b", "c", "d"};
+		for(int i = 0; i < names.length; i++) {
+			schedule.add(new RecordingStep(names[i]).writes(BlockSchedule.RHS, 10 * i, 10 * i + 10));
+		}
+		schedule.run(new BigRational[0], null);
+		assertArrayEquals(names, finished.toArray());
+	}
+
+	@Test(expected = BTFMatrixErrorException.class)
+	public void testFailure() throws Exception {
+		BlockSchedule schedule = new BlockSchedule();
+		schedule.add(new BlockSchedule.Step() {
+			@Override
+			protected void run(BigRational[] rhs) throws BTFMatrixErrorException {
+				throw new BTFMatrixErrorException("failed");
+			}
+		}.writes(BlockSchedule.RHS, 0, 1));
+		schedule.add(new RecordingStep("after").reads(BlockSchedule.RHS, 0, 1));
+		schedule.run(new BigRational[0], pool);
+	}
+}
@@ -151,4 +151,10 @@ public abstract class ComponentBlock {
 	 * @throws InternalErrorException
 	 */
 	public abstract void solve(BigRational[] rhs) throws BTFMatrixErrorException, OperationNotSupportedException, InconsistentLinearSystemException, InternalErrorException;
+	
+	/**
+	 * Adds the steps of solve() to a schedule, in the order in which solve() performs them
+	 * @param schedule
+	 */
+	public abstract void schedule(BlockSchedule schedule);
 }
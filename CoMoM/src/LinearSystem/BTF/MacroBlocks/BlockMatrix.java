@@ -2,8 +2,10 @@ package LinearSystem.BTF.MacroBlocks;
 
 import Basis.CoMoMBasis;
 import DataStructures.BigRational;
+import DataStructures.BigRationalAccumulator;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.UndefinedMultiplyException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.Position;
 
 public class BlockMatrix {
@@ -153,19 +155,21 @@ public class BlockMatrix {
 
 	private BigRational multiplyBlockRow(BigRational[][] array, int index, int starting_col) throws UndefinedMultiplyException {
 		
-		BigRational result = BigRational.ZERO;
+		BigRationalAccumulator result = new BigRationalAccumulator();
+		BigRational[] new_values = basis.getNewValues();
 		int cols = array[0].length;
 		
 		for (int j = 0; j < cols; j++) {
 			if (!array[index][j].isZero()) {
-				if (basis.getNewValue(j + starting_col).isPositive()) {
-					result = result.add((array[index][j].multiply(basis.getNewValue(j + starting_col))));						
-				} else if (basis.getNewValue(j + starting_col).isUndefined()) { 
+				BigRational value = new_values[j + starting_col];
+				if (value.isPositive()) {
+					result.addProduct(array[index][j], value);						
+				} else if (value.isUndefined()) { 
 					throw new UndefinedMultiplyException();               	                 
 				}   
 			}
 		}
-		return result;
+		return result.toBigRational();
     }
 	
 	public void solve(BigRational[] rhs) throws BTFMatrixErrorException {
@@ -175,14 +179,45 @@ public class BlockMatrix {
 		int block_starting_row = 0;
 		
 		for (int i = 0; i < block_rows; i++) {  		
-			block_starting_row = i * rows_in_blocks;
-            for (int j = 0; j < block_cols; j++) {
-            	block_starting_col = j * cols_in_blocks;
-                block_solve(matrix[i][j], rhs, position.row + block_starting_row, position.col + block_starting_col);                
-            }
+			solveBlockRow(rhs, i);
 		}			
 	}
 	
+	/**
+	 * Solves the blocks in one row of blocks, which only update their own rows of the rhs
+	 * @param rhs
+	 * @param i The row of blocks
+	 */
+	private void solveBlockRow(BigRational[] rhs, int i) throws BTFMatrixErrorException {
+		int block_starting_row = i * rows_in_blocks;
+		for (int j = 0; j < block_cols; j++) {
+			int block_starting_col = j * cols_in_blocks;
+			block_solve(matrix[i][j], rhs, position.row + block_starting_row, position.col + block_starting_col);
+		}
+	}
+	
+	/**
+	 * Adds one step per row of blocks to a schedule
+	 * @param schedule
+	 */
+	public void schedule(BlockSchedule schedule) {
+		for (int i = 0; i < block_rows; i++) {
+			final int block_row = i;
+			int starting_row = position.row + i * rows_in_blocks;
+			BlockSchedule.Step step = new BlockSchedule.Step() {
+				@Override
+				protected void run(BigRational[] rhs) throws BTFMatrixErrorException {
+					if(cols + position.col > basis.getSize()) throw new BTFMatrixErrorException("Matrix exceeds end of vector when solving");
+					solveBlockRow(rhs, block_row);
+				}
+			};
+			step.reads(BlockSchedule.BASIS, position.col, position.col + block_cols * cols_in_blocks)
+				.reads(BlockSchedule.RHS, starting_row, starting_row + rows_in_blocks)
+				.writes(BlockSchedule.RHS, starting_row, starting_row + rows_in_blocks);
+			schedule.add(step);
+		}
+	}
+	
 	private void block_solve(BigRational[][] array, BigRational[] rhs, int starting_row, int starting_col) throws BTFMatrixErrorException {
 		
 		int rows = array.length;
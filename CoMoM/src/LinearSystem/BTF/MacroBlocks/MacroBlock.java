@@ -9,6 +9,7 @@ import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.InconsistentLinearSystemException;
 import Exceptions.InternalErrorException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.ComponentBlock;
 import LinearSystem.BTF.Position;
 import LinearSystem.BTF.MicroBlocks.MicroBlock;
@@ -224,7 +225,14 @@ public abstract class MacroBlock extends ComponentBlock{
 			micro_blocks[i].solve(rhs);
 		}
 	}
-
+	
+	@Override
+	public void schedule(BlockSchedule schedule) {
+		for(int i = 0; i < micro_blocks.length; i++) {
+			micro_blocks[i].schedule(schedule);
+		}
+	}
+	
 	@Override
 	public void printRow2(int row) {
 		//print all micro blocks
@@ -4,6 +4,7 @@ import Basis.CoMoMBasis;
 import DataStructures.BigRational;
 import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.ComponentBlock;
 import LinearSystem.BTF.Position;
 
@@ -65,6 +66,11 @@ public abstract class SecondaryMacroBlock extends ComponentBlock {
 	public void solve(BigRational[] rhs) throws BTFMatrixErrorException {
 		matrix.solve(rhs);		
 	}
+	
+	@Override
+	public void schedule(BlockSchedule schedule) {
+		matrix.schedule(schedule);
+	}
 
 	public SecondaryMacroBlock subBlock(int current_class, MacroBlock macro_block_1, MacroBlock macro_block_2) {
 		
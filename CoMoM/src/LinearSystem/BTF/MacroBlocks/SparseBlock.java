@@ -46,14 +46,16 @@ public class SparseBlock {
 	}
 	
 	public void multiply(BigRational[] result) {
+		 BigRational[] new_values = basis.getNewValues();
 		 for(int i = 0; i < rows; i++) {
-			 result[position.row + i] = result[position.row + i].add(basis.getNewValue(position.col + columns[i]).multiply(values[i]));
+			 result[position.row + i] = result[position.row + i].add(new_values[position.col + columns[i]].multiply(values[i]));
 		 }
 	} 
 
 	public void solve(BigRational[] rhs) {
+		BigRational[] new_values = basis.getNewValues();
 		for(int i = 0; i < rows; i++) {
-			 rhs[position.row + i] = rhs[position.row + i].add((basis.getNewValue(position.col + columns[i]).multiply(values[i])).negate());
+			 rhs[position.row + i] = rhs[position.row + i].add((new_values[position.col + columns[i]].multiply(values[i])).negate());
 		} 		
 	}
 
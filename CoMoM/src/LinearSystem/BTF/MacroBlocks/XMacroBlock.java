@@ -1,10 +1,14 @@
 package LinearSystem.BTF.MacroBlocks;
 
+import java.util.Iterator;
+import java.util.List;
+
 import Basis.CoMoMBasis;
 import DataStructures.QNModel;
 import Exceptions.InconsistentLinearSystemException;
 import Exceptions.InternalErrorException;
 import LinearSystem.BTF.Position;
+import LinearSystem.BTF.MicroBlocks.LUP_Decomposition;
 import LinearSystem.BTF.MicroBlocks.MicroBlock;
 import LinearSystem.BTF.MicroBlocks.XMicroBlock;
 
@@ -30,6 +34,21 @@ public class XMacroBlock extends MacroBlock {
 		}
 	}
 	
+	public void collectLUP(List<LUP_Decomposition> factors) {
+		for(int i = 0; i < micro_blocks.length; i++) {
+			factors.add(((XMicroBlock) micro_blocks[i]).getLUP());
+		}
+	}
+	
+	public void attachLUP(Iterator<LUP_Decomposition> factors) throws InconsistentLinearSystemException {
+		for(int i = 0; i < micro_blocks.length; i++) {
+			if(!factors.hasNext()) {
+				throw new InconsistentLinearSystemException("Too few LUP decompositions for the X block");
+			}
+			((XMicroBlock) micro_blocks[i]).attachLUP(factors.next());
+		}
+	}
+	
 	@Override
 	protected MicroBlock newMicroBlock(Position block_position, int h) throws InconsistentLinearSystemException, InternalErrorException {
 		return new XMicroBlock(qnm, basis, block_position, h);
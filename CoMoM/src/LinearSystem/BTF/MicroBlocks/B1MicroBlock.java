@@ -7,6 +7,7 @@ import DataStructures.PopulationChangeVector;
 import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.InternalErrorException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.Position;
 
 public class B1MicroBlock extends MicroBlock {
@@ -115,4 +116,10 @@ public class B1MicroBlock extends MicroBlock {
 			rhs[position.row + i] = multiplyRow(i);			
 		}		
 	}
+	
+	@Override
+	protected void declareAccesses(BlockSchedule.Step step) {
+		//Only old basis values are read
+		step.writes(BlockSchedule.RHS, position.row, position.row + size.row);
+	}
 }
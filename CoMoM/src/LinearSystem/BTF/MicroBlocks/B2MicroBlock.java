@@ -3,10 +3,12 @@ package LinearSystem.BTF.MicroBlocks;
 import Utilities.MiscFunctions;
 import Basis.CoMoMBasis;
 import DataStructures.BigRational;
+import DataStructures.BigRationalAccumulator;
 import DataStructures.PopulationChangeVector;
 import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.InternalErrorException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.Position;
 
 public class B2MicroBlock extends MicroBlock {
@@ -95,30 +97,31 @@ public class B2MicroBlock extends MicroBlock {
 
 	}
 	
-	private BigRational multiplyRow(int index) {
+	private BigRational multiplyRow(int index, BigRational[] old_values, int number_of_queue_constants) {
 		
-		int number_of_queue_constants = MiscFunctions.binomialCoefficient(qnm.M + qnm.R - 1 , qnm.M) * qnm.M;
-		
-		BigRational result = BigRational.ZERO;
+		BigRationalAccumulator result = new BigRationalAccumulator();
 		
 		for(int k = 1; k <= qnm.M; k++) {
-			result = result.
-					add((basis.getOldValue(((position.row + index - number_of_queue_constants) * qnm.M) + k - 1).
-							multiply(qnm.getDemandAsBigInteger(k - 1, current_class - 1))));
+			result.addProduct(old_values[((position.row + index - number_of_queue_constants) * qnm.M) + k - 1],
+					qnm.getDemandAsBigRational(k - 1, current_class - 1));
 		}
-		result = result.
-				add((basis.getOldValue(position.row + index)).
-					multiply(qnm.getDelayAsBigRational(current_class - 1)));
+		result.addProduct(old_values[position.row + index], qnm.getDelayAsBigRational(current_class - 1));
 		
-		return result;
+		return result.toBigRational();
+	}
+	
+	private int numberOfQueueConstants() {
+		return MiscFunctions.binomialCoefficient(qnm.M + qnm.R - 1 , qnm.M) * qnm.M;
 	}
 	
 	@Override
 	public void multiply(BigRational[] result)
 			throws BTFMatrixErrorException {
 		
+		BigRational[] old_values = basis.getOldValues();
+		int number_of_queue_constants = numberOfQueueConstants();
 		for(int i = 0; i < size.row; i++) {
-			result[position.row + i] = multiplyRow(i);
+			result[position.row + i] = multiplyRow(i, old_values, number_of_queue_constants);
 		}
 	}
 	
@@ -126,15 +129,23 @@ public class B2MicroBlock extends MicroBlock {
 	public void solve(BigRational[] rhs) {
 		
 		BigRational value;
+		BigRational[] old_values = basis.getOldValues();
+		int number_of_queue_constants = numberOfQueueConstants();
 		
 		for(int i = 0; i < size.row; i++) {
 			
-			value = multiplyRow(i);
+			value = multiplyRow(i, old_values, number_of_queue_constants);
 			
 			//Divide by N_r in A
-			value = value.divide(new BigRational(current_class_population));
+			value = value.divide(BigRational.valueOf(current_class_population));
 			basis.setValue(value, position.row + i);
 		
 		}		
 	}
+	
+	@Override
+	protected void declareAccesses(BlockSchedule.Step step) {
+		//Only old basis values are read
+		step.writes(BlockSchedule.BASIS, position.row, position.row + size.row);
+	}
 }
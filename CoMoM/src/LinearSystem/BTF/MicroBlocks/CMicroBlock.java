@@ -7,6 +7,7 @@ import DataStructures.PopulationChangeVector;
 import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.InternalErrorException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.Position;
 
 public class CMicroBlock extends MicroBlock {
@@ -91,7 +92,7 @@ public class CMicroBlock extends MicroBlock {
 	
 	
 	private BigRational carryForwardValue(int index) {
-		return basis.getOldValue(array[index][1]).copy();		
+		return basis.getOldValue(array[index][1]);		
 	}
 	
 	@Override
@@ -125,5 +126,12 @@ public class CMicroBlock extends MicroBlock {
 			}
 		}
 	}
-
+	
+	@Override
+	protected void declareAccesses(BlockSchedule.Step step) {
+		//Only old basis values are read
+		for(int i = 0; i < size.row; i++) {
+			step.writes(BlockSchedule.BASIS, array[i][0], array[i][0] + 1);
+		}
+	}
 }
@@ -1,34 +1,37 @@
 package LinearSystem.BTF.MicroBlocks;
 
-import Utilities.MiscFunctions;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Arrays;
+
 import Basis.CoMoMBasis;
 import DataStructures.BigRational;
 import Exceptions.InconsistentLinearSystemException;
 import LinearSystem.BTF.Position;
 
 /**
- * LUP Decomposition algorithm based on pseudocode found in Cormen.
+ * Fraction-free LUP Decomposition (Bareiss elimination).
+ * The rows of the matrix are first scaled to integers, and L and U are stored
+ * as sparse BigInteger factors together with a row permutation vector, so that
+ * a decomposition is compact and can be serialised, and cached, once computed.
  * @author Jack Bradshaw 
  */
-public class LUP_Decomposition {
+public class LUP_Decomposition implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
 	
 	/**
 	 * Basis for the model
 	 */
-	private CoMoMBasis basis;
+	private transient CoMoMBasis basis;
 	
 	/**
 	 * Starting position of the matrix
 	 */
-	private Position position;
+	private transient Position position;
 	
 	/**
-	 * Decomposed Matrix
-	 */
-	private BigRational[][] A_prime;
-	
-	/**
-	 * Permutation P
+	 * Permutation P: P[k] is the row of the matrix used as the k-th pivot row
 	 */
 	private int[] P;
 	
@@ -37,34 +40,94 @@ public class LUP_Decomposition {
 	 */
 	private int size;
 	
+	/**
+	 * Row i of the matrix is multiplied by row_scale[i], the least common multiple
+	 * of the denominators of its elements, to make it integer
+	 */
+	private BigInteger[] row_scale;
+	
+	/**
+	 * pivot[k] is the k-th pivot of the fraction-free elimination, so pivot[size - 1]
+	 * is the determinant of the scaled matrix, up to its sign
+	 */
+	private BigInteger[] pivot;
+	
+	/**
+	 * Non-zero elements of row k of U beyond the diagonal: U_cols[k] holds their
+	 * columns and U_vals[k] their values
+	 */
+	private int[][] U_cols;
+	private BigInteger[][] U_vals;
+	
+	/**
+	 * Non-zero elements of column k of L below the diagonal: L_rows[k] holds the
+	 * rows of the matrix that they eliminate and L_vals[k] their values
+	 */
+	private int[][] L_rows;
+	private BigInteger[][] L_vals;
+	
 	/**
 	 * 
 	 * @param basis
 	 * @param position
 	 * @param A
-	 * @param in_place true if the Decomposition should happen in place
+	 * @param in_place no longer has any effect, as A is never overwritten
 	 * @throws InconsistentLinearSystemException
 	 */
 	public LUP_Decomposition(CoMoMBasis basis, Position position, BigRational[][] A, boolean in_place) throws InconsistentLinearSystemException {
 		
-		//store basis
-		this.basis = basis;
-		
-		//store the position of the matrix
-		this.position = position;
-		
 		//store size of matrix A
 		size = A.length;
 		
-		if(in_place) {
-			A_prime = A;
-		} else {
-			//A_prime is a copy of A, where decomposition will be performed in place
-			A_prime = new BigRational[size][size];
-			for(int i = 0; i < size; i++) {
-				for(int j = 0; j < size; j ++) {
-					A_prime[i][j] = A[i][j].copy(); //TODO copy()?
-				}
+		//Compute the packed decomposition
+		decompose(A);
+		
+		attach(basis, position, A);
+	}
+	
+	/**
+	 * Attaches the decomposition to a basis and a position, after it has been
+	 * computed or read back from a cache.
+	 * @param basis
+	 * @param position
+	 * @param A the decomposed matrix
+	 * @throws InconsistentLinearSystemException if A is not the size of the decomposition
+	 */
+	public void attach(CoMoMBasis basis, Position position, BigRational[][] A) throws InconsistentLinearSystemException {
+		if(A.length != size) {
+			throw new InconsistentLinearSystemException("LUP Decomposition does not match the matrix");
+		}
+		this.basis = basis;
+		this.position = position;
+	}
+	
+	/**
+	 * Returns the dimension of the decomposed matrix
+	 * @return size
+	 */
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * Computes the fraction-free decomposition of A, leaving A unchanged.
+	 * The pivot of each column is the non-zero element of least magnitude
+	 * among the remaining rows, which keeps the factors small.
+	 * @param A
+	 * @throws InconsistentLinearSystemException If matrix is singular
+	 */
+	private void decompose(BigRational[][] A) throws InconsistentLinearSystemException {
+		//Scale the rows of A to integers in a working matrix
+		BigInteger[][] W = new BigInteger[size][size];
+		row_scale = new BigInteger[size];
+		for(int i = 0; i < size; i++) {
+			BigInteger L = BigInteger.ONE;
+			for(int j = 0; j < size; j++) {
+				L = lcm(L, A[i][j].getDenominator());
+			}
+			row_scale[i] = L;
+			for(int j = 0; j < size; j++) {
+				W[i][j] = A[i][j].getNumerator().multiply(L.divide(A[i][j].getDenominator()));
 			}
 		}
 		
@@ -73,99 +136,157 @@ public class LUP_Decomposition {
 		for(int i = 0; i < size; i++) {
 			P[i] = i;
 		}
-			
-		//Compute the in place decomposition
-		decompose();
-		
-		//MiscFunctions.printMatrix(A_prime);
-		//MiscFunctions.printMatrix(P);
-	}
-	
-	/**
-	 * Computes the LU decomposition of A in place in A_prime
-	 * @throws InconsistentLinearSystemException If matrix is singular
-	 */
-	private void decompose() throws InconsistentLinearSystemException {
-		System.out.println("A_prime: ");
-		MiscFunctions.printMatrix(A_prime);
-		BigRational p;
-		BigRational abs_A;
-		int k_prime = -1;
+		pivot = new BigInteger[size];
+		U_cols = new int[size][];
+		U_vals = new BigInteger[size][];
+		L_rows = new int[size][];
+		L_vals = new BigInteger[size][];
 		
+		int[] cols = new int[size];
+		BigInteger[] vals = new BigInteger[size];
+		BigInteger previous = BigInteger.ONE;
 		for(int k = 0; k < size; k++) {
-			p = BigRational.ZERO;
-			for(int i = k; i < size; i++) {
-				abs_A = A_prime[i][k].abs();
-				if(abs_A.greaterThan(p)) {
-					p = abs_A;
-					k_prime = i;
+			int k_prime = -1;
+			for(int t = k; t < size; t++) {
+				BigInteger a = W[P[t]][k];
+				if(a.signum() != 0 && (k_prime < 0 || a.abs().compareTo(W[P[k_prime]][k].abs()) < 0)) {
+					k_prime = t;
 				}
 			}
-			if( p.isZero()) {
+			if(k_prime < 0) {
 				throw new InconsistentLinearSystemException("LUP Decomposition failed: Singular Matrix");
 			}
-			P_exchange(k, k_prime);
-			for(int i = 0; i < size; i++) {
-				A_prime_exchange(k, k_prime, i);
+			int temp = P[k];
+			P[k] = P[k_prime];
+			P[k_prime] = temp;
+			
+			BigInteger[] pivot_row = W[P[k]];
+			BigInteger p = pivot_row[k];
+			pivot[k] = p;
+			
+			int n = 0;
+			for(int j = k + 1; j < size; j++) {
+				if(pivot_row[j].signum() != 0) {
+					cols[n] = j;
+					vals[n++] = pivot_row[j];
+				}
 			}
-			for(int i = k + 1; i < size; i++) {
-				A_prime[i][k] = A_prime[i][k].divide(A_prime[k][k]);
+			U_cols[k] = Arrays.copyOf(cols, n);
+			U_vals[k] = Arrays.copyOf(vals, n);
+			
+			n = 0;
+			for(int t = k + 1; t < size; t++) {
+				int i = P[t];
+				BigInteger l = W[i][k];
+				if(l.signum() != 0) {
+					cols[n] = i;
+					vals[n++] = l;
+				}
+				if(l.signum() == 0 && p.equals(previous)) {
+					continue; //row unchanged
+				}
 				for(int j = k + 1; j < size; j++) {
-					A_prime[i][j] = A_prime[i][j].subtract(A_prime[i][k].multiply(A_prime[k][j]));
+					BigInteger a = W[i][j].multiply(p);
+					if(l.signum() != 0 && pivot_row[j].signum() != 0) {
+						a = a.subtract(l.multiply(pivot_row[j]));
+					}
+					W[i][j] = a.divide(previous);
 				}
 			}
+			L_rows[k] = Arrays.copyOf(cols, n);
+			L_vals[k] = Arrays.copyOf(vals, n);
+			
+			previous = p;
 		}
 	}
 	
 	/**
-	 * swaps elements of permutation matrix P
-	 * @param i position of first element
-	 * @param j position of second element
+	 * Solve method called by XMicroBlock, uses basis values and temporary basis rhs.
+	 * @param rhs
 	 */
-	private void P_exchange(int i, int j) {
-		int temp = P[i];
-		P[i] = P[j];
-		P[j] = temp;
+	public void solve(BigRational[] rhs) {
+		BigRational[] b = new BigRational[size];
+		for(int i = 0; i < size; i++) {
+			b[i] = rhs[position.row + i];
+		}
+		BigRational[] x = solveExactly(b);
+		basis.setValues(x, 0, position.row, size);
 	}
 	
 	/**
-	 * Swaps element at (row_1,  col) with element at (row_2, col) in matrix A_prime
-	 * @param row_1
-	 * @param row_2
-	 * @param col
+	 * Solves A x = b. With L the least common multiple of the denominators of b,
+	 * the integer system (S A) z = D L S b is solved for z = D L x, where S scales
+	 * the rows of A and D is the last pivot, so that every division is exact.
+	 * @param b
+	 * @return x
 	 */
-	private void A_prime_exchange(int row_1, int row_2, int col) {
-		BigRational temp = A_prime[row_1][col];
-		A_prime[row_1][col] = A_prime[row_2][col];
-		A_prime[row_2][col] = temp;		
-	}	
+	private BigRational[] solveExactly(BigRational[] b) {
+		BigInteger L = BigInteger.ONE;
+		for(int i = 0; i < size; i++) {
+			L = lcm(L, b[i].getDenominator());
+		}
+		BigInteger[] c = new BigInteger[size];
+		for(int i = 0; i < size; i++) {
+			c[i] = b[i].getNumerator().multiply(L.divide(b[i].getDenominator())).multiply(row_scale[i]);
+		}
 		
-	/**
-	 * Solve method called by XMicroBlock, uses basis values and temporary basis rhs
-	 * @param rhs
-	 */
-	public void solve(BigRational[] rhs) {
-		//BigRational[] x = new BigRational[size];
-		BigRational[] y = new BigRational[size];
+		//Forward elimination: c[P[t]] = (p_k c[P[t]] - l_tk c[P[k]]) / p_(k-1)
+		BigInteger previous = BigInteger.ONE;
+		for(int k = 0; k < size; k++) {
+			BigInteger p = pivot[k];
+			if(!p.equals(BigInteger.ONE)) {
+				for(int t = k + 1; t < size; t++) {
+					c[P[t]] = c[P[t]].multiply(p);
+				}
+			}
+			BigInteger c_k = c[P[k]];
+			if(c_k.signum() != 0) {
+				for(int e = 0; e < L_rows[k].length; e++) {
+					int i = L_rows[k][e];
+					c[i] = c[i].subtract(L_vals[k][e].multiply(c_k));
+				}
+			}
+			if(!previous.equals(BigInteger.ONE)) {
+				for(int t = k + 1; t < size; t++) {
+					c[P[t]] = c[P[t]].divide(previous);
+				}
+			}
+			previous = p;
+		}
 		
-		//Forward substitution
-		for(int i = 0; i < size; i++) {
-			BigRational sum = BigRational.ZERO;
-			for(int j = 0; j <= i - 1; j++) {
-				sum = sum.add(A_prime[i][j].multiply(y[j]));
+		//Backward substitution: z_k = (D c[P[k]] - sum_j u_kj z_j) / p_k
+		BigInteger D = pivot[size - 1];
+		BigInteger[] z = new BigInteger[size];
+		for(int k = size - 1; k >= 0; k--) {
+			BigInteger sum = D.multiply(c[P[k]]);
+			for(int e = 0; e < U_cols[k].length; e++) {
+				sum = sum.subtract(U_vals[k][e].multiply(z[U_cols[k][e]]));
 			}
-			y[i] = rhs[position.row + P[i]].subtract(sum);
+			z[k] = sum.divide(pivot[k]);
 		}
 		
-		//Backward substitution
-		for(int i = size - 1; i >= 0; i--) {
-			BigRational sum = BigRational.ZERO;
-			for(int j = i + 1; j < size; j++) {
-				sum = sum.add(A_prime[i][j].multiply(basis.getNewValue(position.row + j)));
+		BigInteger scale = D.multiply(L);
+		if(scale.signum() < 0) {
+			scale = scale.negate();
+			for(int k = 0; k < size; k++) {
+				z[k] = z[k].negate();
 			}
-			basis.setValue(y[i].subtract(sum), position.row + i);
-			basis.setValue(basis.getNewValue(position.row + i).divide(A_prime[i][i]), position.row + i);
-		}		
+		}
+		BigRational[] x = new BigRational[size];
+		for(int k = 0; k < size; k++) {
+			x[k] = new BigRational(z[k], scale);
+		}
+		return x;
+	}
+	
+	/**
+	 * Returns the least common multiple of two positive integers
+	 */
+	private static BigInteger lcm(BigInteger a, BigInteger b) {
+		if(b.equals(BigInteger.ONE) || a.equals(b)) {
+			return a;
+		}
+		return a.divide(a.gcd(b)).multiply(b);
 	}
 	
 	/**
@@ -175,27 +296,6 @@ public class LUP_Decomposition {
 	 * @return x
 	 */
 	public BigRational[] test_solve(BigRational[] b) {
-		BigRational[] x = new BigRational[size];
-		BigRational[] y = new BigRational[size];
-		
-		//Forward substitution
-		for(int i = 0; i < size; i++) {
-			BigRational sum = BigRational.ZERO;
-			for(int j = 0; j <= i - 1; j++) {
-				sum = sum.add(A_prime[i][j].multiply(y[j]));
-			}
-			y[i] = b[P[i]].subtract(sum);
-		}
-		
-		//Backward substitution
-		for(int i = size - 1; i >= 0; i--) {
-			BigRational sum = BigRational.ZERO;
-			for(int j = i + 1; j < size; j++) {
-				sum = sum.add(A_prime[i][j].multiply(x[j]));
-			}
-			x[i] = y[i].subtract(sum);
-			x[i] = x[i].divide(A_prime[i][i]);
-		}
-		return x;
+		return solveExactly(b);
 	}
 }
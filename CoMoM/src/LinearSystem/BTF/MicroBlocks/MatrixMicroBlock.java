@@ -2,6 +2,7 @@ package LinearSystem.BTF.MicroBlocks;
 
 import Basis.CoMoMBasis;
 import DataStructures.BigRational;
+import DataStructures.BigRationalAccumulator;
 import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.InternalErrorException;
@@ -45,18 +46,20 @@ public abstract class MatrixMicroBlock extends MicroBlock {
 	}
 	protected BigRational multiplyRow(int index) throws UndefinedMultiplyException {
 		
-		BigRational result = BigRational.ZERO;
+		BigRationalAccumulator result = new BigRationalAccumulator();
+		BigRational[] new_values = basis.getNewValues();
 		
 		for (int j = 0; j < size.col; j++) {
 			if (!array[index][j].isZero()) {
-				if (basis.getNewValue(j + position.col).isPositive()) {
-					result = result.add((array[index][j].multiply(basis.getNewValue(j + position.col))));						
-				} else if (basis.getNewValue(j + position.col).isUndefined()) { 
+				BigRational value = new_values[j + position.col];
+				if (value.isPositive()) {
+					result.addProduct(array[index][j], value);						
+				} else if (value.isUndefined()) { 
 					throw new UndefinedMultiplyException();               	                 
                 }
             }
 		}
-		return result;
+		return result.toBigRational();
 	}
 	
 	@Override
@@ -1,8 +1,14 @@
 package LinearSystem.BTF.MicroBlocks;
 
+import javax.naming.OperationNotSupportedException;
+
 import Basis.CoMoMBasis;
+import DataStructures.BigRational;
 import DataStructures.QNModel;
+import Exceptions.BTFMatrixErrorException;
+import Exceptions.InconsistentLinearSystemException;
 import Exceptions.InternalErrorException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.ComponentBlock;
 import LinearSystem.BTF.Position;
 import LinearSystem.BTF.MacroBlocks.MacroBlock;
@@ -87,5 +93,23 @@ public abstract class MicroBlock extends ComponentBlock {
 	 * Computes the dimensions of block and stores them in the member field <code>size</code>
 	 */
 	protected abstract void computeDimensions();
+	
+	@Override
+	public void schedule(BlockSchedule schedule) {
+		BlockSchedule.Step step = new BlockSchedule.Step() {
+			@Override
+			protected void run(BigRational[] rhs) throws BTFMatrixErrorException, OperationNotSupportedException, InconsistentLinearSystemException, InternalErrorException {
+				solve(rhs);
+			}
+		};
+		declareAccesses(step);
+		schedule.add(step);
+	}
+	
+	/**
+	 * Declares the ranges of the rhs and of the new basis values read and written by solve()
+	 * @param step
+	 */
+	protected abstract void declareAccesses(BlockSchedule.Step step);
 
 }
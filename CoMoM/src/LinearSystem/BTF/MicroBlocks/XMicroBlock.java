@@ -14,6 +14,7 @@ import DataStructures.Tuple;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.InconsistentLinearSystemException;
 import Exceptions.InternalErrorException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.Position;
 import LinearSystemSolver.SimpleSolver;
 import LinearSystemSolver.Solver;
@@ -41,11 +42,21 @@ public class XMicroBlock extends MatrixMicroBlock {
 	}
 	
 	public void LUPDecompose(boolean in_place) throws InconsistentLinearSystemException {
-		if(in_place) {
-			LUP = new LUP_Decomposition(basis, position, array, true);
-		}else{
-			LUP = new LUP_Decomposition(basis, position, array, false);
-		}
+		LUP = new LUP_Decomposition(basis, position, array, in_place);
+	}
+	
+	public LUP_Decomposition getLUP() {
+		return LUP;
+	}
+	
+	/**
+	 * Uses a decomposition computed earlier, for instance read from a cache, instead of decomposing the block
+	 * @param LUP
+	 * @throws InconsistentLinearSystemException if the decomposition does not match the block
+	 */
+	public void attachLUP(LUP_Decomposition LUP) throws InconsistentLinearSystemException {
+		LUP.attach(basis, position, array);
+		this.LUP = LUP;
 	}
 
 	@Override
@@ -135,9 +146,7 @@ public class XMicroBlock extends MatrixMicroBlock {
 		System.out.println("result");
 		MiscFunctions.printMatrix(result);
 		//copy result to basis
-		for(int i = 0; i < size.row; i++) {
-			basis.setValue(result[i], position.row + i);
-		}
+		basis.setValues(result, 0, position.row, size.row);
 		
 	}
 	
@@ -145,6 +154,12 @@ public class XMicroBlock extends MatrixMicroBlock {
 	public void solve(BigRational[] rhs) {
 		LUP.solve(rhs);
 	}
+	
+	@Override
+	protected void declareAccesses(BlockSchedule.Step step) {
+		step.reads(BlockSchedule.RHS, position.row, position.row + size.row)
+			.writes(BlockSchedule.BASIS, position.row, position.row + size.row);
+	}
 
 
 }
@@ -8,6 +8,7 @@ import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.InternalErrorException;
 import Exceptions.UndefinedMultiplyException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.Position;
 
 public class YMicroBlock extends MatrixMicroBlock {
@@ -96,6 +97,11 @@ public class YMicroBlock extends MatrixMicroBlock {
 			}
 		}
 	}
-		
-
+	
+	@Override
+	protected void declareAccesses(BlockSchedule.Step step) {
+		step.reads(BlockSchedule.BASIS, position.col, position.col + size.col)
+			.reads(BlockSchedule.RHS, position.row, position.row + size.row)
+			.writes(BlockSchedule.RHS, position.row, position.row + size.row);
+	}
 }
@@ -9,6 +9,7 @@ import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.InconsistentLinearSystemException;
 import Exceptions.InternalErrorException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.Position;
 import LinearSystem.BTF.MacroBlocks.MacroBlock;
 import LinearSystem.BTF.MacroBlocks.SecondaryMacroBlock;
@@ -164,4 +165,14 @@ public abstract class ATopLevelBlock extends TopLevelBlock {
 			macro_blocks[i].solve(rhs);
 		}
 	}
+	
+	@Override
+	public void schedule(BlockSchedule schedule) {
+		//Same order as solve()
+		macro_blocks[macro_blocks.length - 1].schedule(schedule);
+		for(int i =  sec_macro_blocks.length - 1; i >= 0; i--) {
+			sec_macro_blocks[i].schedule(schedule);
+			macro_blocks[i].schedule(schedule);
+		}
+	}
 }
@@ -9,6 +9,7 @@ import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
 import Exceptions.InconsistentLinearSystemException;
 import Exceptions.InternalErrorException;
+import LinearSystem.BTF.BlockSchedule;
 import LinearSystem.BTF.ComponentBlock;
 import LinearSystem.BTF.Position;
 import LinearSystem.BTF.MacroBlocks.MacroBlock;
@@ -204,6 +205,13 @@ public abstract class TopLevelBlock extends ComponentBlock {
 		}
 	}
 	
+	@Override
+	public void schedule(BlockSchedule schedule) {
+		for(int i = 0; i < macro_blocks.length; i++) {
+			macro_blocks[i].schedule(schedule);
+		}
+	}
+	
 	@Override
 	public void printRow2(int row) {
 		for(int i = 0; i < macro_blocks.length; i++) {
@@ -1,5 +1,9 @@
 package LinearSystem.BTF.TopLevelBlocks;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 import Basis.CoMoMBasis;
 import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
@@ -9,6 +13,7 @@ import LinearSystem.BTF.Position;
 import LinearSystem.BTF.MacroBlocks.MacroBlock;
 import LinearSystem.BTF.MacroBlocks.XMacroBlock;
 import LinearSystem.BTF.MacroBlocks.XSecondaryMacroBlock;
+import LinearSystem.BTF.MicroBlocks.LUP_Decomposition;
 
 public class XBlock extends ATopLevelBlock {
 
@@ -49,6 +54,33 @@ public class XBlock extends ATopLevelBlock {
 		}
 	}
 	
+	/**
+	 * Returns the decompositions of all the micro blocks, in order
+	 * @return the decompositions
+	 */
+	public List<LUP_Decomposition> getLUP() {
+		List<LUP_Decomposition> factors = new ArrayList<LUP_Decomposition>();
+		for(int i = 0; i < macro_blocks.length; i++) {
+			((XMacroBlock) macro_blocks[i]).collectLUP(factors);
+		}
+		return factors;
+	}
+	
+	/**
+	 * Uses decompositions returned by getLUP() for the same matrix instead of decomposing the micro blocks
+	 * @param factors
+	 * @throws InconsistentLinearSystemException if the decompositions do not match the micro blocks
+	 */
+	public void attachLUP(List<LUP_Decomposition> factors) throws InconsistentLinearSystemException {
+		Iterator<LUP_Decomposition> iterator = factors.iterator();
+		for(int i = 0; i < macro_blocks.length; i++) {
+			((XMacroBlock) macro_blocks[i]).attachLUP(iterator);
+		}
+		if(iterator.hasNext()) {
+			throw new InconsistentLinearSystemException("Too many LUP decompositions for the X block");
+		}
+	}
+	
 	@Override
 	public void printRow2(int row) {
 		super.printRow2(row);		
@@ -28,6 +28,14 @@ public abstract class LinearSystem {
 	
 	public abstract void update(int current_class_population ); 
 	
+	/**
+	 * Called when jobs have been added to the target population of the current class,
+	 * before the recursion continues with it. Systems that depend on the target population
+	 * update themselves here.
+	 */
+	public void extendPopulation() throws InternalErrorException, OperationNotSupportedException {
+	}
+	
 	public abstract void solve() throws OperationNotSupportedException, InconsistentLinearSystemException, InternalErrorException, BTFMatrixErrorException;
 	
 	public final void initialiseForClass(PopulationVector current_N, int current_class) 
@@ -0,0 +1,60 @@
+package LinearSystem.Simple.Matrix;
+
+import Basis.CoMoMBasis;
+import DataStructures.BigRational;
+import DataStructures.CompressedRowMatrix;
+import Utilities.MiscFunctions;
+
+/**
+ * Matrix assembled directly in compressed row form, for the SparseSolver.
+ * Rows must be written in non-decreasing order, as generateAB does.
+ */
+public class SparseMatrix extends Matrix {
+
+	private CompressedRowMatrix rows;
+
+	public SparseMatrix(CoMoMBasis basis, int size) {
+		super(basis, size);
+		rows = new CompressedRowMatrix(size);
+	}
+
+	/**
+	 * @return the underlying compressed row matrix
+	 */
+	public CompressedRowMatrix getRows() {
+		return rows;
+	}
+
+	/**
+	 * Builds a dense copy, which needs O(size^2) memory
+	 */
+	@Override
+	public BigRational[][] getArray() {
+		return rows.toArray();
+	}
+
+	@Override
+	public void write(int row, int col, BigRational v) {
+		rows.write(row, col, v);
+	}
+
+	@Override
+	public BigRational get(int row, int col) {
+		return rows.get(row, col);
+	}
+
+	@Override
+	public BigRational[] multiply() {
+		return rows.multiply(basis.getOldValues());
+	}
+
+	@Override
+	protected void fillWithZeros() {
+		rows = new CompressedRowMatrix(size);
+	}
+
+	@Override
+	public void print() {
+		MiscFunctions.dotprintMatrix(rows.toArray());
+	}
+}
@@ -3,6 +3,7 @@ package LinearSystem.Simple.Matrix;
 import Utilities.MiscFunctions;
 import Basis.CoMoMBasis;
 import DataStructures.BigRational;
+import DataStructures.BigRationalAccumulator;
 import DataStructures.QNModel;
 
 public class StandardMatrix extends Matrix {
@@ -40,19 +41,24 @@ public class StandardMatrix extends Matrix {
 
         if (columnsA == rowsV) {
             BigRational[] c = new BigRational[rowsA];
+            BigRationalAccumulator sum = new BigRationalAccumulator();
+            BigRational[] old_values = basis.getOldValues();
             for (int i = 0; i < rowsA; i++) {
-                c[i] = BigRational.ZERO;
+                sum.reset();
                 for (int j = 0; j < columnsA; j++) {
                     if (!A[i][j].isZero()) {
-                        if (basis.getOldValue(j).isPositive()) {
-                            c[i] = c[i].add(A[i][j].multiply(basis.getOldValue(j)));
-                        } else if (basis.getOldValue(j).isUndefined()) {
+                        if (old_values[j].isPositive()) {
+                            sum.addProduct(A[i][j], old_values[j]);
+                        } else if (old_values[j].isUndefined()) {
                             c[i] = new BigRational(-1);
                             c[i].makeUndefined();
                             break;
                         }
                     }
                 }
+                if (c[i] == null) {
+                    c[i] = sum.toBigRational();
+                }
             }
             return c;
         } else {
@@ -4,9 +4,8 @@ import java.math.BigInteger;
 
 import javax.naming.OperationNotSupportedException;
 
-import Utilities.MiscFunctions;
-
 import Basis.BTFCoMoMBasis;
+import Basis.BasisEnumeration;
 import Basis.CoMoMBasis;
 import Basis.CoMoMReorderingBasis;
 import DataStructures.BigRational;
@@ -17,14 +16,17 @@ import Exceptions.BTFMatrixErrorException;
 import Exceptions.InconsistentLinearSystemException;
 import Exceptions.InternalErrorException;
 import LinearSystem.LinearSystem;
+import LinearSystem.Simple.Matrix.Matrix;
+import LinearSystem.Simple.Matrix.SparseMatrix;
 import LinearSystem.Simple.Matrix.StandardMatrix;
 import LinearSystemSolver.ModularSolver;
-import LinearSystemSolver.SimpleSolver;
+import LinearSystemSolver.FactorisedSolver;
 import LinearSystemSolver.Solver;
+import LinearSystemSolver.SparseSolver;
 
 public class SimpleLinearSystem extends LinearSystem {
 
-private static StandardMatrix A, B;
+private Matrix A, B;
 	
 	private int M,R;	
 	
@@ -34,24 +36,43 @@ private static StandardMatrix A, B;
 	
 	public SimpleLinearSystem(QNModel qnm, CoMoMBasis basis, int num_threads)
 			throws InternalErrorException {
+		this(qnm, basis, num_threads, ModularSolver.LARGE_MODULI);
+	}
+	
+	/**
+	 * @param moduli_mode the moduli selection mode of the ModularSolver, e.g. ModularSolver.WORD_SIZED_MODULI
+	 */
+	public SimpleLinearSystem(QNModel qnm, CoMoMBasis basis, int num_threads, int moduli_mode)
+			throws InternalErrorException {
+		this(qnm, basis, num_threads == 1 ? new FactorisedSolver() : new ModularSolver(num_threads, moduli_mode));
+		this.num_threads = num_threads;
+	}
+	
+	/**
+	 * @param solver the solver used for every linear system, e.g. a BareissSolver
+	 */
+	public SimpleLinearSystem(QNModel qnm, CoMoMBasis basis, Solver solver)
+			throws InternalErrorException {
 		super(qnm, basis);
 		
 		//basis = new CoMoMReorderingBasis(qnm);
 		//basis = new BTFCoMoMBasis(qnm);
 	
-		this.num_threads = num_threads;
+		this.num_threads = 1;
 		
 		M = qnm.M;
 		R = qnm.R;
 		
-		A = new StandardMatrix(basis, basis.getSize());
-		B = new StandardMatrix(basis, basis.getSize());
+		if(solver instanceof SparseSolver) {
+			//Assemble the rows directly in compressed form, so that A is never dense
+			A = new SparseMatrix(basis, basis.getSize());
+			B = new SparseMatrix(basis, basis.getSize());
+		} else {
+			A = new StandardMatrix(basis, basis.getSize());
+			B = new StandardMatrix(basis, basis.getSize());
+		}
 		
-		if (num_threads == 1) {
-            solver = new SimpleSolver();
-        } else {
-            solver = new ModularSolver(num_threads);
-        }       
+		this.solver = solver;
 	}
 
 	@Override
@@ -71,9 +92,7 @@ private static StandardMatrix A, B;
 		
 		BigRational[] result = solver.solve(sysB);
 		
-		for(int i = 0; i < basis.getSize(); i++) {
-			basis.setValue(result[i], i);
-		}
+		basis.setValues(result, 0, 0, basis.getSize());
 	}
 
 	@Override
@@ -88,6 +107,24 @@ private static StandardMatrix A, B;
 		System.out.println("B:");
 		//B.print();
 		
+		initialiseSolver();
+	}
+	
+	/**
+	 * The bounds given to the solver depend on the target population, so it is initialised again
+	 */
+	@Override
+	public void extendPopulation() throws InternalErrorException, OperationNotSupportedException {
+		//The solver updates A in place, so return A to the population it was generated for first
+		solver.goToULevel(0);
+		initialiseSolver();
+	}
+	
+	private void initialiseSolver() throws InternalErrorException, OperationNotSupportedException {
+		if(A instanceof SparseMatrix) {
+			((SparseSolver) solver).initialise(((SparseMatrix) A).getRows(), A.getUpdateList(), basis.getUncomputables());
+			return;
+		}
 		 Integer maxA = getMaxAElement();
 	     Integer val = basis.getSize();
 	     BigInteger maxB = qnm.getMaxG().multiply(new BigInteger(maxA.toString())).multiply(new BigInteger(val.toString()));
@@ -102,8 +139,8 @@ private static StandardMatrix A, B;
 		   	int row = -1;
 		   	int col = 0;
 		   	PopulationChangeVector n;
-		   	for(int i = 0; i < MiscFunctions.binomialCoefficient(M + R - 1 , M); i++)  { //loop over all possible population changes n
-		   		n  = basis.getPopulationChangeVector(i).copy(); // To improve bug safety
+		   	for(BasisEnumeration it = basis.enumerate(); it.hasNext(); )  { //loop over all possible population changes n
+		   		n  = it.next(); // a fresh copy, unpacked on demand
 		   		if(n.sumTail(current_class-1) > 0) {  //potential negative population
 		   			for(int k = 0; k <= M; k++) {
 		   				row++;
@@ -171,9 +208,9 @@ private static StandardMatrix A, B;
 		   			}    			    			
 		   		}
 		   	}
-		   	for(int i = 0; i < MiscFunctions.binomialCoefficient(M + R - 1 , M); i++)  { //loop over all possible population changes n
+		   	for(BasisEnumeration it = basis.enumerate(); it.hasNext(); )  { //loop over all possible population changes n
 		   		//add PC of class 'current_class'
-		   		n  = basis.getPopulationChangeVector(i).copy(); // To improve bug safety
+		   		n  = it.next(); // a fresh copy, unpacked on demand
 		   		if(n.sumTail(current_class-1) <= 0) {  // TODO remove <
 		   			row++;
 		   			col = basis.indexOf(n, 0);
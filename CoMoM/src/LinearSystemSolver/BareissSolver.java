@@ -0,0 +1,145 @@
+package LinearSystemSolver;
+
+import DataStructures.BigRational;
+import Exceptions.InconsistentLinearSystemException;
+import java.math.BigInteger;
+import javax.naming.OperationNotSupportedException;
+
+/**
+ * Class which defines a BareissSolver object, which solves the system using
+ * one-step fraction-free (Bareiss) elimination over the integers.
+ *
+ * Each row of [A|b] is first scaled by the lcm of its denominators. Every
+ * elimination step then divides exactly by the previous pivot, so all
+ * intermediate values stay integral and are bounded by minors of the scaled
+ * matrix, and no gcd is computed until the final solution x_i = y_i / det is
+ * formed.
+ *
+ * Systems with undefined elements in b, or with a singular A, are handed to
+ * the SimpleSolver elimination, which knows how to propagate undefined values.
+ */
+public class BareissSolver extends SimpleSolver {
+
+    /**
+     * Constructs a BareissSolver object.
+     */
+    public BareissSolver() {
+        super();
+        System.out.println("Using fraction-free Bareiss solver");
+    }
+
+    /**
+     * Solves the linear system using fraction-free Bareiss elimination
+     * @param b The vector b of the linear system Ax = b
+     * @return A vector containing the solutions of the linear system
+     * @throws OperationNotSupportedException Thrown when the system cannot be solved due to bad vector b size
+     */
+    @Override
+    public BigRational[] solve(BigRational[] b) throws OperationNotSupportedException, InconsistentLinearSystemException {
+        if (N != b.length) {
+            throw new OperationNotSupportedException("Wrong size of vector b.");
+        }
+        boolean existsDefinedOrNonZero = false;
+        for (int i = 0; i < N; i++) {
+            if (b[i].isUndefined()) {
+                return super.solve(b);
+            }
+            existsDefinedOrNonZero = existsDefinedOrNonZero || !b[i].isZero();
+        }
+        if (!existsDefinedOrNonZero) {
+            throw new InconsistentLinearSystemException("Singular system. Cannot proceed.");
+        }
+
+        t.start();
+        BigInteger[][] M = integralSystem(b);
+
+        BigInteger previous = BigInteger.ONE;
+        for (int p = 0; p < N; p++) {
+            // Any non-zero pivot keeps the divisions exact; the shortest one keeps the products small
+            int pivot = -1;
+            for (int i = p; i < N; i++) {
+                if (M[i][p].signum() != 0 && (pivot < 0 || M[i][p].bitLength() < M[pivot][p].bitLength())) {
+                    pivot = i;
+                }
+            }
+            if (pivot < 0) {
+                t.pause();
+                return super.solve(b);
+            }
+            BigInteger[] temp = M[p];
+            M[p] = M[pivot];
+            M[pivot] = temp;
+
+            BigInteger element = M[p][p];
+            for (int i = p + 1; i < N; i++) {
+                BigInteger factor = M[i][p];
+                for (int j = p + 1; j <= N; j++) {
+                    BigInteger value = element.multiply(M[i][j]);
+                    if (factor.signum() != 0 && M[p][j].signum() != 0) {
+                        value = value.subtract(factor.multiply(M[p][j]));
+                    }
+                    M[i][j] = previous.equals(BigInteger.ONE) ? value : value.divide(previous);
+                }
+                M[i][p] = BigInteger.ZERO;
+            }
+            previous = element;
+        }
+
+        // The last pivot is (up to sign) the determinant of the scaled A, so
+        // det * x is integral and back substitution divides exactly as well
+        BigInteger det = M[N - 1][N - 1];
+        BigInteger[] y = new BigInteger[N];
+        for (int i = N - 1; i >= 0; i--) {
+            BigInteger sum = det.multiply(M[i][N]);
+            for (int j = i + 1; j < N; j++) {
+                if (M[i][j].signum() != 0) {
+                    sum = sum.subtract(M[i][j].multiply(y[j]));
+                }
+            }
+            y[i] = sum.divide(M[i][i]);
+        }
+        if (det.signum() < 0) {
+            det = det.negate();
+            for (int i = 0; i < N; i++) {
+                y[i] = y[i].negate();
+            }
+        }
+        BigRational[] x = new BigRational[N];
+        for (int i = 0; i < N; i++) {
+            x[i] = new BigRational(y[i], det);
+        }
+        t.pause();
+        return x;
+    }
+
+    /**
+     * Builds the augmented matrix [A|b], with each row multiplied by the
+     * lcm of its denominators so that all of its elements are integers.
+     * @param b The vector b of the linear system Ax = b
+     * @return The N x (N + 1) integral augmented matrix
+     */
+    private BigInteger[][] integralSystem(BigRational[] b) {
+        BigInteger[][] M = new BigInteger[N][N + 1];
+        for (int i = 0; i < N; i++) {
+            BigInteger lcm = b[i].getDenominator().abs();
+            for (int j = 0; j < N; j++) {
+                BigInteger den = A[i][j].getDenominator().abs();
+                if (!den.equals(BigInteger.ONE) && !lcm.mod(den).equals(BigInteger.ZERO)) {
+                    lcm = lcm.divide(lcm.gcd(den)).multiply(den);
+                }
+            }
+            for (int j = 0; j < N; j++) {
+                M[i][j] = scale(A[i][j], lcm);
+            }
+            M[i][N] = scale(b[i], lcm);
+        }
+        return M;
+    }
+
+    private static BigInteger scale(BigRational a, BigInteger lcm) {
+        if (a.isZero()) {
+            return BigInteger.ZERO;
+        }
+        return a.getNumerator().multiply(lcm.divide(a.getDenominator()));
+    }
+}
@@ -0,0 +1,82 @@
+package LinearSystemSolver;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import DataStructures.BigRational;
+import DataStructures.QNModel;
+import QueuingNet.CoMoMSimpleSolver;
+import QueuingNet.RECALSolver;
+
+public class BareissSolverTest {
+
+    private static BigRational[] solve(Solver solver, BigRational[][] A, BigRational[] b) throws Exception {
+        BigRational[][] copy = new BigRational[A.length][];
+        for (int i = 0; i < A.length; i++) {
+            copy[i] = A[i].clone();
+        }
+        solver.initialise(copy);
+        return solver.solve(b.clone());
+    }
+
+    @Test
+    public void testAgainstSimpleSolver() throws Exception {
+        Random random = new Random(11);
+        for (int n = 1; n <= 8; n++) {
+            BigRational[][] A = new BigRational[n][n];
+            BigRational[] b = new BigRational[n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    A[i][j] = (random.nextInt(3) == 0) ? BigRational.ZERO : new BigRational(random.nextInt(200) - 100, random.nextInt(12) + 1);
+                }
+                b[i] = new BigRational(random.nextInt(50) - 25, random.nextInt(5) + 1);
+            }
+            assertArrayEquals(solve(new SimpleSolver(), A, b), solve(new BareissSolver(), A, b));
+        }
+    }
+
+    /**
+     * Singular systems and undefined elements of b are left to the SimpleSolver
+     * elimination, so the undefined unknowns must match.
+     */
+    @Test
+    public void testUndefinedAndSingular() throws Exception {
+        BigRational[][] A = {
+            {new BigRational(2), BigRational.ONE, BigRational.ZERO},
+            {new BigRational(4), new BigRational(2), BigRational.ZERO},
+            {BigRational.ONE, BigRational.ZERO, new BigRational(3)}
+        };
+        BigRational[] b = {BigRational.ONE, new BigRational(2), new BigRational(3)};
+        BigRational[] expected = solve(new SimpleSolver(), A, b);
+        BigRational[] x = solve(new BareissSolver(), A, b);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(expected[i].isUndefined(), x[i].isUndefined());
+        }
+
+        A[1][0] = new BigRational(5);
+        BigRational undefined = new BigRational(-1);
+        undefined.makeUndefined();
+        b[2] = undefined;
+        expected = solve(new SimpleSolver(), A, b);
+        x = solve(new BareissSolver(), A, b);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(expected[i].isUndefined(), x[i].isUndefined());
+            if (!x[i].isUndefined()) {
+                assertEquals(expected[i], x[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testNormalisingConstant() throws Exception {
+        Integer[][] D = {{1, 2}, {4, 5}, {7, 8}};
+        QNModel bareiss = new QNModel(2, 3, new Integer[]{5, 5}, new Integer[]{3, 3}, new Integer[]{1, 1, 1}, D);
+        QNModel recal = new QNModel(2, 3, new Integer[]{5, 5}, new Integer[]{3, 3}, new Integer[]{1, 1, 1}, D);
+        new CoMoMSimpleSolver(bareiss, new BareissSolver()).computeNormalisingConstant();
+        new RECALSolver(recal).computeNormalisingConstant();
+        assertEquals(recal.getNormalisingConstant(), bareiss.getNormalisingConstant());
+    }
+}
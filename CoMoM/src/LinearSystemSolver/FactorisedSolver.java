@@ -0,0 +1,316 @@
+package LinearSystemSolver;
+
+import DataStructures.BigRational;
+import DataStructures.BigRationalAccumulator;
+import DataStructures.Tuple;
+import Exceptions.InconsistentLinearSystemException;
+import Utilities.MiscFunctions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.naming.OperationNotSupportedException;
+
+/**
+ * Class which defines a FactorisedSolver object, which factorises A once per
+ * initialisation and reuses the factors for every subsequent solution.
+ *
+ * Between successive population steps A only changes by a multiple of the
+ * matrix U that has a one in each position of UList, i.e.
+ * A(level) = A(l0) + (level - l0) U. Writing U = P W, where P selects the k
+ * distinct rows touched by UList, the Sherman-Morrison-Woodbury identity gives
+ * A(level)^(-1) b = y - Z (I + d W Z)^(-1) d W y, with y = A(l0)^(-1) b,
+ * Z = A(l0)^(-1) P and d = level - l0. Each step therefore costs two
+ * triangular solves and a k x k elimination instead of a full elimination.
+ *
+ * Systems with undefined elements in b, or with a singular A, are handed to
+ * the SimpleSolver elimination, which knows how to propagate undefined values.
+ */
+public class FactorisedSolver extends SimpleSolver {
+
+    /**
+     * The LU factors of A(factorisedLevel): L (unit diagonal) below the
+     * diagonal and U on and above it, stored in the permuted row order.
+     */
+    private BigRational[][] LU;
+    /**
+     * Row i of LU corresponds to row perm[i] of A.
+     */
+    private int[] perm;
+    private boolean factorised;
+    private int factorisedLevel;
+    /**
+     * The level at which the last factorisation attempt found A singular.
+     */
+    private int singularLevel;
+    /**
+     * The distinct rows of A that appear in UList.
+     */
+    private List<Integer> updateRows;
+    /**
+     * For each UList entry, the index of its row in updateRows.
+     */
+    private int[] updateRowOfEntry;
+    /**
+     * Z[j][r] holds element j of A(factorisedLevel)^(-1) e_updateRows(r).
+     */
+    private BigRational[][] Z;
+    /**
+     * WZ[r][q] holds the sum of Z[col][q] over the UList entries (row, col) with row = updateRows(r).
+     */
+    private BigRational[][] WZ;
+
+    /**
+     * Constructs a FactorisedSolver object.
+     */
+    public FactorisedSolver() {
+        super();
+        System.out.println("Using factorised solver");
+    }
+
+    @Override
+    public void initialise(BigRational[][] A, List<Tuple<Integer, Integer>> UList, Set<Integer> uncomputables) throws OperationNotSupportedException {
+        super.initialise(A, UList, uncomputables);
+        factorised = false;
+        singularLevel = Integer.MIN_VALUE;
+        updateRows = new ArrayList<Integer>();
+        updateRowOfEntry = new int[UList.size()];
+        Map<Integer, Integer> index = new HashMap<Integer, Integer>();
+        int entry = 0;
+        for (Tuple<Integer, Integer> tuple : UList) {
+            Integer r = index.get(tuple.getX());
+            if (r == null) {
+                r = updateRows.size();
+                index.put(tuple.getX(), r);
+                updateRows.add(tuple.getX());
+            }
+            updateRowOfEntry[entry++] = r;
+        }
+    }
+
+    /**
+     * Solves the linear system using the cached factorisation of A
+     * @param b The vector b of the linear system Ax = b
+     * @return A vector containing the solutions of the linear system
+     * @throws OperationNotSupportedException Thrown when the system cannot be solved due to bad vector b size
+     */
+    @Override
+    public BigRational[] solve(BigRational[] b) throws OperationNotSupportedException, InconsistentLinearSystemException {
+        if (N != b.length) {
+            throw new OperationNotSupportedException("Wrong size of vector b.");
+        }
+        boolean existsDefinedOrNonZero = false;
+        for (int i = 0; i < N; i++) {
+            if (b[i].isUndefined()) {
+                return super.solve(b);
+            }
+            existsDefinedOrNonZero = existsDefinedOrNonZero || !b[i].isZero();
+        }
+        if (!existsDefinedOrNonZero) {
+            throw new InconsistentLinearSystemException("Singular system. Cannot proceed.");
+        }
+
+        t.start();
+        if (!factorised) {
+            if (curULevel == singularLevel || !factorise()) {
+                t.pause();
+                return super.solve(b);
+            }
+        }
+        BigRational[] x = substitute(b);
+        int delta = curULevel - factorisedLevel;
+        if (delta != 0 && !updateRows.isEmpty()) {
+            BigRational[] z = capacitanceSolve(new BigRational(delta), x);
+            if (z == null) {
+                // A(l0) + d U is singular through the update, so refactorise at the current level
+                if (!factorise()) {
+                    t.pause();
+                    return super.solve(b);
+                }
+                x = substitute(b);
+            } else {
+                for (int j = 0; j < N; j++) {
+                    for (int r = 0; r < z.length; r++) {
+                        if (!Z[j][r].isZero() && !z[r].isZero()) {
+                            x[j] = x[j].subtractProduct(Z[j][r], z[r]);
+                        }
+                    }
+                }
+            }
+        }
+        t.pause();
+        return x;
+    }
+
+    /**
+     * Computes the LU factorisation of the current A, with partial pivoting,
+     * together with Z and WZ.
+     * @return False if A is singular
+     */
+    private boolean factorise() {
+        LU = new BigRational[N][N];
+        MiscFunctions.arrayCopy(A, LU);
+        perm = new int[N];
+        for (int i = 0; i < N; i++) {
+            perm[i] = i;
+        }
+        for (int k = 0; k < N; k++) {
+            int max = k;
+            for (int i = k + 1; i < N; i++) {
+                if (LU[i][k].abs().greaterThan(LU[max][k].abs())) {
+                    max = i;
+                }
+            }
+            if (LU[max][k].isZero()) {
+                factorised = false;
+                singularLevel = curULevel;
+                return false;
+            }
+            if (max != k) {
+                BigRational[] temp = LU[k];
+                LU[k] = LU[max];
+                LU[max] = temp;
+                int tmp = perm[k];
+                perm[k] = perm[max];
+                perm[max] = tmp;
+            }
+            for (int i = k + 1; i < N; i++) {
+                if (!LU[i][k].isZero()) {
+                    BigRational f = LU[i][k].divide(LU[k][k]);
+                    LU[i][k] = f;
+                    for (int j = k + 1; j < N; j++) {
+                        if (!LU[k][j].isZero()) {
+                            LU[i][j] = LU[i][j].subtractProduct(f, LU[k][j]);
+                        }
+                    }
+                }
+            }
+        }
+        factorised = true;
+        factorisedLevel = curULevel;
+
+        int k = updateRows.size();
+        Z = new BigRational[N][k];
+        WZ = new BigRational[k][k];
+        BigRational[] e = new BigRational[N];
+        for (int r = 0; r < k; r++) {
+            for (int i = 0; i < N; i++) {
+                e[i] = BigRational.ZERO;
+            }
+            e[updateRows.get(r)] = BigRational.ONE;
+            BigRational[] column = substitute(e);
+            for (int j = 0; j < N; j++) {
+                Z[j][r] = column[j];
+            }
+        }
+        for (int r = 0; r < k; r++) {
+            for (int q = 0; q < k; q++) {
+                WZ[r][q] = BigRational.ZERO;
+            }
+        }
+        int entry = 0;
+        for (Tuple<Integer, Integer> tuple : UList) {
+            int r = updateRowOfEntry[entry++];
+            for (int q = 0; q < k; q++) {
+                WZ[r][q] = WZ[r][q].add(Z[tuple.getY()][q]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Solves A(factorisedLevel) x = b using the LU factors.
+     * @param b The vector b (not modified)
+     * @return The solution x
+     */
+    private BigRational[] substitute(BigRational[] b) {
+        BigRational[] x = new BigRational[N];
+        BigRationalAccumulator sum = new BigRationalAccumulator();
+        // Forward substitution with the unit lower triangular L
+        for (int i = 0; i < N; i++) {
+            sum.reset();
+            sum.add(b[perm[i]]);
+            for (int j = 0; j < i; j++) {
+                sum.subtractProduct(LU[i][j], x[j]);
+            }
+            x[i] = sum.toBigRational();
+        }
+        // Back substitution with U
+        for (int i = N - 1; i >= 0; i--) {
+            sum.reset();
+            sum.add(x[i]);
+            for (int j = i + 1; j < N; j++) {
+                sum.subtractProduct(LU[i][j], x[j]);
+            }
+            x[i] = sum.toBigRational().divide(LU[i][i]);
+        }
+        return x;
+    }
+
+    /**
+     * Solves the capacitance system (I + d WZ) z = d W y.
+     * @param d The number of levels since the factorisation
+     * @param y The solution of A(factorisedLevel) y = b
+     * @return z, or null if the capacitance matrix is singular
+     */
+    private BigRational[] capacitanceSolve(BigRational d, BigRational[] y) {
+        int k = updateRows.size();
+        BigRational[][] C = new BigRational[k][k];
+        BigRational[] z = new BigRational[k];
+        for (int r = 0; r < k; r++) {
+            for (int q = 0; q < k; q++) {
+                C[r][q] = d.multiply(WZ[r][q]);
+            }
+            C[r][r] = C[r][r].add(BigRational.ONE);
+            z[r] = BigRational.ZERO;
+        }
+        int entry = 0;
+        for (Tuple<Integer, Integer> tuple : UList) {
+            int r = updateRowOfEntry[entry++];
+            z[r] = z[r].add(y[tuple.getY()]);
+        }
+        for (int r = 0; r < k; r++) {
+            z[r] = z[r].multiply(d);
+        }
+
+        for (int p = 0; p < k; p++) {
+            int max = p;
+            for (int i = p + 1; i < k; i++) {
+                if (C[i][p].abs().greaterThan(C[max][p].abs())) {
+                    max = i;
+                }
+            }
+            if (C[max][p].isZero()) {
+                return null;
+            }
+            BigRational[] temp = C[p];
+            C[p] = C[max];
+            C[max] = temp;
+            BigRational tmp = z[p];
+            z[p] = z[max];
+            z[max] = tmp;
+            for (int i = p + 1; i < k; i++) {
+                if (!C[i][p].isZero()) {
+                    BigRational f = C[i][p].divide(C[p][p]);
+                    z[i] = z[i].subtractProduct(f, z[p]);
+                    for (int j = p + 1; j < k; j++) {
+                        if (!C[p][j].isZero()) {
+                            C[i][j] = C[i][j].subtractProduct(f, C[p][j]);
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = k - 1; i >= 0; i--) {
+            BigRational sum = z[i];
+            for (int j = i + 1; j < k; j++) {
+                if (!C[i][j].isZero()) {
+                    sum = sum.subtractProduct(C[i][j], z[j]);
+                }
+            }
+            z[i] = sum.divide(C[i][i]);
+        }
+        return z;
+    }
+}
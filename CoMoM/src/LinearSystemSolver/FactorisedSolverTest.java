@@ -0,0 +1,102 @@
+package LinearSystemSolver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import DataStructures.BigRational;
+import DataStructures.Tuple;
+
+public class FactorisedSolverTest {
+
+    private static final int[][] A = {
+        {4, 1, 0, 2, 0},
+        {1, 3, 1, 0, 0},
+        {0, 2, 5, 1, 1},
+        {2, 0, 1, 6, 1},
+        {0, 1, 0, 1, 3}
+    };
+    private static final int[] b = {1, 2, 3, 4, 5};
+
+    private static BigRational[][] matrix() {
+        BigRational[][] M = new BigRational[A.length][A.length];
+        for (int i = 0; i < A.length; i++) {
+            for (int j = 0; j < A.length; j++) {
+                M[i][j] = new BigRational(A[i][j]);
+            }
+        }
+        return M;
+    }
+
+    private static BigRational[] vector() {
+        BigRational[] v = new BigRational[b.length];
+        for (int i = 0; i < b.length; i++) {
+            v[i] = new BigRational(b[i]);
+        }
+        return v;
+    }
+
+    /**
+     * The solvers eliminate in place on b, so every solution gets a fresh copy.
+     */
+    private static BigRational[] rhs() {
+        return new BigRational[]{BigRational.ONE, new BigRational(2)};
+    }
+
+    /**
+     * Steps A through the levels of the update U, which has two entries in
+     * row 1 and one in row 3, and compares the low-rank updated solutions with
+     * a fresh elimination at every level.
+     */
+    @Test
+    public void testWoodburyUpdate() throws Exception {
+        List<Tuple<Integer, Integer>> UList = new ArrayList<Tuple<Integer, Integer>>();
+        UList.add(new Tuple<Integer, Integer>(1, 1));
+        UList.add(new Tuple<Integer, Integer>(1, 4));
+        UList.add(new Tuple<Integer, Integer>(3, 0));
+
+        FactorisedSolver factorised = new FactorisedSolver();
+        factorised.initialise(matrix(), UList, new HashSet<Integer>());
+        SimpleSolver simple = new SimpleSolver();
+        BigRational[][] reference = matrix();
+        simple.initialise(reference, UList, new HashSet<Integer>());
+
+        int[] levels = {0, 1, 2, 5, 3, 8};
+        for (int level : levels) {
+            factorised.goToULevel(level);
+            simple.goToULevel(level);
+            BigRational[] x = factorised.solve(vector());
+            BigRational[] expected = simple.solve(vector());
+            assertArrayEquals(expected, x);
+        }
+    }
+
+    /**
+     * An update that makes A singular at one level must still give the right
+     * solution at the following levels.
+     */
+    @Test
+    public void testSingularUpdate() throws Exception {
+        // det(A + d e1 e1^T) = 1 + d, which vanishes at level -1
+        BigRational[][] M = {
+            {new BigRational(2), BigRational.ONE},
+            {BigRational.ONE, BigRational.ONE}
+        };
+        List<Tuple<Integer, Integer>> UList = new ArrayList<Tuple<Integer, Integer>>();
+        UList.add(new Tuple<Integer, Integer>(0, 0));
+        FactorisedSolver solver = new FactorisedSolver();
+        solver.initialise(M, UList, new HashSet<Integer>());
+
+        solver.goToULevel(0);
+        assertArrayEquals(new BigRational[]{new BigRational(-1), new BigRational(3)}, solver.solve(rhs()));
+        solver.goToULevel(-1);
+        // The elimination fallback leaves the unknowns that depend on the zero pivot undefined
+        assertTrue(solver.solve(rhs())[1].isUndefined());
+        solver.goToULevel(1);
+        assertArrayEquals(new BigRational[]{new BigRational(-1, 2), new BigRational(5, 2)}, solver.solve(rhs()));
+    }
+}
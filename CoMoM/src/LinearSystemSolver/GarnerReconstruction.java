@@ -0,0 +1,162 @@
+package LinearSystemSolver;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The GarnerReconstruction object recombines residues modulo a set of
+ * word-sized primes into an integer, using Garner's mixed-radix algorithm.
+ * All the modular work is done on longs; BigInteger arithmetic is only used
+ * for the final evaluation of the mixed-radix representation. Moduli can be
+ * added one at a time, in which case the mixed-radix digits already computed
+ * for a value remain valid and only one new digit per value is needed.
+ */
+class GarnerReconstruction {
+
+    private int k;
+    private final List<Long> primes = new ArrayList<Long>();
+    private final List<MontgomeryModulus> engines = new ArrayList<MontgomeryModulus>();
+    /**
+     * primesMod.get(i)[j] holds p_j in the Montgomery form of p_i, for j < i.
+     */
+    private final List<long[]> primesMod = new ArrayList<long[]>();
+    /**
+     * inverses.get(i) holds (p_0 * ... * p_(i-1))^(-1) in the Montgomery form of p_i.
+     */
+    private final List<Long> inverses = new ArrayList<Long>();
+    private BigInteger M = BigInteger.ONE, halfM = BigInteger.ZERO;
+
+    /**
+     * Creates a GarnerReconstruction object without any moduli.
+     */
+    GarnerReconstruction() {
+    }
+
+    /**
+     * Creates a GarnerReconstruction object for the given moduli.
+     * @param moduli Distinct odd primes of at most MontgomeryModulus.MAX_BIT_LENGTH bits
+     */
+    GarnerReconstruction(List<BigInteger> moduli) {
+        for (BigInteger modulus : moduli) {
+            addModulus(modulus);
+        }
+    }
+
+    /**
+     * Adds a modulus after the existing ones.
+     * @param modulus An odd prime of at most MontgomeryModulus.MAX_BIT_LENGTH bits, distinct from the existing moduli
+     */
+    final void addModulus(BigInteger modulus) {
+        MontgomeryModulus e = new MontgomeryModulus(modulus);
+        long[] pm = new long[k];
+        long prefix = e.one();
+        for (int j = 0; j < k; j++) {
+            pm[j] = e.toMontgomery(primes.get(j));
+            prefix = e.multiply(prefix, pm[j]);
+        }
+        primes.add(e.getModulus());
+        engines.add(e);
+        primesMod.add(pm);
+        inverses.add(e.inverse(prefix));
+        k++;
+        M = M.multiply(modulus);
+        halfM = M.shiftRight(1);
+    }
+
+    /**
+     * Returns the product of all moduli.
+     * @return The product of all moduli
+     */
+    BigInteger getModulus() {
+        return M;
+    }
+
+    /**
+     * Returns the number of moduli.
+     * @return The number of moduli
+     */
+    int size() {
+        return k;
+    }
+
+    /**
+     * Computes the i'th mixed-radix digit of a value, given its previous digits
+     * and its residue modulo the i'th prime.
+     * @param digits The digits 0, ..., i-1 of the value
+     * @param i The index of the digit to compute
+     * @param residue The canonical residue of the value modulo p_i
+     * @return The i'th digit
+     */
+    long digit(long[] digits, int i, long residue) {
+        MontgomeryModulus e = engines.get(i);
+        long[] pm = primesMod.get(i);
+        // Evaluate digits[0] + digits[1]*p_0 + ... + digits[i-1]*p_0*...*p_(i-2) modulo p_i
+        long partial = 0;
+        for (int j = i - 1; j >= 0; j--) {
+            partial = e.add(e.multiply(partial, pm[j]), e.toMontgomery(digits[j]));
+        }
+        long d = e.multiply(e.subtract(e.toMontgomery(residue), partial), inverses.get(i));
+        return e.fromMontgomery(d);
+    }
+
+    /**
+     * Evaluates a mixed-radix representation.
+     * @param digits The digits of the value, one per modulo (any further elements are ignored)
+     * @return The value in [0, M)
+     */
+    BigInteger evaluate(long[] digits) {
+        BigInteger x = BigInteger.valueOf(digits[k - 1]);
+        for (int i = k - 2; i >= 0; i--) {
+            x = x.multiply(BigInteger.valueOf(primes.get(i))).add(BigInteger.valueOf(digits[i]));
+        }
+        return x;
+    }
+
+    /**
+     * Reconstructs the integer with the given residues, in symmetric form.
+     * @param residues The canonical residues, one per modulo, in the order the moduli were given
+     * @return The unique integer x in (-M/2, M/2] such that x = residues[i] mod p_i
+     */
+    BigInteger reconstruct(long[] residues) {
+        long[] digits = new long[k];
+        for (int i = 0; i < k; i++) {
+            digits[i] = digit(digits, i, residues[i]);
+        }
+        BigInteger x = evaluate(digits);
+        if (x.compareTo(halfM) > 0) {
+            x = x.subtract(M);
+        }
+        return x;
+    }
+
+    /**
+     * Finds the fraction n/d with |n|, d < sqrt(m/2) that is congruent to u
+     * modulo m, using Wang's rational reconstruction (a truncated extended
+     * Euclidean algorithm). If such a fraction exists it is unique.
+     * @param u The residue, in [0, m)
+     * @param m The modulus
+     * @return The numerator and denominator of the fraction, or null if none exists
+     */
+    static BigInteger[] rationalReconstruction(BigInteger u, BigInteger m) {
+        // 2 * bound^2 <= m, without needing an integer square root
+        BigInteger bound = BigInteger.ONE.shiftLeft((m.bitLength() - 2) / 2);
+        BigInteger r0 = m, r1 = u;
+        BigInteger t0 = BigInteger.ZERO, t1 = BigInteger.ONE;
+        while (r1.compareTo(bound) >= 0) {
+            BigInteger[] qr = r0.divideAndRemainder(r1);
+            r0 = r1;
+            r1 = qr[1];
+            BigInteger tmp = t0.subtract(qr[0].multiply(t1));
+            t0 = t1;
+            t1 = tmp;
+        }
+        if (t1.abs().compareTo(bound) >= 0 || !r1.gcd(t1).equals(BigInteger.ONE)) {
+            return null;
+        }
+        if (t1.signum() < 0) {
+            return new BigInteger[]{r1.negate(), t1.negate()};
+        }
+        return new BigInteger[]{r1, t1};
+    }
+}
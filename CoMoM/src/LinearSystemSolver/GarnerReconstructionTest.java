@@ -0,0 +1,92 @@
+package LinearSystemSolver;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GarnerReconstructionTest {
+
+    private static List<BigInteger> primes(int count) {
+        List<BigInteger> primes = new ArrayList<BigInteger>();
+        BigInteger candidate = BigInteger.ONE.shiftLeft(MontgomeryModulus.MAX_BIT_LENGTH).subtract(BigInteger.ONE);
+        while (primes.size() < count) {
+            if (candidate.isProbablePrime(100)) {
+                primes.add(candidate);
+            }
+            candidate = candidate.subtract(BigInteger.valueOf(2));
+        }
+        return primes;
+    }
+
+    private static long[] residues(BigInteger x, List<BigInteger> primes) {
+        long[] residues = new long[primes.size()];
+        for (int i = 0; i < residues.length; i++) {
+            residues[i] = x.mod(primes.get(i)).longValue();
+        }
+        return residues;
+    }
+
+    @Test
+    public void testReconstruct() {
+        List<BigInteger> primes = primes(5);
+        GarnerReconstruction garner = new GarnerReconstruction(primes);
+        BigInteger M = BigInteger.ONE;
+        for (BigInteger p : primes) {
+            M = M.multiply(p);
+        }
+        assertEquals(M, garner.getModulus());
+        assertEquals(5, garner.size());
+
+        Random random = new Random(7);
+        BigInteger half = M.shiftRight(1);
+        BigInteger[] values = {BigInteger.ZERO, BigInteger.ONE, BigInteger.ONE.negate(), half, half.negate().add(BigInteger.ONE)};
+        for (BigInteger x : values) {
+            assertEquals(x, garner.reconstruct(residues(x, primes)));
+        }
+        for (int n = 0; n < 200; n++) {
+            BigInteger x = new BigInteger(M.bitLength() - 2, random);
+            if (random.nextBoolean()) {
+                x = x.negate();
+            }
+            assertEquals(x, garner.reconstruct(residues(x, primes)));
+        }
+    }
+
+    /**
+     * Digits computed before a modulus is added remain valid afterwards.
+     */
+    @Test
+    public void testIncrementalDigits() {
+        List<BigInteger> primes = primes(4);
+        BigInteger x = new BigInteger("123456789012345678901234567890123456789");
+        long[] r = residues(x, primes);
+        GarnerReconstruction garner = new GarnerReconstruction();
+        long[] digits = new long[primes.size()];
+        for (int i = 0; i < primes.size(); i++) {
+            garner.addModulus(primes.get(i));
+            digits[i] = garner.digit(digits, i, r[i]);
+            assertEquals(x.mod(garner.getModulus()), garner.evaluate(digits));
+        }
+    }
+
+    @Test
+    public void testRationalReconstruction() {
+        List<BigInteger> primes = primes(2);
+        BigInteger m = primes.get(0).multiply(primes.get(1));
+        long[][] fractions = {{0, 1}, {1, 3}, {-22, 7}, {355, 113}, {-1, 1000003}};
+        for (long[] f : fractions) {
+            BigInteger n = BigInteger.valueOf(f[0]), d = BigInteger.valueOf(f[1]);
+            BigInteger u = n.multiply(d.modInverse(m)).mod(m);
+            BigInteger[] nd = GarnerReconstruction.rationalReconstruction(u, m);
+            assertEquals(n, nd[0]);
+            assertEquals(d, nd[1]);
+        }
+        // No fraction with |n|, d < 8 is congruent to 10 modulo 251
+        assertNull(GarnerReconstruction.rationalReconstruction(BigInteger.TEN, BigInteger.valueOf(251)));
+    }
+}
@@ -24,12 +24,14 @@ import Exceptions.InternalErrorException;
 import Utilities.MiscFunctions;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import Utilities.Timer;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -52,6 +54,44 @@ public class ModularSolver extends ParallelSolver {
     private List<ModularSolverParallelTask> taskList;
     private int ra, rb;
     private Timer moduliSelectionTimer = new Timer();
+    private boolean wordSizedModuli;
+    /**
+     * Selects a handful of large primes, one or more per thread.
+     */
+    public static final int LARGE_MODULI = 0;
+    /**
+     * Selects as many word-sized primes as the Hadamard bound requires and
+     * Garner reconstruction.
+     */
+    public static final int WORD_SIZED_MODULI = 1;
+    /**
+     * Adds word-sized primes until the rational reconstruction of the solution
+     * stabilises.
+     */
+    public static final int EARLY_TERMINATION = 2;
+    /**
+     * As EARLY_TERMINATION, but a stabilised solution is also checked against
+     * the system before it is accepted.
+     */
+    public static final int EARLY_TERMINATION_VERIFIED = 3;
+    private final int moduliMode;
+    private GarnerReconstruction garner;
+    /**
+     * Number of primes used by the last early-terminating solution.
+     */
+    private int primesUsed;
+    /**
+     * The word-sized primes handed out so far, in descending order from 2^62.
+     */
+    private static final List<BigInteger> wordPrimes = new ArrayList<BigInteger>();
+    /**
+     * Solves, with large moduli, the systems whose row-scaled elements do not
+     * fit in a long. It is created on the first such system.
+     */
+    private ModularSolver largeModuliSolver;
+    private boolean largeModuliSolverInitialised;
+    private int maxAValue;
+    private BigInteger maxb;
 
     /**
      * Constructs a ModularSolver object.
@@ -59,8 +99,41 @@ public class ModularSolver extends ParallelSolver {
      * @param nThreads Specifies the number of threads that the ModularSolver must use
      */
     public ModularSolver(int nThreads) {
+        this(nThreads, LARGE_MODULI);
+    }
+
+    /**
+     * Constructs a ModularSolver object.
+     *
+     * In word-sized mode the solver uses as many 62-bit primes as the Hadamard
+     * bound of each system requires, solves one residue system per prime on a
+     * work-stealing pool and recombines the residues with Garner's algorithm.
+     * The number of residue systems is therefore independent of the number of
+     * threads.
+     *
+     * In early termination mode 62-bit primes are added a batch (one prime per
+     * thread) at a time, and the solver stops as soon as the rational
+     * reconstruction of every element of the solution is the same for two
+     * consecutive batches, which for typical systems is far below the Hadamard
+     * bound.
+     *
+     * @param nThreads Specifies the number of threads that the ModularSolver must use
+     * @param moduliMode One of LARGE_MODULI, WORD_SIZED_MODULI, EARLY_TERMINATION and EARLY_TERMINATION_VERIFIED
+     */
+    public ModularSolver(int nThreads, int moduliMode) {
         super(nThreads);
-        System.out.println("Using parallel modular solver (" + this.nThreads + " threads)");
+        this.moduliMode = moduliMode;
+        if (moduliMode == WORD_SIZED_MODULI) {
+            pool.shutdown();
+            pool = new ForkJoinPool(this.nThreads);
+            System.out.println("Using parallel modular solver with word-sized moduli (" + this.nThreads + " threads)");
+        } else if (moduliMode == EARLY_TERMINATION || moduliMode == EARLY_TERMINATION_VERIFIED) {
+            pool.shutdown();
+            pool = new ForkJoinPool(this.nThreads);
+            System.out.println("Using parallel modular solver with early termination (" + this.nThreads + " threads)");
+        } else {
+            System.out.println("Using parallel modular solver (" + this.nThreads + " threads)");
+        }
     }
 
     @Override
@@ -71,6 +144,18 @@ public class ModularSolver extends ParallelSolver {
         this.maxA = new BigInteger((new Integer(maxA).toString()));
         //this.maxOfAColumns = maxOfAColumns;
         this.maxG = maxG;
+        if (moduliMode != LARGE_MODULI) {
+            // Moduli are selected per system in solve(), once b is known
+            this.maxAValue = maxA;
+            this.maxb = maxb;
+            largeModuliSolverInitialised = false;
+            if (moduli == null) {
+                moduli = new ArrayList<BigInteger>();
+                taskList = new ArrayList<ModularSolverParallelTask>();
+            }
+            t.pause();
+            return;
+        }
         int bitlength = lowerLimitForMMorhac(this.maxA, maxb);
         //int bitlength = lowerLimitForMG(this.maxG.asBigDecimal().toBigIntegerExact());
         if (bitlength > M.bitLength()) {
@@ -98,8 +183,11 @@ public class ModularSolver extends ParallelSolver {
             System.out.println("Moduli selection took " + moduliSelectionTimer.getPrettyInterval() + ".\nWill now solve " + moduli.size() + " residue systems.");
         }
         taskList = new ArrayList<ModularSolverParallelTask>(moduli.size());
+        wordSizedModuli = true;
         for (int i = 0; i < moduli.size(); i++) {
-            taskList.add(new ModularSolverParallelTask(moduli.get(i), M));
+            ModularSolverParallelTask task = new ModularSolverParallelTask(moduli.get(i), M);
+            wordSizedModuli = wordSizedModuli && task.isWordSized();
+            taskList.add(task);
         }
         t.pause();
     }
@@ -238,17 +326,51 @@ public class ModularSolver extends ParallelSolver {
             BigRational det = BigRational.ZERO;
             BigRational[] x = new BigRational[N];
 
+            if (moduliMode == WORD_SIZED_MODULI) {
+                solveWordSized(x);
+                t.pause();
+                return x;
+            } else if (moduliMode != LARGE_MODULI) {
+                solveEarlyTermination(x);
+                t.pause();
+                return x;
+            }
+
             // ****** SOLVER STARTS HERE ******
             BigInteger mod = moduli.get(0); // We can use any modulo when computing the common between
             BigRational[][] Amod = mod(A, mod); //all residue systems Amod, as every modulo is bigger than Amax.
+
+            // The word-sized engine needs every modulo to fit in a long and an
+            // integral system; b is scaled by the common denominator of its elements.
+            long[][] Aint = (wordSizedModuli) ? toLongMatrix(Amod) : null;
+            BigInteger[] bint = null;
+            BigInteger denominator = BigInteger.ONE;
+            if (Aint != null) {
+                denominator = commonDenominator(b);
+                bint = scale(b, denominator);
+                if (M.bitLength() < hadamardBitLength(Aint, bint) + 2) {
+                    // M cannot hold the signed scaled solutions, use the BigRational residues
+                    Aint = null;
+                    denominator = BigInteger.ONE;
+                }
+            }
             for (int modIndex = 0; modIndex < moduli.size(); modIndex++) {
-                taskList.get(modIndex).prepare(Amod, b, rowsToSkip, columnsToSkip);
+                if (Aint != null) {
+                    taskList.get(modIndex).prepare(Aint, bint);
+                } else {
+                    taskList.get(modIndex).prepare(Amod, b, rowsToSkip, columnsToSkip);
+                }
+            }
+            for (Future<Object> f : pool.invokeAll(taskList)) {
+                f.get();
             }
-            pool.invokeAll(taskList);
             for (int modIndex = 0; modIndex < moduli.size(); modIndex++) {
                 det = det.add(taskList.get(modIndex).getDetRes());
             }
             det = det.mod(M);
+            if (Aint != null) {
+                det = symmetric(det);
+            }
 
             int indexAtResidueSol = 0;
             for (int i = 0; i < N; i++) {
@@ -267,6 +389,9 @@ public class ModularSolver extends ParallelSolver {
             for (int i = 0; i < N; i++) {
                 if ((!columnsToSkip.contains(i)) && (!x[i].isUndefined())) {
                     x[i] = x[i].modNormal(M);
+                    if (Aint != null) {
+                        x[i] = symmetric(x[i]).divide(new BigRational(denominator));
+                    }
                     if (!det.isZero()) {
                         x[i] = x[i].divide(det);
                     }
@@ -302,12 +427,343 @@ public class ModularSolver extends ParallelSolver {
             throw new InconsistentLinearSystemException("Singular system. Cannot proceed.");
         } catch (InterruptedException ex) {
             throw new InternalErrorException(ex.getMessage());
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof InconsistentLinearSystemException) {
+                throw (InconsistentLinearSystemException) ex.getCause();
+            }
+            throw new InternalErrorException(ex.getMessage());
         } catch (Exception ex) {
             //ex.printStackTrace();
             throw new InternalErrorException(ex.getMessage());
         }
     }
 
+    /**
+     * Solves the sanitised system with word-sized moduli and Garner reconstruction.
+     * @param x The array where the solution is stored
+     */
+    private void solveWordSized(BigRational[] x) throws InterruptedException, ExecutionException, InternalErrorException, InconsistentLinearSystemException {
+        int Nrows = N - rowsToSkip.size(), Ncols = N - columnsToSkip.size();
+        long[][] Aint = new long[Nrows][Ncols];
+        BigInteger[] bint = new BigInteger[Nrows];
+        if (!integralSystem(Aint, bint)) {
+            solveWithLargeModuli(x);
+            return;
+        }
+        int bitlength = hadamardBitLength(Aint, bint) + 2;
+        selectWordModuli(bitlength);
+
+        // Primes that divide det(A) give singular residue systems, so they are
+        // replaced by further primes until the lucky ones exceed the bound
+        List<ModularSolverParallelTask> lucky = new ArrayList<ModularSolverParallelTask>(taskList.size());
+        List<BigInteger> luckyModuli = new ArrayList<BigInteger>(taskList.size());
+        BigInteger luckyM = BigInteger.ONE;
+        List<ModularSolverParallelTask> batch = taskList;
+        int next = 0;
+        while (true) {
+            for (ModularSolverParallelTask task : batch) {
+                task.prepare(Aint, bint);
+            }
+            for (Future<Object> f : pool.invokeAll(batch)) {
+                f.get();
+            }
+            for (ModularSolverParallelTask task : batch) {
+                BigInteger p = nextWordPrime(next++);
+                if (task.getDetResidue() != 0) {
+                    lucky.add(task);
+                    luckyModuli.add(p);
+                    luckyM = luckyM.multiply(p);
+                }
+            }
+            if (luckyM.bitLength() >= bitlength) {
+                break;
+            }
+            if (lucky.isEmpty()) {
+                // det(A) is a multiple of M, which is larger than its bound
+                throw new InconsistentLinearSystemException("Singular system. Cannot proceed.");
+            }
+            batch = new ArrayList<ModularSolverParallelTask>(nThreads);
+            for (int i = 0; i < nThreads; i++) {
+                batch.add(new ModularSolverParallelTask(nextWordPrime(next + i)));
+            }
+        }
+        GarnerReconstruction crt = (lucky.size() == taskList.size()) ? garner : new GarnerReconstruction(luckyModuli);
+
+        long[] residues = new long[lucky.size()];
+        for (int modIndex = 0; modIndex < residues.length; modIndex++) {
+            residues[modIndex] = lucky.get(modIndex).getDetResidue();
+        }
+        BigInteger det = crt.reconstruct(residues);
+        BigRational detInverse = new BigRational(BigInteger.ONE, det.abs());
+        int indexAtResidueSol = 0;
+        for (int i = 0; i < N; i++) {
+            if (!columnsToSkip.contains(i)) {
+                for (int modIndex = 0; modIndex < residues.length; modIndex++) {
+                    residues[modIndex] = lucky.get(modIndex).getyResidues()[indexAtResidueSol];
+                }
+                BigInteger y = crt.reconstruct(residues);
+                x[i] = new BigRational((det.signum() < 0) ? y.negate() : y).multiply(detInverse);
+                indexAtResidueSol++;
+            } else {
+                x[i] = new BigRational(-1);
+                x[i].makeUndefined();
+            }
+        }
+    }
+
+    /**
+     * Solves the sanitised system with word-sized moduli, adding primes until
+     * the rational reconstruction of the solution stabilises. The Hadamard
+     * bound is only used as a cap, beyond which the reconstruction is exact.
+     * @param x The array where the solution is stored
+     */
+    private void solveEarlyTermination(BigRational[] x) throws InterruptedException, ExecutionException, InternalErrorException, InconsistentLinearSystemException {
+        int Nrows = N - rowsToSkip.size(), Ncols = N - columnsToSkip.size();
+        long[][] Aint = new long[Nrows][Ncols];
+        BigInteger[] bint = new BigInteger[Nrows];
+        if (!integralSystem(Aint, bint)) {
+            solveWithLargeModuli(x);
+            return;
+        }
+        int detBits = hadamardBitLength(Aint, bint) + 1;
+        // Numerators and denominators are both bounded by the Hadamard bound
+        int capBits = 2 * detBits + 2;
+
+        GarnerReconstruction crt = new GarnerReconstruction();
+        long[][] digits = new long[Ncols][capBits / (MontgomeryModulus.MAX_BIT_LENGTH - 1) + 1];
+        BigInteger[][] previous = null, current = null;
+        int unluckyBits = 0, next = 0;
+        boolean done = false;
+        while (!done) {
+            // Solve the next batch of residue systems
+            ensureWordTasks(next + nThreads);
+            List<ModularSolverParallelTask> batch = taskList.subList(next, next + nThreads);
+            for (ModularSolverParallelTask task : batch) {
+                task.prepare(Aint, bint);
+            }
+            for (Future<Object> f : pool.invokeAll(batch)) {
+                f.get();
+            }
+            next += nThreads;
+
+            // Extend the mixed-radix digits of x with the residues of the lucky primes
+            for (int index = next - nThreads; index < next; index++) {
+                ModularSolverParallelTask task = taskList.get(index);
+                long det = task.getDetResidue();
+                BigInteger p = nextWordPrime(index);
+                if (det == 0) {
+                    unluckyBits += p.bitLength() - 1;
+                    if (unluckyBits >= detBits) {
+                        // det(A) is a multiple of a number larger than its bound
+                        throw new InconsistentLinearSystemException("Singular system. Cannot proceed.");
+                    }
+                    continue;
+                }
+                int i = crt.size();
+                crt.addModulus(p);
+                MontgomeryModulus e = new MontgomeryModulus(p);
+                long detInverse = e.inverse(e.toMontgomery(det));
+                long[] y = task.getyResidues();
+                for (int j = 0; j < Ncols; j++) {
+                    if (digits[j].length <= i) {
+                        digits[j] = Arrays.copyOf(digits[j], 2 * i);
+                    }
+                    long xj = e.fromMontgomery(e.multiply(e.toMontgomery(y[j]), detInverse));
+                    digits[j][i] = crt.digit(digits[j], i, xj);
+                }
+            }
+            if (crt.size() == 0) {
+                continue;
+            }
+
+            // Rational reconstruction of every element, stopping at the first failure
+            BigInteger modulus = crt.getModulus();
+            boolean exact = modulus.bitLength() >= capBits;
+            current = new BigInteger[Ncols][];
+            boolean stable = (previous != null);
+            for (int j = 0; j < Ncols; j++) {
+                current[j] = GarnerReconstruction.rationalReconstruction(crt.evaluate(digits[j]), modulus);
+                if (current[j] == null) {
+                    if (exact) {
+                        throw new InternalErrorException("Rational reconstruction failed within the Hadamard bound.");
+                    }
+                    current = null;
+                    break;
+                }
+                stable = stable && current[j][0].equals(previous[j][0]) && current[j][1].equals(previous[j][1]);
+            }
+            if (current != null && (exact || stable)) {
+                done = exact || moduliMode != EARLY_TERMINATION_VERIFIED || satisfiesSystem(Aint, bint, current);
+            }
+            previous = current;
+        }
+        primesUsed = next;
+
+        int indexAtResidueSol = 0;
+        for (int i = 0; i < N; i++) {
+            if (!columnsToSkip.contains(i)) {
+                x[i] = new BigRational(current[indexAtResidueSol][0], current[indexAtResidueSol][1]);
+                indexAtResidueSol++;
+            } else {
+                x[i] = new BigRational(-1);
+                x[i].makeUndefined();
+            }
+        }
+    }
+
+    /**
+     * Checks whether a candidate solution satisfies the integral system exactly.
+     * @param Aint The sanitised integer matrix A
+     * @param bint The sanitised integer vector b
+     * @param candidate The numerators and denominators of the candidate solution
+     * @return True if Aint * candidate = bint
+     */
+    private boolean satisfiesSystem(long[][] Aint, BigInteger[] bint, BigInteger[][] candidate) {
+        // Bring the candidate to a common denominator, so that the check is done on integers
+        BigInteger lcm = BigInteger.ONE;
+        for (BigInteger[] c : candidate) {
+            lcm = lcm.divide(lcm.gcd(c[1])).multiply(c[1]);
+        }
+        BigInteger[] scaled = new BigInteger[candidate.length];
+        for (int j = 0; j < candidate.length; j++) {
+            scaled[j] = candidate[j][0].multiply(lcm.divide(candidate[j][1]));
+        }
+        for (int i = 0; i < Aint.length; i++) {
+            BigInteger sum = BigInteger.ZERO;
+            for (int j = 0; j < Aint[i].length; j++) {
+                if (Aint[i][j] != 0) {
+                    sum = sum.add(scaled[j].multiply(BigInteger.valueOf(Aint[i][j])));
+                }
+            }
+            if (!sum.equals(bint[i].multiply(lcm))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes sure that residue tasks exist for the first count word-sized primes.
+     * @param count The number of tasks required
+     */
+    private void ensureWordTasks(int count) throws InternalErrorException {
+        while (taskList.size() < count) {
+            taskList.add(new ModularSolverParallelTask(nextWordPrime(taskList.size())));
+        }
+    }
+
+    /**
+     * Returns the number of word-sized primes used by the last solution in
+     * early termination mode.
+     * @return The number of primes used
+     */
+    public int getPrimesUsed() {
+        return primesUsed;
+    }
+
+    /**
+     * Extracts the sanitised system as integers, scaling each row of [A|b] by
+     * the least common multiple of its denominators. Row scaling does not
+     * change the solution of the system.
+     * @param Aint The array where the integral matrix is stored
+     * @param bint The array where the integral vector is stored
+     * @return False if a scaled element of A does not fit in a long
+     */
+    private boolean integralSystem(long[][] Aint, BigInteger[] bint) {
+        int indexI = 0;
+        for (int i = 0; i < N; i++) {
+            if (!rowsToSkip.contains(i)) {
+                BigInteger lcm = b[i].getDenominator().abs();
+                for (int j = 0; j < N; j++) {
+                    if (!columnsToSkip.contains(j) && !A[i][j].isInteger()) {
+                        BigInteger den = A[i][j].getDenominator().abs();
+                        lcm = lcm.divide(lcm.gcd(den)).multiply(den);
+                    }
+                }
+                BigRational scale = new BigRational(lcm);
+                int indexJ = 0;
+                for (int j = 0; j < N; j++) {
+                    if (!columnsToSkip.contains(j)) {
+                        if (!A[i][j].isZero()) {
+                            BigInteger value = A[i][j].multiply(scale).getNumerator();
+                            if (value.bitLength() > 63) {
+                                return false;
+                            }
+                            Aint[indexI][indexJ] = value.longValue();
+                        }
+                        indexJ++;
+                    }
+                }
+                bint[indexI] = b[i].multiply(scale).getNumerator();
+                indexI++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Solves the current system with large moduli, for systems whose row-scaled
+     * elements are too large for word-sized moduli.
+     * @param x The array where the solution is stored
+     */
+    private void solveWithLargeModuli(BigRational[] x) throws InternalErrorException, InconsistentLinearSystemException {
+        try {
+            if (largeModuliSolver == null) {
+                System.out.println("Elements of A are too large for word-sized moduli, falling back to large moduli.");
+                largeModuliSolver = new ModularSolver(nThreads, LARGE_MODULI);
+            }
+            if (!largeModuliSolverInitialised) {
+                largeModuliSolver.initialise(A, UList, uncomputables, maxAValue, maxb, maxG);
+                largeModuliSolverInitialised = true;
+            }
+            System.arraycopy(largeModuliSolver.solve(b), 0, x, 0, N);
+        } catch (OperationNotSupportedException ex) {
+            throw new InternalErrorException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Makes sure that the product of the word-sized moduli has at least the
+     * given bitlength, adding primes (and their residue tasks) as required.
+     * @param bitlength The required bitlength of M
+     */
+    private void selectWordModuli(int bitlength) throws InternalErrorException {
+        if (M.bitLength() >= bitlength && garner != null) {
+            return;
+        }
+        moduliSelectionTimer.start();
+        while (M.bitLength() < bitlength) {
+            BigInteger nextModulo = nextWordPrime(moduli.size());
+            moduli.add(nextModulo);
+            M = M.multiply(nextModulo);
+            taskList.add(new ModularSolverParallelTask(nextModulo));
+        }
+        minModulo = moduli.get(moduli.size() - 1);
+        garner = new GarnerReconstruction(moduli);
+        moduliSelectionTimer.pause();
+        System.out.println("Using " + moduli.size() + " word-sized moduli. Total bitlength: " + M.bitLength());
+    }
+
+    /**
+     * Returns the index'th largest prime below 2^62. The primes are shared by
+     * all ModularSolver objects, so they are only searched for once.
+     * @param index The index of the prime
+     * @return The prime
+     */
+    private static BigInteger nextWordPrime(int index) {
+        synchronized (wordPrimes) {
+            BigInteger candidate = wordPrimes.isEmpty() ? BigInteger.ONE.shiftLeft(MontgomeryModulus.MAX_BIT_LENGTH).subtract(BigInteger.ONE) : wordPrimes.get(wordPrimes.size() - 1).subtract(BigInteger.valueOf(2));
+            while (wordPrimes.size() <= index) {
+                while (!candidate.isProbablePrime(100)) {
+                    candidate = candidate.subtract(BigInteger.valueOf(2));
+                }
+                wordPrimes.add(candidate);
+                candidate = candidate.subtract(BigInteger.valueOf(2));
+            }
+            return wordPrimes.get(index);
+        }
+    }
+
     private void checkIfAllSolutionsLegal(BigRational[] x) throws InternalErrorException {
         for (int i = 0; i < N; i++) {
             if ((!x[i].isUndefined())) {
@@ -434,8 +890,103 @@ public class ModularSolver extends ParallelSolver {
         return newA;
     }
 
+    /**
+     * Converts the reduced matrix to longs for the word-sized residue engine.
+     * @param Amod The reduced matrix
+     * @return The matrix as longs, or null if it contains non-integral elements
+     */
+    private long[][] toLongMatrix(BigRational[][] Amod) {
+        long[][] Aint = new long[Amod.length][Amod[0].length];
+        for (int i = 0; i < Amod.length; i++) {
+            for (int j = 0; j < Amod[0].length; j++) {
+                if (!Amod[i][j].isZero()) {
+                    if (!Amod[i][j].isInteger()) {
+                        return null;
+                    }
+                    BigInteger value = Amod[i][j].getNumerator();
+                    if (value.bitLength() > 63) {
+                        return null;
+                    }
+                    Aint[i][j] = value.longValue();
+                }
+            }
+        }
+        return Aint;
+    }
+
+    /**
+     * Computes the least common multiple of the denominators of the rows of b
+     * that are not skipped.
+     * @param b The vector b
+     * @return The common denominator
+     */
+    private BigInteger commonDenominator(BigRational[] b) {
+        BigInteger lcm = BigInteger.ONE;
+        for (int i = 0; i < b.length; i++) {
+            if (!rowsToSkip.contains(i) && !b[i].isInteger()) {
+                BigInteger den = b[i].getDenominator().abs();
+                lcm = lcm.divide(lcm.gcd(den)).multiply(den);
+            }
+        }
+        return lcm;
+    }
+
+    /**
+     * Multiplies the rows of b that are not skipped by a common denominator.
+     * @param b The vector b
+     * @param denominator The common denominator of b
+     * @return The integral vector, without the skipped rows
+     */
+    private BigInteger[] scale(BigRational[] b, BigInteger denominator) {
+        BigInteger[] bint = new BigInteger[N - rowsToSkip.size()];
+        int indexI = 0;
+        for (int i = 0; i < N; i++) {
+            if (!rowsToSkip.contains(i)) {
+                bint[indexI++] = b[i].multiply(denominator).getNumerator();
+            }
+        }
+        return bint;
+    }
+
+    /**
+     * Bounds the bitlength of det(A) and of every det(A)*x[i] (Cramer's rule)
+     * using Hadamard's inequality on the rows of the augmented matrix [A|b].
+     * @param Aint The sanitised integer matrix A
+     * @param bint The sanitised integer vector b
+     * @return An upper bound for the bitlength of the reconstructed values
+     */
+    private int hadamardBitLength(long[][] Aint, BigInteger[] bint) {
+        int bits = 0;
+        for (int i = 0; i < Aint.length; i++) {
+            BigInteger norm = bint[i].multiply(bint[i]);
+            for (int j = 0; j < Aint[i].length; j++) {
+                if (Aint[i][j] != 0) {
+                    BigInteger a = BigInteger.valueOf(Aint[i][j]);
+                    norm = norm.add(a.multiply(a));
+                }
+            }
+            bits += (norm.bitLength() + 1) / 2;
+        }
+        return bits;
+    }
+
+    /**
+     * Maps a value in [0, M) to its symmetric representative in (-M/2, M/2].
+     * @param v The value
+     * @return The symmetric representative
+     */
+    private BigRational symmetric(BigRational v) {
+        if (v.greaterThan(new BigRational(M.shiftRight(1)))) {
+            return v.subtract(new BigRational(M));
+        }
+        return v;
+    }
+
     @Override
     public void shutdown() {
         pool.shutdown();
+        if (largeModuliSolver != null) {
+            largeModuliSolver.shutdown();
+        }
     }
 }
@@ -22,6 +22,7 @@ import Exceptions.InconsistentLinearSystemException;
 import Exceptions.InternalErrorException;
 import Utilities.MiscFunctions;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -41,6 +42,12 @@ public class ModularSolverParallelTask implements Callable<Object> {
     private BigRational[][] /*A,*/ Amod;
     private Set<Integer> rowsToSkip, columnsToSkip;
     private int Nrows, Ncols;
+    // Word-sized residue engine, null when the modulo does not fit in a long
+    private MontgomeryModulus engine;
+    private long[][] Aint, work;
+    private BigInteger[] bint;
+    private long[] bwork, invPivot, y, yResidues;
+    private long detResidue;
 
     /**
      * Creates a ModularSolverParallelTask for solving a residual linear system.
@@ -52,6 +59,34 @@ public class ModularSolverParallelTask implements Callable<Object> {
         this.M = M;
         BigInteger Mi = M.divide(mod);
         factor = Mi.modInverse(mod).multiply(Mi); //<Mi(-1)>Ni (modular multiplicative inverse)
+        if (MontgomeryModulus.fits(mod)) {
+            engine = new MontgomeryModulus(mod);
+        }
+    }
+
+    /**
+     * Creates a ModularSolverParallelTask for solving a residual linear system
+     * with the word-sized residue engine only. No local reconstruction factor is
+     * computed, so the results are only available through getDetResidue() and
+     * getyResidues().
+     * @param mod The prime modulo corresponding to this system
+     * @throws InternalErrorException Thrown when the modulo is not word-sized
+     */
+    public ModularSolverParallelTask(BigInteger mod) throws InternalErrorException {
+        if (!MontgomeryModulus.fits(mod)) {
+            throw new InternalErrorException("Modulo " + mod + " is too large for the word-sized residue engine.");
+        }
+        this.mod = mod;
+        engine = new MontgomeryModulus(mod);
+    }
+
+    /**
+     * Returns whether this task can solve its residue system using word-sized
+     * (long) arithmetic, i.e. whether its modulo is an odd prime of at most 62 bits.
+     * @return True if the word-sized residue engine is available
+     */
+    public boolean isWordSized() {
+        return engine != null;
     }
 
     /**
@@ -69,6 +104,8 @@ public class ModularSolverParallelTask implements Callable<Object> {
         MiscFunctions.arrayCopy(Amod, this.Amod);
         //this.Amod = mod(A, mod);
         this.b = b;
+        this.Aint = null;
+        this.bint = null;
         //this.bmod = mod(b, mod);
         if (rowsToSkip.size() > columnsToSkip.size()) {
             //System.out.println("Must skip less number of rows than colums!");
@@ -80,12 +117,37 @@ public class ModularSolverParallelTask implements Callable<Object> {
         //precomputedModArrays = false;
     }
 
+    /**
+     * Initialises a ModularSolverParallelTask object for solving a residual linear
+     * system Ax=b with the word-sized residue engine. Both A and b must already
+     * be integral and have their skipped rows and columns removed; they are
+     * reduced modulo this task's prime when the task is run.
+     * @param Aint The sanitised integer matrix A (shared, not modified)
+     * @param bint The sanitised integer vector b (shared, not modified)
+     * @throws InternalErrorException Thrown when the modulo of this task is not word-sized
+     */
+    public void prepare(long[][] Aint, BigInteger[] bint) throws InternalErrorException {
+        if (engine == null) {
+            throw new InternalErrorException("Modulo " + mod + " is too large for the word-sized residue engine.");
+        }
+        this.Nrows = Aint.length;
+        this.Ncols = Aint[0].length;
+        this.Aint = Aint;
+        this.bint = bint;
+        this.Amod = null;
+        this.b = null;
+    }
+
     /**
      * Solves the residual system using Extended Gaussian Elimination.
      * @throws InternalErrorException Thrown when an unrecoverable internal error is made.
      * @throws InconsistentLinearSystemException Thrown when the solution cannot proceed due to linear system singularities.
      */
     public void run() throws InternalErrorException, InconsistentLinearSystemException {
+        if (Aint != null) {
+            runWordSized();
+            return;
+        }
         //try {
             // Amod has been already computed
             this.bmod = mod(b, mod);
@@ -170,6 +232,123 @@ public class ModularSolverParallelTask implements Callable<Object> {
         }*/
     }
 
+    /**
+     * Solves the residual system by Gaussian elimination over the integers
+     * modulo this task's prime, using Montgomery multiplication on longs.
+     * Unlike run(), the determinant and solutions computed here are the true
+     * residues (including sign) of det(A) and det(A)*x, so ModularSolver must
+     * reconstruct them in symmetric form.
+     * @throws InconsistentLinearSystemException Thrown when the residue system is singular.
+     */
+    private void runWordSized() throws InconsistentLinearSystemException {
+        allocateWorkspace();
+        for (int i = 0; i < Nrows; i++) {
+            long[] src = Aint[i], dst = work[i];
+            for (int j = 0; j < Ncols; j++) {
+                dst[j] = (src[j] == 0) ? 0 : engine.toMontgomery(src[j]);
+            }
+            bwork[i] = engine.toMontgomery(bint[i]);
+        }
+
+        long det = engine.one();
+        boolean negative = false;
+
+        // Gaussian Elimination
+        for (int k = 0; k < Ncols; k++) {
+            // Any non-zero residue is an exact pivot
+            int pivot = k;
+            while (pivot < Nrows && work[pivot][k] == 0) {
+                pivot++;
+            }
+            if (pivot == Nrows) {
+                // The prime divides det(A); the caller decides whether A is singular
+                singularResidue();
+                return;
+            }
+            if (pivot != k) {
+                long temp = bwork[k];
+                bwork[k] = bwork[pivot];
+                bwork[pivot] = temp;
+                long[] temp2 = work[k];
+                work[k] = work[pivot];
+                work[pivot] = temp2;
+                negative = !negative;
+            }
+            long[] rowK = work[k];
+            det = engine.multiply(det, rowK[k]);
+            invPivot[k] = engine.inverse(rowK[k]);
+            for (int i = k + 1; i < Nrows; i++) {
+                long[] rowI = work[i];
+                if (rowI[k] == 0) {
+                    continue;
+                }
+                long f = engine.multiply(rowI[k], invPivot[k]);
+                rowI[k] = 0;
+                for (int j = k + 1; j < Ncols; j++) {
+                    if (rowK[j] != 0) {
+                        rowI[j] = engine.subtract(rowI[j], engine.multiply(f, rowK[j]));
+                    }
+                }
+                bwork[i] = engine.subtract(bwork[i], engine.multiply(f, bwork[k]));
+            }
+        }
+        if (negative) {
+            det = engine.negate(det);
+        }
+
+        // Back substitution
+        for (int i = Ncols - 1; i >= 0; i--) {
+            long[] rowI = work[i];
+            long sum = 0;
+            for (int j = i + 1; j < Ncols; j++) {
+                if (rowI[j] != 0) {
+                    sum = engine.add(sum, engine.multiply(rowI[j], y[j]));
+                }
+            }
+            y[i] = engine.multiply(engine.subtract(bwork[i], sum), invPivot[i]);
+        }
+
+        detResidue = engine.fromMontgomery(det);
+        for (int i = 0; i < Ncols; i++) {
+            yResidues[i] = engine.fromMontgomery(engine.multiply(y[i], det));
+        }
+
+        // Local Reconstruction
+        if (factor != null) {
+            detRes = new BigRational(BigInteger.valueOf(detResidue).multiply(factor));
+            yRes = new BigRational[Ncols];
+            for (int i = 0; i < Ncols; i++) {
+                yRes[i] = (yResidues[i] == 0) ? BigRational.ZERO : new BigRational(BigInteger.valueOf(yResidues[i]).multiply(factor));
+            }
+        }
+    }
+
+    /**
+     * Records a zero residue of det(A), for a prime that divides det(A).
+     * @throws InconsistentLinearSystemException Thrown when the task combines its residues with large moduli, where an unlucky prime cannot be replaced
+     */
+    private void singularResidue() throws InconsistentLinearSystemException {
+        if (factor != null) {
+            throw new InconsistentLinearSystemException("Singular system. Cannot proceed.");
+        }
+        detResidue = 0;
+        Arrays.fill(yResidues, 0);
+    }
+
+    /**
+     * Allocates the word-sized workspace, reusing it across invocations when
+     * the dimensions of the residue system have not changed.
+     */
+    private void allocateWorkspace() {
+        if (work == null || work.length != Nrows || work[0].length != Ncols) {
+            work = new long[Nrows][Ncols];
+            bwork = new long[Nrows];
+            invPivot = new long[Ncols];
+            y = new long[Ncols];
+            yResidues = new long[Ncols];
+        }
+    }
+
     private BigRational[] mod(BigRational[] b, BigInteger mod) throws InternalErrorException {
         BigRational[] newb = new BigRational[Nrows];
         int indexI = 0;
@@ -194,6 +373,23 @@ public class ModularSolverParallelTask implements Callable<Object> {
         return detRes;
     }
 
+    /**
+     * Returns the residue of det(A) computed by the word-sized residue engine.
+     * @return The canonical residue of the determinant modulo this task's prime
+     */
+    public long getDetResidue() {
+        return detResidue;
+    }
+
+    /**
+     * Returns the residues of det(A)*x computed by the word-sized residue engine.
+     * The array is reused by subsequent invocations of the task.
+     * @return The canonical residues of det(A)*x modulo this task's prime
+     */
+    public long[] getyResidues() {
+        return yResidues;
+    }
+
     /**
      * The array of the semi-combined residual solutions.
      * @return An array of BigRational object containing such solutions
@@ -0,0 +1,110 @@
+package LinearSystemSolver;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import DataStructures.BigRational;
+import DataStructures.Tuple;
+
+public class ModularSolverTest {
+
+    /**
+     * The largest prime below 2^62, which is the first prime used by the
+     * word-sized moduli modes.
+     */
+    private static BigInteger firstWordPrime() {
+        BigInteger candidate = BigInteger.ONE.shiftLeft(MontgomeryModulus.MAX_BIT_LENGTH).subtract(BigInteger.ONE);
+        while (!candidate.isProbablePrime(100)) {
+            candidate = candidate.subtract(BigInteger.valueOf(2));
+        }
+        return candidate;
+    }
+
+    private static BigRational[] solve(int moduliMode, BigRational[][] A, BigRational[] b) throws Exception {
+        ModularSolver solver = new ModularSolver(2, moduliMode);
+        try {
+            solver.initialise(A, new ArrayList<Tuple<Integer, Integer>>(), new HashSet<Integer>(), 1, BigInteger.ONE, BigRational.ONE);
+            return solver.solve(b);
+        } finally {
+            solver.shutdown();
+        }
+    }
+
+    /**
+     * Every word-sized mode must give the exact solution of a rational system.
+     */
+    @Test
+    public void testAgainstSimpleSolver() throws Exception {
+        Random random = new Random(3);
+        int n = 6;
+        BigRational[][] A = new BigRational[n][n];
+        BigRational[] b = new BigRational[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                A[i][j] = (random.nextInt(3) == 0) ? BigRational.ZERO : new BigRational(random.nextInt(2000) - 1000, random.nextInt(9) + 1);
+            }
+            A[i][i] = A[i][i].add(new BigRational(5000));
+            b[i] = new BigRational(random.nextInt(100), random.nextInt(9) + 1);
+        }
+        BigRational[][] reference = new BigRational[n][];
+        for (int i = 0; i < n; i++) {
+            reference[i] = A[i].clone();
+        }
+        SimpleSolver simple = new SimpleSolver();
+        simple.initialise(reference);
+        BigRational[] expected = simple.solve(b.clone());
+
+        int[] modes = {ModularSolver.WORD_SIZED_MODULI, ModularSolver.EARLY_TERMINATION, ModularSolver.EARLY_TERMINATION_VERIFIED};
+        for (int mode : modes) {
+            assertArrayEquals(expected, solve(mode, A, b.clone()));
+        }
+    }
+
+    @Test
+    public void testUnluckyPrime() throws Exception {
+        // det(A) = p, so the residue system of the first prime is singular
+        BigInteger p = firstWordPrime();
+        BigRational[][] A = {
+            {new BigRational(p), BigRational.ZERO, BigRational.ZERO},
+            {BigRational.ONE, BigRational.ONE, BigRational.ZERO},
+            {BigRational.ZERO, new BigRational(2), new BigRational(3)}
+        };
+        BigRational[] b = {BigRational.ONE, new BigRational(2), new BigRational(5)};
+        BigRational x0 = new BigRational(BigInteger.ONE, p);
+        BigRational x1 = new BigRational(2).subtract(x0);
+        BigRational x2 = new BigRational(5).subtract(x1.multiply(new BigRational(2))).divide(new BigRational(3));
+
+        int[] modes = {ModularSolver.WORD_SIZED_MODULI, ModularSolver.EARLY_TERMINATION, ModularSolver.EARLY_TERMINATION_VERIFIED};
+        for (int mode : modes) {
+            BigRational[] x = solve(mode, A, b);
+            assertEquals(x0, x[0]);
+            assertEquals(x1, x[1]);
+            assertEquals(x2, x[2]);
+        }
+    }
+
+    @Test
+    public void testSingularSystem() throws Exception {
+        BigRational[][] A = {
+            {BigRational.ONE, new BigRational(2)},
+            {new BigRational(2), new BigRational(4)}
+        };
+        BigRational[] b = {BigRational.ONE, new BigRational(2)};
+
+        int[] modes = {ModularSolver.WORD_SIZED_MODULI, ModularSolver.EARLY_TERMINATION};
+        for (int mode : modes) {
+            try {
+                solve(mode, A, b);
+                fail("A singular system was solved");
+            } catch (Exception e) {
+                assertTrue(e.getMessage().contains("Singular system"));
+            }
+        }
+    }
+}
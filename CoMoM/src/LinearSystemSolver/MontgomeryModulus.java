@@ -0,0 +1,201 @@
+package LinearSystemSolver;
+
+import java.math.BigInteger;
+
+/**
+ * The MontgomeryModulus object implements arithmetic modulo an odd prime that
+ * fits in a machine word (at most 62 bits). Residues are stored as longs in
+ * Montgomery form (a * 2^64 mod m), so that multiplication needs no division
+ * and no object allocation. It is used by ModularSolverParallelTask to solve
+ * residue systems without resorting to BigRational arithmetic.
+ */
+class MontgomeryModulus {
+
+    /**
+     * The largest modulus bitlength for which the REDC intermediate values
+     * are guaranteed to fit in a signed long.
+     */
+    static final int MAX_BIT_LENGTH = 62;
+    private static final long LOW_MASK = 0xFFFFFFFFL;
+    private final long m;
+    /**
+     * -m^(-1) mod 2^64
+     */
+    private final long mPrime;
+    /**
+     * 2^128 mod m, used for entering the Montgomery domain.
+     */
+    private final long r2;
+    /**
+     * The value 1 in Montgomery form.
+     */
+    private final long one;
+
+    /**
+     * Creates a MontgomeryModulus object for the given modulus.
+     * @param modulus An odd prime of at most MAX_BIT_LENGTH bits
+     */
+    MontgomeryModulus(BigInteger modulus) {
+        if (!fits(modulus)) {
+            throw new ArithmeticException("Modulus " + modulus + " is not an odd number of at most " + MAX_BIT_LENGTH + " bits.");
+        }
+        this.m = modulus.longValue();
+        // Newton iteration: each step doubles the number of correct low bits
+        long inv = m;
+        for (int i = 0; i < 5; i++) {
+            inv *= 2 - m * inv;
+        }
+        this.mPrime = -inv;
+        this.r2 = BigInteger.ONE.shiftLeft(128).mod(modulus).longValue();
+        this.one = BigInteger.ONE.shiftLeft(64).mod(modulus).longValue();
+    }
+
+    /**
+     * Checks whether a modulus can be handled by a MontgomeryModulus object.
+     * @param modulus The modulus
+     * @return True if the modulus is odd and at most MAX_BIT_LENGTH bits long
+     */
+    static boolean fits(BigInteger modulus) {
+        return modulus.signum() > 0 && modulus.bitLength() <= MAX_BIT_LENGTH && modulus.testBit(0) && !modulus.equals(BigInteger.ONE);
+    }
+
+    /**
+     * Returns the modulus.
+     * @return The modulus as a long
+     */
+    long getModulus() {
+        return m;
+    }
+
+    /**
+     * Returns the value 1 in Montgomery form.
+     * @return The Montgomery form of 1
+     */
+    long one() {
+        return one;
+    }
+
+    /**
+     * Reduces a signed long and converts it to Montgomery form.
+     * @param a Any long value
+     * @return The Montgomery form of (a mod m)
+     */
+    long toMontgomery(long a) {
+        long r = a % m;
+        if (r < 0) {
+            r += m;
+        }
+        return multiply(r, r2);
+    }
+
+    /**
+     * Reduces a BigInteger and converts it to Montgomery form.
+     * @param a Any BigInteger value
+     * @return The Montgomery form of (a mod m)
+     */
+    long toMontgomery(BigInteger a) {
+        if (a.bitLength() < 64) {
+            return toMontgomery(a.longValue());
+        }
+        return multiply(a.mod(BigInteger.valueOf(m)).longValue(), r2);
+    }
+
+    /**
+     * Converts a residue from Montgomery form back to its canonical
+     * representative in [0, m).
+     * @param a A residue in Montgomery form
+     * @return The canonical residue
+     */
+    long fromMontgomery(long a) {
+        return redc(0, a);
+    }
+
+    /**
+     * Multiplies two residues in Montgomery form.
+     * @param a The first residue
+     * @param b The second residue
+     * @return The Montgomery form of the product
+     */
+    long multiply(long a, long b) {
+        return redc(multiplyHigh(a, b), a * b);
+    }
+
+    /**
+     * Adds two residues (of either form).
+     * @param a The first residue
+     * @param b The second residue
+     * @return The sum modulo m
+     */
+    long add(long a, long b) {
+        long s = a + b;
+        return (s >= m) ? s - m : s;
+    }
+
+    /**
+     * Subtracts two residues (of either form).
+     * @param a The first residue
+     * @param b The second residue
+     * @return The difference modulo m
+     */
+    long subtract(long a, long b) {
+        long s = a - b;
+        return (s < 0) ? s + m : s;
+    }
+
+    /**
+     * Negates a residue (of either form).
+     * @param a The residue
+     * @return The negation modulo m
+     */
+    long negate(long a) {
+        return (a == 0) ? 0 : m - a;
+    }
+
+    /**
+     * Computes the multiplicative inverse of a non-zero residue in Montgomery form.
+     * @param a The residue in Montgomery form
+     * @return The Montgomery form of the inverse
+     * @throws ArithmeticException Thrown when a is zero modulo m
+     */
+    long inverse(long a) {
+        long r0 = m, r1 = fromMontgomery(a);
+        long s0 = 0, s1 = 1;
+        if (r1 == 0) {
+            throw new ArithmeticException("Zero has no inverse modulo " + m);
+        }
+        while (r1 != 0) {
+            long q = r0 / r1;
+            long tmp = r0 - q * r1;
+            r0 = r1;
+            r1 = tmp;
+            tmp = s0 - q * s1;
+            s0 = s1;
+            s1 = tmp;
+        }
+        return toMontgomery(s0);
+    }
+
+    /**
+     * Montgomery reduction of the 128-bit value (hi, lo), where hi:lo < m * 2^64.
+     */
+    private long redc(long hi, long lo) {
+        long u = lo * mPrime;
+        // (hi:lo + u*m) / 2^64; the low words sum to zero, carrying out iff lo != 0
+        long t = hi + multiplyHigh(u, m) + ((lo != 0) ? 1 : 0);
+        return (t >= m) ? t - m : t;
+    }
+
+    /**
+     * Returns the upper 64 bits of the unsigned 128-bit product of a and b.
+     */
+    private static long multiplyHigh(long a, long b) {
+        long a0 = a & LOW_MASK, a1 = a >>> 32;
+        long b0 = b & LOW_MASK, b1 = b >>> 32;
+        long p00 = a0 * b0;
+        long p01 = a0 * b1;
+        long p10 = a1 * b0;
+        long p11 = a1 * b1;
+        long mid = (p00 >>> 32) + (p01 & LOW_MASK) + (p10 & LOW_MASK);
+        return p11 + (p01 >>> 32) + (p10 >>> 32) + (mid >>> 32);
+    }
+}
@@ -0,0 +1,62 @@
+package LinearSystemSolver;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MontgomeryModulusTest {
+
+    private static final BigInteger[] PRIMES = {
+        BigInteger.valueOf(3),
+        BigInteger.valueOf(1000003),
+        BigInteger.valueOf(2147483647),
+        BigInteger.ONE.shiftLeft(61).subtract(BigInteger.ONE),
+        BigInteger.ONE.shiftLeft(62).subtract(BigInteger.valueOf(57))
+    };
+
+    @Test
+    public void testFits() {
+        assertTrue(MontgomeryModulus.fits(PRIMES[PRIMES.length - 1]));
+        assertFalse(MontgomeryModulus.fits(BigInteger.ONE));
+        assertFalse(MontgomeryModulus.fits(BigInteger.valueOf(1000000)));
+        assertFalse(MontgomeryModulus.fits(BigInteger.ONE.shiftLeft(62).add(BigInteger.ONE)));
+    }
+
+    /**
+     * Every operation must agree with BigInteger arithmetic modulo the prime,
+     * including for signed and multi-word inputs.
+     */
+    @Test
+    public void testArithmetic() {
+        Random random = new Random(42);
+        for (BigInteger p : PRIMES) {
+            MontgomeryModulus e = new MontgomeryModulus(p);
+            assertEquals(p.longValue(), e.getModulus());
+            assertEquals(1, e.fromMontgomery(e.one()));
+            for (int n = 0; n < 1000; n++) {
+                BigInteger a = new BigInteger(90, random).subtract(BigInteger.ONE.shiftLeft(89));
+                long b = random.nextLong();
+                long am = e.toMontgomery(a), bm = e.toMontgomery(b);
+                BigInteger aModP = a.mod(p), bModP = BigInteger.valueOf(b).mod(p);
+                assertEquals(aModP.longValue(), e.fromMontgomery(am));
+                assertEquals(bModP.longValue(), e.fromMontgomery(bm));
+                assertEquals(aModP.multiply(bModP).mod(p).longValue(), e.fromMontgomery(e.multiply(am, bm)));
+                assertEquals(aModP.add(bModP).mod(p).longValue(), e.fromMontgomery(e.add(am, bm)));
+                assertEquals(aModP.subtract(bModP).mod(p).longValue(), e.fromMontgomery(e.subtract(am, bm)));
+                assertEquals(aModP.negate().mod(p).longValue(), e.fromMontgomery(e.negate(am)));
+                if (bModP.signum() != 0) {
+                    assertEquals(bModP.modInverse(p).longValue(), e.fromMontgomery(e.inverse(bm)));
+                }
+            }
+        }
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testInverseOfZero() {
+        MontgomeryModulus e = new MontgomeryModulus(PRIMES[1]);
+        e.inverse(e.toMontgomery(0));
+    }
+}
@@ -18,6 +18,7 @@
 package LinearSystemSolver;
 
 import DataStructures.BigRational;
+import DataStructures.BigRationalAccumulator;
 import Exceptions.InconsistentLinearSystemException;
 import Utilities.MiscFunctions;
 import javax.naming.OperationNotSupportedException;
@@ -103,23 +104,25 @@ public class SimpleSolver extends Solver {
 
             // pivot within A and b
             for (int i = p + 1; i < N; i++) {
+                BigRational f = A[i][p].divide(element);
                 if (!b[i].isUndefined()) {
-                    b[i] = b[i].subtract(A[i][p].divide(element).multiply(b[p]));
+                    b[i] = b[i].subtractProduct(f, b[p]);
                 }
                 for (int j = p + 1; j < N; j++) {
-                    A[i][j] = A[i][j].subtract(A[i][p].divide(element).multiply(A[p][j]));
+                    A[i][j] = A[i][j].subtractProduct(f, A[p][j]);
                 }
             }
         }
 
         // back substitution
         BigRational[] x = new BigRational[N];
+        BigRationalAccumulator sum = new BigRationalAccumulator();
         for (int i = N - 1; i >= 0; i--) {
-            BigRational sum = BigRational.ZERO;
+            sum.reset();
             for (int j = i + 1; j < N; j++) {
                 if (!A[i][j].isZero()) {
                     if (!x[j].isUndefined()) {
-                        sum = sum.add(A[i][j].multiply(x[j]));
+                        sum.addProduct(A[i][j], x[j]);
                     } else {
                         // x[i] must become undefined in this case
                         x[i] = new BigRational(-1);
@@ -134,7 +137,7 @@ public class SimpleSolver extends Solver {
                 continue;
             }
             if (!A[i][i].isZero() && (!b[i].isUndefined())) {
-                x[i] = (b[i].subtract(sum)).divide(A[i][i]);
+                x[i] = (b[i].subtract(sum.toBigRational())).divide(A[i][i]);
             } else {
                 //x[i] = BigRational.ZERO;
                 x[i] = new BigRational(-1);
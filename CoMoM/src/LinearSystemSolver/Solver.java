@@ -151,7 +151,7 @@ public class Solver implements SolverInterface {
     @Override
     public void goToULevel(int level) {
         int i, j;
-        BigRational delta = new BigRational(level - curULevel);
+        BigRational delta = BigRational.valueOf(level - curULevel);
 
         if (!delta.isZero()) {
             for (Tuple<Integer, Integer> tuple : UList) {
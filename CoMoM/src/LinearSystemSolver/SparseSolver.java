@@ -0,0 +1,479 @@
+package LinearSystemSolver;
+
+import DataStructures.BigRational;
+import DataStructures.BigRationalAccumulator;
+import DataStructures.CompressedRowMatrix;
+import DataStructures.Tuple;
+import Exceptions.InconsistentLinearSystemException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.naming.OperationNotSupportedException;
+
+/**
+ * Class which defines a SparseSolver object, which solves the system using a
+ * sparse LU factorisation with exact arithmetic.
+ *
+ * A is held in compressed sparse row form, so the solver needs memory in
+ * O(nnz + fill) rather than a dense copy of A. When A is assembled as a
+ * CompressedRowMatrix it is never held densely at all. As the arithmetic is
+ * exact, any non-zero element is an acceptable pivot, so pivots are chosen
+ * purely to limit fill: the column with the fewest remaining non-zeros, and
+ * within it the shortest row (a Markowitz-style ordering computed during the
+ * elimination).
+ * The factors are reused for every solution at the same level of UList and
+ * recomputed when the level changes.
+ *
+ * Columns that become empty during the elimination are treated like the zero
+ * pivots of SimpleSolver: their unknowns, and everything that depends on them
+ * or on undefined elements of b, are returned as undefined.
+ */
+public class SparseSolver extends Solver {
+
+    /**
+     * A in compressed sparse row form: the non-zeros of row i are
+     * values[rowStart[i] .. rowStart[i + 1] - 1], in the columns columns[..].
+     */
+    private int[] rowStart, columns;
+    private BigRational[] values;
+    /**
+     * The position in values of each UList element.
+     */
+    private int[] updatePositions;
+    /**
+     * The level of UList at which the current factors were computed, or -1 if
+     * there are no factors.
+     */
+    private int factorisedLevel;
+    /**
+     * The elimination operations of L, in order: b[lTo[k]] -= lFactor[k] * b[lFrom[k]].
+     */
+    private List<Integer> lFrom, lTo;
+    private List<BigRational> lFactor;
+    /**
+     * The rows of U, in pivot order, together with the original row and the
+     * column of each pivot.
+     */
+    private List<SparseRow> uRows;
+    private int[] pivotRows, pivotColumns;
+    private int pivots;
+    /**
+     * The columns for which no pivot could be found.
+     */
+    private Set<Integer> emptyColumns;
+
+    /**
+     * Constructs a SparseSolver object.
+     */
+    public SparseSolver() {
+        super();
+        System.out.println("Using sparse solver");
+    }
+
+    /**
+     * Initialises the solver object, storing A in sparse form. Unlike the
+     * dense solvers no copy of A is kept; only the UList elements of A are
+     * updated in place by goToULevel(..).
+     * @param A The matrix A of the linear system Ax = b
+     * @param UList The list containg these positions as Tuple objects
+     * @param uncomputables The set of indexes of possible zero-columns of A
+     * @throws OperationNotSupportedException Thrown when the matrix A is not square
+     */
+    @Override
+    public void initialise(BigRational[][] A, List<Tuple<Integer, Integer>> UList, Set<Integer> uncomputables) throws OperationNotSupportedException {
+        t.start();
+        this.A = A;
+        N = A.length;
+        if (A[0].length != N) {
+            throw new OperationNotSupportedException("Matrix A of linear system is not square.");
+        }
+        this.UList = UList;
+        this.uncomputables = uncomputables;
+        curULevel = 0;
+        factorisedLevel = -1;
+
+        // UList positions are kept in the structure even if they are currently zero
+        Set<Long> updated = updatedPositions(UList);
+        rowStart = new int[N + 1];
+        int nnz = 0;
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                if (!A[i][j].isZero() || updated.contains((long) i * N + j)) {
+                    nnz++;
+                }
+            }
+            rowStart[i + 1] = nnz;
+        }
+        columns = new int[nnz];
+        values = new BigRational[nnz];
+        int k = 0;
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                if (!A[i][j].isZero() || updated.contains((long) i * N + j)) {
+                    columns[k] = j;
+                    values[k++] = A[i][j];
+                }
+            }
+        }
+        locateUpdates();
+        t.pause();
+    }
+
+    /**
+     * Initialises the solver object from a matrix assembled in compressed row
+     * form, so that A is never held densely. The matrix is copied, and
+     * goToULevel(..) only updates the copy.
+     * @param A The matrix A of the linear system Ax = b
+     * @param UList The list containg the positions of A to be updated as Tuple objects
+     * @param uncomputables The set of indexes of possible zero-columns of A
+     */
+    public void initialise(CompressedRowMatrix A, List<Tuple<Integer, Integer>> UList, Set<Integer> uncomputables) {
+        t.start();
+        this.A = null;
+        N = A.size();
+        this.UList = UList;
+        this.uncomputables = uncomputables;
+        curULevel = 0;
+        factorisedLevel = -1;
+
+        Set<Long> updated = updatedPositions(UList);
+        int[] sourceColumns = A.getColumns();
+        BigRational[] sourceValues = A.getValues();
+        rowStart = new int[N + 1];
+        columns = new int[A.nonZeros()];
+        values = new BigRational[A.nonZeros()];
+        int nnz = 0;
+        for (int i = 0; i < N; i++) {
+            // The rows are stored in the order their elements were written, so sort them by column
+            long[] keys = new long[A.rowEnd(i) - A.rowStart(i)];
+            int size = 0;
+            for (int k = A.rowStart(i); k < A.rowEnd(i); k++) {
+                if (!sourceValues[k].isZero() || updated.contains((long) i * N + sourceColumns[k])) {
+                    keys[size++] = ((long) sourceColumns[k] << 32) | k;
+                }
+            }
+            Arrays.sort(keys, 0, size);
+            for (int e = 0; e < size; e++) {
+                columns[nnz] = (int) (keys[e] >>> 32);
+                values[nnz++] = sourceValues[(int) keys[e]];
+            }
+            rowStart[i + 1] = nnz;
+        }
+        locateUpdates();
+        t.pause();
+    }
+
+    private Set<Long> updatedPositions(List<Tuple<Integer, Integer>> UList) {
+        Set<Long> updated = new HashSet<Long>();
+        for (Tuple<Integer, Integer> tuple : UList) {
+            updated.add((long) tuple.getX() * N + tuple.getY());
+        }
+        return updated;
+    }
+
+    private void locateUpdates() {
+        updatePositions = new int[UList.size()];
+        int k = 0;
+        for (Tuple<Integer, Integer> tuple : UList) {
+            updatePositions[k++] = position(tuple.getX(), tuple.getY());
+        }
+    }
+
+    /**
+     * Sets A equal to the original A used during initialisation plus "level"
+     * increments in the positions of UList. A dense A is updated in place.
+     * @param level The number of applications with regard to the original A
+     */
+    @Override
+    public void goToULevel(int level) {
+        BigRational delta = BigRational.valueOf(level - curULevel);
+        if (!delta.isZero()) {
+            int k = 0;
+            for (Tuple<Integer, Integer> tuple : UList) {
+                int p = updatePositions[k++];
+                values[p] = values[p].add(delta);
+                if (A != null) {
+                    A[tuple.getX()][tuple.getY()] = values[p];
+                }
+            }
+            curULevel = level;
+        }
+    }
+
+    /**
+     * Solves the linear system using the sparse LU factors of A
+     * @param b The vector b of the linear system Ax = b
+     * @return A vector containing the solutions of the linear system
+     * @throws OperationNotSupportedException Thrown when the system cannot be solved due to bad vector b size
+     * @throws InconsistentLinearSystemException Thrown when b is zero or undefined everywhere
+     */
+    @Override
+    public BigRational[] solve(BigRational[] b) throws OperationNotSupportedException, InconsistentLinearSystemException {
+        t.start();
+        if (N != b.length) {
+            throw new OperationNotSupportedException("Wrong size of vector b.");
+        }
+        boolean existsDefinedOrNonZero = false;
+        for (int i = 0; i < N; i++) {
+            if (!b[i].isUndefined() && !b[i].isZero()) {
+                existsDefinedOrNonZero = true;
+                break;
+            }
+        }
+        if (!existsDefinedOrNonZero) {
+            throw new InconsistentLinearSystemException("Singular system. Cannot proceed.");
+        }
+        if (factorisedLevel != curULevel) {
+            factorise();
+        }
+
+        BigRational[] w = new BigRational[N];
+        boolean[] undefined = new boolean[N];
+        for (int i = 0; i < N; i++) {
+            w[i] = b[i];
+            undefined[i] = b[i].isUndefined();
+        }
+        for (int k = 0; k < lTo.size(); k++) {
+            int from = lFrom.get(k), to = lTo.get(k);
+            if (undefined[from]) {
+                undefined[to] = true;
+            } else if (!undefined[to] && !w[from].isZero()) {
+                w[to] = w[to].subtractProduct(lFactor.get(k), w[from]);
+            }
+        }
+
+        BigRational[] x = new BigRational[N];
+        BigRationalAccumulator sum = new BigRationalAccumulator();
+        for (Integer c : emptyColumns) {
+            x[c] = undefinedValue();
+        }
+        for (int k = pivots - 1; k >= 0; k--) {
+            int p = pivotRows[k], c = pivotColumns[k];
+            if (undefined[p]) {
+                x[c] = undefinedValue();
+                continue;
+            }
+            SparseRow row = uRows.get(k);
+            sum.reset();
+            sum.add(w[p]);
+            BigRational pivot = null;
+            boolean undefinedTerm = false;
+            for (int e = 0; e < row.size; e++) {
+                int j = row.columns[e];
+                if (j == c) {
+                    pivot = row.values[e];
+                } else if (x[j].isUndefined()) {
+                    undefinedTerm = true;
+                    break;
+                } else {
+                    sum.subtractProduct(row.values[e], x[j]);
+                }
+            }
+            x[c] = undefinedTerm ? undefinedValue() : sum.toBigRational().divide(pivot);
+        }
+        t.pause();
+        return x;
+    }
+
+    private static BigRational undefinedValue() {
+        BigRational u = new BigRational(-1);
+        u.makeUndefined();
+        return u;
+    }
+
+    /**
+     * Returns the position in values of element (i, j) of A.
+     */
+    private int position(int i, int j) {
+        for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+            if (columns[k] == j) {
+                return k;
+            }
+        }
+        throw new IllegalStateException("Element (" + i + ", " + j + ") is not stored.");
+    }
+
+    /**
+     * Computes the sparse LU factors of the current A.
+     */
+    private void factorise() {
+        SparseRow[] rows = new SparseRow[N];
+        List<Set<Integer>> columnRows = new ArrayList<Set<Integer>>(N);
+        for (int j = 0; j < N; j++) {
+            columnRows.add(new HashSet<Integer>());
+        }
+        for (int i = 0; i < N; i++) {
+            rows[i] = new SparseRow(rowStart[i + 1] - rowStart[i]);
+            for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+                if (!values[k].isZero()) {
+                    rows[i].append(columns[k], values[k]);
+                    columnRows.get(columns[k]).add(i);
+                }
+            }
+        }
+        // Active columns ordered by their number of non-zeros in the active rows
+        TreeSet<Long> columnCounts = new TreeSet<Long>();
+        for (int j = 0; j < N; j++) {
+            columnCounts.add(countKey(columnRows.get(j).size(), j));
+        }
+
+        lFrom = new ArrayList<Integer>();
+        lTo = new ArrayList<Integer>();
+        lFactor = new ArrayList<BigRational>();
+        uRows = new ArrayList<SparseRow>();
+        pivotRows = new int[N];
+        pivotColumns = new int[N];
+        pivots = 0;
+        emptyColumns = new HashSet<Integer>();
+
+        while (!columnCounts.isEmpty()) {
+            long key = columnCounts.pollFirst();
+            int c = (int) key;
+            Set<Integer> candidates = columnRows.get(c);
+            if (candidates.isEmpty()) {
+                emptyColumns.add(c);
+                continue;
+            }
+            int p = -1;
+            for (Integer i : candidates) {
+                if (p < 0 || rows[i].size < rows[p].size) {
+                    p = i;
+                }
+            }
+            SparseRow pivotRow = rows[p];
+            BigRational pivot = pivotRow.get(c);
+
+            // Row p leaves the active submatrix
+            for (int e = 0; e < pivotRow.size; e++) {
+                int j = pivotRow.columns[e];
+                if (j != c) {
+                    changeCount(columnCounts, columnRows, j, p, false);
+                }
+            }
+            candidates.remove(p);
+
+            for (Integer i : new ArrayList<Integer>(candidates)) {
+                BigRational f = rows[i].get(c).divide(pivot);
+                lFrom.add(p);
+                lTo.add(i);
+                lFactor.add(f);
+                SparseRow updated = rows[i].subtractMultiple(f, pivotRow, c);
+                // Update the column structure for fill-in and cancellation
+                int a = 0, z = 0;
+                while (a < rows[i].size || z < updated.size) {
+                    int ja = (a < rows[i].size) ? rows[i].columns[a] : Integer.MAX_VALUE;
+                    int jz = (z < updated.size) ? updated.columns[z] : Integer.MAX_VALUE;
+                    if (ja == jz) {
+                        a++;
+                        z++;
+                    } else if (ja < jz) {
+                        if (ja != c) {
+                            changeCount(columnCounts, columnRows, ja, i, false);
+                        }
+                        a++;
+                    } else {
+                        changeCount(columnCounts, columnRows, jz, i, true);
+                        z++;
+                    }
+                }
+                rows[i] = updated;
+            }
+            candidates.clear();
+
+            uRows.add(pivotRow);
+            pivotRows[pivots] = p;
+            pivotColumns[pivots++] = c;
+            rows[p] = null;
+        }
+        factorisedLevel = curULevel;
+    }
+
+    private static long countKey(int count, int column) {
+        return ((long) count << 32) | column;
+    }
+
+    /**
+     * Adds or removes row i from the non-zero structure of column j, keeping
+     * the ordering of active columns up to date.
+     */
+    private static void changeCount(TreeSet<Long> columnCounts, List<Set<Integer>> columnRows, int j, int i, boolean add) {
+        Set<Integer> set = columnRows.get(j);
+        if (columnCounts.remove(countKey(set.size(), j))) {
+            if (add) {
+                set.add(i);
+            } else {
+                set.remove(i);
+            }
+            columnCounts.add(countKey(set.size(), j));
+        }
+    }
+
+    /**
+     * A sparse row with its non-zeros sorted by column.
+     */
+    private static class SparseRow {
+
+        private int[] columns;
+        private BigRational[] values;
+        private int size;
+
+        SparseRow(int capacity) {
+            columns = new int[Math.max(capacity, 1)];
+            values = new BigRational[Math.max(capacity, 1)];
+        }
+
+        void append(int column, BigRational value) {
+            if (size == columns.length) {
+                int[] c = new int[2 * size];
+                BigRational[] v = new BigRational[2 * size];
+                System.arraycopy(columns, 0, c, 0, size);
+                System.arraycopy(values, 0, v, 0, size);
+                columns = c;
+                values = v;
+            }
+            columns[size] = column;
+            values[size++] = value;
+        }
+
+        BigRational get(int column) {
+            for (int e = 0; e < size; e++) {
+                if (columns[e] == column) {
+                    return values[e];
+                }
+            }
+            return BigRational.ZERO;
+        }
+
+        /**
+         * Computes this - f * other, leaving out column skip and any element
+         * that cancels to zero.
+         */
+        SparseRow subtractMultiple(BigRational f, SparseRow other, int skip) {
+            SparseRow result = new SparseRow(size + other.size);
+            int a = 0, o = 0;
+            while (a < size || o < other.size) {
+                int ja = (a < size) ? columns[a] : Integer.MAX_VALUE;
+                int jo = (o < other.size) ? other.columns[o] : Integer.MAX_VALUE;
+                BigRational value;
+                int j;
+                if (ja == jo) {
+                    j = ja;
+                    value = values[a++].subtractProduct(f, other.values[o++]);
+                } else if (ja < jo) {
+                    j = ja;
+                    value = values[a++];
+                } else {
+                    j = jo;
+                    value = f.multiply(other.values[o++]).negate();
+                }
+                if (j != skip && !value.isZero()) {
+                    result.append(j, value);
+                }
+            }
+            return result;
+        }
+    }
+}
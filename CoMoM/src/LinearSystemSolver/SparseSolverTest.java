@@ -0,0 +1,198 @@
+package LinearSystemSolver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import DataStructures.BigRational;
+import DataStructures.CompressedRowMatrix;
+import DataStructures.Tuple;
+
+public class SparseSolverTest {
+
+    private static BigRational[][] copy(BigRational[][] A) {
+        BigRational[][] copy = new BigRational[A.length][];
+        for (int i = 0; i < A.length; i++) {
+            copy[i] = A[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Writes A in compressed row form, with the elements of each row in a
+     * random order and the positions of UList stored even where A is zero.
+     */
+    private static CompressedRowMatrix compressed(BigRational[][] A, List<Tuple<Integer, Integer>> UList, Random random) {
+        Set<Integer> updated = new HashSet<Integer>();
+        for (Tuple<Integer, Integer> tuple : UList) {
+            updated.add(tuple.getX() * A.length + tuple.getY());
+        }
+        CompressedRowMatrix matrix = new CompressedRowMatrix(A.length);
+        for (int i = 0; i < A.length; i++) {
+            List<Integer> row = new ArrayList<Integer>();
+            for (int j = 0; j < A.length; j++) {
+                if (!A[i][j].isZero() || updated.contains(i * A.length + j)) {
+                    row.add(j);
+                }
+            }
+            Collections.shuffle(row, random);
+            for (int j : row) {
+                matrix.write(i, j, A[i][j]);
+            }
+        }
+        return matrix;
+    }
+
+    private static BigRational undefined() {
+        BigRational u = new BigRational(-1);
+        u.makeUndefined();
+        return u;
+    }
+
+    /**
+     * The unknowns left undefined must be the same as those of SimpleSolver,
+     * and every other unknown must be equal.
+     */
+    private static void assertSameSolution(BigRational[] expected, BigRational[] x) {
+        assertEquals(expected.length, x.length);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(expected[i].isUndefined(), x[i].isUndefined());
+            if (!x[i].isUndefined()) {
+                assertEquals(expected[i], x[i]);
+            }
+        }
+    }
+
+    /**
+     * Solves the system with SimpleSolver and with SparseSolver initialised
+     * from both a dense matrix and a compressed row matrix.
+     */
+    private static void assertSolvesLikeSimpleSolver(BigRational[][] A, BigRational[] b, Random random) throws Exception {
+        List<Tuple<Integer, Integer>> UList = new ArrayList<Tuple<Integer, Integer>>();
+        SimpleSolver simple = new SimpleSolver();
+        simple.initialise(copy(A), UList, new HashSet<Integer>());
+        BigRational[] expected = simple.solve(b.clone());
+
+        SparseSolver dense = new SparseSolver();
+        dense.initialise(copy(A), UList, new HashSet<Integer>());
+        assertSameSolution(expected, dense.solve(b.clone()));
+
+        SparseSolver sparse = new SparseSolver();
+        sparse.initialise(compressed(A, UList, random), UList, new HashSet<Integer>());
+        assertSameSolution(expected, sparse.solve(b.clone()));
+    }
+
+    @Test
+    public void testAgainstSimpleSolver() throws Exception {
+        Random random = new Random(7);
+        for (int n = 1; n <= 10; n++) {
+            BigRational[][] A = new BigRational[n][n];
+            BigRational[] b = new BigRational[n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    // Mostly zeros, with a full diagonal so that most systems are regular
+                    A[i][j] = (i != j && random.nextInt(4) != 0) ? BigRational.ZERO : new BigRational(random.nextInt(40) + 1, random.nextInt(6) + 1);
+                }
+                b[i] = new BigRational(random.nextInt(50) - 25, random.nextInt(5) + 1);
+            }
+            assertSolvesLikeSimpleSolver(A, b, random);
+        }
+    }
+
+    /**
+     * Column 1 is empty, so its unknown is undefined, and the other unknowns
+     * solve the remaining consistent system.
+     */
+    @Test
+    public void testEmptyColumn() throws Exception {
+        BigRational[][] A = {
+            {new BigRational(2), BigRational.ZERO, BigRational.ZERO, BigRational.ZERO},
+            {BigRational.ONE, BigRational.ZERO, new BigRational(3), BigRational.ZERO},
+            {BigRational.ZERO, BigRational.ZERO, BigRational.ONE, new BigRational(2)},
+            {BigRational.ZERO, BigRational.ZERO, BigRational.ZERO, new BigRational(5)}
+        };
+        BigRational[] b = {new BigRational(4), new BigRational(-1), new BigRational(3), new BigRational(10)};
+        assertSolvesLikeSimpleSolver(A, b, new Random(3));
+
+        SparseSolver solver = new SparseSolver();
+        solver.initialise(copy(A), new ArrayList<Tuple<Integer, Integer>>(), new HashSet<Integer>());
+        BigRational[] x = solver.solve(b.clone());
+        assertTrue(x[1].isUndefined());
+        assertArrayEquals(new BigRational[]{new BigRational(2), new BigRational(-1), new BigRational(2)}, new BigRational[]{x[0], x[2], x[3]});
+    }
+
+    /**
+     * The unknowns 0 and 1 do not depend on the unknowns 2 and 3, so an
+     * undefined element of b only makes the second pair undefined.
+     */
+    @Test
+    public void testUndefinedElements() throws Exception {
+        BigRational[][] A = {
+            {new BigRational(3), BigRational.ONE, BigRational.ZERO, BigRational.ZERO},
+            {BigRational.ONE, new BigRational(2), BigRational.ZERO, BigRational.ZERO},
+            {BigRational.ZERO, BigRational.ONE, new BigRational(4), BigRational.ONE},
+            {BigRational.ONE, BigRational.ZERO, new BigRational(2), new BigRational(5)}
+        };
+        BigRational[] b = {new BigRational(5), new BigRational(5), new BigRational(7), undefined()};
+        assertSolvesLikeSimpleSolver(A, b, new Random(9));
+
+        SparseSolver solver = new SparseSolver();
+        solver.initialise(copy(A), new ArrayList<Tuple<Integer, Integer>>(), new HashSet<Integer>());
+        BigRational[] x = solver.solve(b.clone());
+        assertEquals(BigRational.ONE, x[0]);
+        assertEquals(new BigRational(2), x[1]);
+        assertTrue(x[2].isUndefined());
+        assertTrue(x[3].isUndefined());
+    }
+
+    @Test(expected = Exceptions.InconsistentLinearSystemException.class)
+    public void testUndefinedRhs() throws Exception {
+        SparseSolver solver = new SparseSolver();
+        solver.initialise(new BigRational[][]{{BigRational.ONE}}, new ArrayList<Tuple<Integer, Integer>>(), new HashSet<Integer>());
+        solver.solve(new BigRational[]{undefined()});
+    }
+
+    /**
+     * Steps A up through the levels of UList and back down. One position of
+     * UList is zero in A, so it is only in the structure because of UList.
+     * The factors are reused while the level stays the same.
+     */
+    @Test
+    public void testULevels() throws Exception {
+        BigRational[][] A = {
+            {new BigRational(4), BigRational.ONE, BigRational.ZERO, BigRational.ZERO},
+            {BigRational.ZERO, new BigRational(3), BigRational.ZERO, new BigRational(2)},
+            {BigRational.ONE, BigRational.ZERO, new BigRational(5), BigRational.ZERO},
+            {BigRational.ZERO, BigRational.ZERO, BigRational.ONE, new BigRational(6)}
+        };
+        List<Tuple<Integer, Integer>> UList = new ArrayList<Tuple<Integer, Integer>>();
+        UList.add(new Tuple<Integer, Integer>(0, 0));
+        UList.add(new Tuple<Integer, Integer>(2, 3));
+        UList.add(new Tuple<Integer, Integer>(3, 3));
+
+        SimpleSolver simple = new SimpleSolver();
+        simple.initialise(copy(A), UList, new HashSet<Integer>());
+        SparseSolver dense = new SparseSolver();
+        dense.initialise(copy(A), UList, new HashSet<Integer>());
+        SparseSolver sparse = new SparseSolver();
+        sparse.initialise(compressed(A, UList, new Random(5)), UList, new HashSet<Integer>());
+
+        int[] levels = {0, 1, 3, 3, 1, 0};
+        for (int level : levels) {
+            simple.goToULevel(level);
+            dense.goToULevel(level);
+            sparse.goToULevel(level);
+            BigRational[] b = {BigRational.ONE, new BigRational(2), new BigRational(level), new BigRational(1, 3)};
+            BigRational[] expected = simple.solve(b.clone());
+            assertSameSolution(expected, dense.solve(b.clone()));
+            assertSameSolution(expected, sparse.solve(b.clone()));
+        }
+    }
+}
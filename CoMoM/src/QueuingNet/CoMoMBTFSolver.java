@@ -1,5 +1,7 @@
 package QueuingNet;
 
+import java.io.File;
+
 import Basis.BTFCoMoMBasis;
 import DataStructures.QNModel;
 import Exceptions.BTFMatrixErrorException;
@@ -8,12 +10,32 @@ import Exceptions.InternalErrorException;
 import LinearSystem.BTF.BTFLinearSystem;
 
 public class CoMoMBTFSolver extends CoMoMSolver {
+	
+	private int nThreads;
 
 	public CoMoMBTFSolver(QNModel qnm) throws InternalErrorException, BTFMatrixErrorException, InconsistentLinearSystemException {
+		this(qnm, null);
+	}
+	
+	/**
+	 * @param qnm The model to be solved
+	 * @param factor_cache directory where the LUP decompositions of the X blocks are cached, or null
+	 */
+	public CoMoMBTFSolver(QNModel qnm, File factor_cache) throws InternalErrorException, BTFMatrixErrorException, InconsistentLinearSystemException {
+		this(qnm, factor_cache, 1);
+	}
+	
+	/**
+	 * @param qnm The model to be solved
+	 * @param factor_cache directory where the LUP decompositions of the X blocks are cached, or null
+	 * @param nThreads The number of threads on which independent steps of the solve are run
+	 */
+	public CoMoMBTFSolver(QNModel qnm, File factor_cache, int nThreads) throws InternalErrorException, BTFMatrixErrorException, InconsistentLinearSystemException {
 		super(qnm);
+		this.nThreads = (nThreads <= 1) ? 1 : nThreads;
 		
 		basis =  new BTFCoMoMBasis(qnm);		
-		system = new BTFLinearSystem(qnm, basis);
+		system = new BTFLinearSystem(qnm, basis, true, factor_cache, this.nThreads);
 	}
 
 	 /**
@@ -21,6 +43,10 @@ public class CoMoMBTFSolver extends CoMoMSolver {
      */
     @Override
     public void printWelcome() {
-        System.out.println("Using BTF CoMoM");
+        if (nThreads > 1) {
+            System.out.println("Using BTF CoMoM (" + nThreads + " threads)");
+        } else {
+            System.out.println("Using BTF CoMoM");
+        }
     }
 }
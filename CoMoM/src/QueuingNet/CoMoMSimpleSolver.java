@@ -6,14 +6,27 @@ import Basis.BTFCoMoMBasis;
 import DataStructures.QNModel;
 import Exceptions.InternalErrorException;
 import LinearSystem.Simple.SimpleLinearSystem;
+import LinearSystemSolver.ModularSolver;
+import LinearSystemSolver.Solver;
 
 public class CoMoMSimpleSolver extends CoMoMSolver {
 
 	public CoMoMSimpleSolver(QNModel qnm, int num_threads) throws InternalErrorException {
+		this(qnm, num_threads, ModularSolver.LARGE_MODULI);
+	}
+	
+	public CoMoMSimpleSolver(QNModel qnm, int num_threads, int moduli_mode) throws InternalErrorException {
+		super(qnm);
+		
+		basis =  new BTFCoMoMBasis(qnm);		
+		system = new SimpleLinearSystem(qnm, basis, num_threads, moduli_mode);
+	}
+	
+	public CoMoMSimpleSolver(QNModel qnm, Solver solver) throws InternalErrorException {
 		super(qnm);
 		
 		basis =  new BTFCoMoMBasis(qnm);		
-		system = new SimpleLinearSystem(qnm, basis, num_threads);
+		system = new SimpleLinearSystem(qnm, basis, solver);
 	}
 
 	 /**
@@ -13,7 +13,7 @@ import Exceptions.InternalErrorException;
 import LinearSystem.LinearSystem;
 import LinearSystem.Simple.SimpleLinearSystem;
 
-public class CoMoMSolver extends QNSolver {
+public class CoMoMSolver extends QNSolver implements ResumableSolver {
 
 	private  int M,R;	
 	
@@ -24,6 +24,16 @@ public class CoMoMSolver extends QNSolver {
 	
 	protected CoMoMBasis basis;
 	
+	/**
+	 * Receives the results of each population solved, or null
+	 */
+	private SweepListener sweep_listener;
+	
+	/**
+	 * True once the basis holds the target population, which can then be extended by resume()
+	 */
+	private boolean resumable;
+	
 	public CoMoMSolver(QNModel qnm) throws InternalErrorException {
 		super(qnm);
 		
@@ -39,6 +49,7 @@ public class CoMoMSolver extends QNSolver {
     @Override
     public void computeNormalisingConstant() throws InternalErrorException, OperationNotSupportedException, InconsistentLinearSystemException, BTFMatrixErrorException {
 		
+		resumable = false;
 		current_N = new PopulationVector(0,R);		
 				
 		for(int _class = 1; _class <= R; _class++) {
@@ -51,12 +62,54 @@ public class CoMoMSolver extends QNSolver {
 			solveForClass(_class);			
 		}						
 		
+		storeNormalisingConstant();
+	}
+    
+    /**
+     * Continues the recursion on the last class from the basis of the population computed last
+     */
+    @Override
+    public void resume(int jobs) throws InternalErrorException, OperationNotSupportedException, InconsistentLinearSystemException, BTFMatrixErrorException {
+    	if(!resumable) {
+    		throw new InternalErrorException("The normalising constant must be computed before resuming.");
+    	}
+    	if(jobs < 1) {
+    		throw new InternalErrorException("At least one job must be added.");
+    	}
+    	resumable = false;
+    	
+    	qnm.addJobs(R - 1, jobs);
+    	system.extendPopulation();
+    	
+    	System.out.println("Resuming class " + R);
+    	current_N.plusOne(R);
+    	solveForClass(R);
+    	
+    	storeNormalisingConstant();
+    }
+    
+    private void storeNormalisingConstant() throws InternalErrorException {
 		//Store the computed normalsing constant
 		BigRational G = basis.getNormalisingConstant();
 		System.out.println("G = " + G);
-		qnm.setNormalisingConstant(G);			
-						
-	}
+		qnm.setNormalisingConstant(G);
+		resumable = true;
+    }
+    
+    /**
+     * Computes the normalising constant, as computeNormalisingConstant() does, and reports
+     * the performance measures of every population that the recursion passes through,
+     * so that the results for a whole range of populations take a single recursion.
+     * @param listener Receives the results of each population
+     */
+    public void sweep(SweepListener listener) throws InternalErrorException, OperationNotSupportedException, InconsistentLinearSystemException, BTFMatrixErrorException {
+    	sweep_listener = listener;
+    	try {
+    		computeNormalisingConstant();
+    	} finally {
+    		sweep_listener = null;
+    	}
+    }
     
     private  void solveForClass(int _class) throws InternalErrorException, OperationNotSupportedException, InconsistentLinearSystemException, BTFMatrixErrorException {
 		/*
@@ -76,6 +129,10 @@ public class CoMoMSolver extends QNSolver {
 			system.update(class_population);
 			
 			system.solve();
+			
+			if(sweep_listener != null) {
+				reportPopulation(_class);
+			}
 						
 			if(class_population < target_N.get(_class - 1)) {
 				//System.out.println("Updated A: ");
@@ -87,6 +144,17 @@ public class CoMoMSolver extends QNSolver {
 		}		
 	}
     
+    /**
+     * Passes the results of the population just solved to the sweep listener
+     * @param _class The class whose population was increased last
+     */
+    private void reportPopulation(int _class) throws InternalErrorException {
+    	BigRational[] X = new BigRational[R];
+    	BigRational[][] Q = new BigRational[M][R];
+    	basis.computePerformanceMeasures(current_N, _class, X, Q);
+    	sweep_listener.populationSolved(current_N.copy(), basis.getNormalisingConstant(), X, Q);
+    }
+    
     @Override
     public void computePerformanceMeasures() throws InternalErrorException {
     	system.computePerformanceMeasures();
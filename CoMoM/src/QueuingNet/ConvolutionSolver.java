@@ -19,6 +19,7 @@ package QueuingNet;
 
 import Basis.CoMoMBasis;
 import DataStructures.BigRational;
+import DataStructures.BigRationalAccumulator;
 import DataStructures.MultiplicitiesVector;
 import DataStructures.PopulationChangeVector;
 import DataStructures.PopulationVector;
@@ -34,6 +35,13 @@ import Utilities.MiscFunctions;
  */
 public class ConvolutionSolver extends RecursiveSolver {
 
+    /**
+     * The normalising constants G(M0, n) of the model for every population
+     * 0 <= n <= N, indexed by the mixed radix rank of n.
+     */
+    private BigRational[] layer;
+    private int[] stride;
+
     /**
      * Creates and initialises a RECALSolver object.
      *
@@ -101,20 +109,129 @@ public class ConvolutionSolver extends RecursiveSolver {
     /**
      * Computes the normalising constant for the specified QNModel.
      *
+     * The computation is bottom-up instead of recursive: starting from the
+     * initial conditions G(0, n), the queues are added one at a time, and
+     * adding a queue k updates G(m, n) to G(m + 1k, n) in place for every
+     * 0 <= n <= N, in increasing order of n, using
+     *
+     *     G(m + 1k, n) = G(m, n) + sum_r D_kr G(m + 1k, n - 1r).
+     *
+     * Only one population-indexed layer is kept in memory.
+     *
      * @throws InternalErrorException An exception is thrown if any internal error is encountered during computations.
      */
     @Override
     public void computeNormalisingConstant() throws InternalErrorException {
         totalTimer.start();
-        MultiplicitiesVector m = qnm.getMultiplicitiesVector();
-        PopulationVector p = qnm.getPopulationVector();
+        PopulationVector N = qnm.getPopulationVector();
 
-        G = compute(m, p);
+        stride = new int[qnm.R];
+        long size = 1;
+        for (int r = qnm.R - 1; r >= 0; r--) {
+            stride[r] = (int) size;
+            size *= N.get(r) + 1;
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new InternalErrorException("Population space too large for Convolution.");
+            }
+        }
+
+        layer = new BigRational[(int) size];
+        PopulationVector p = new PopulationVector(0, qnm.R);
+        for (int i = 0; i < layer.length; i++) {
+            layer[i] = p.isZeroVector() ? BigRational.ONE : initialConditionFor(p);
+            nextPopulation(p, N);
+        }
+        for (int k = 0; k < qnm.multiplicities.size(); k++) {
+            for (int j = 0; j < qnm.multiplicities.get(k); j++) {
+                addQueue(layer, k, N);
+            }
+        }
+
+        G = layer[layer.length - 1];
         totalTimer.pause();
         memUsage = MiscFunctions.memoryUsage();
         qnm.setNormalisingConstant(G);
     }
     
+    /**
+     * Computes the performance measures. The normalising constants that they
+     * need, G(M0, N - 1s) and G(M0 + 1k, N - 1s), are computed by sweeping
+     * the queues once more and stored for recallG().
+     *
+     * @throws InternalErrorException An exception is thrown if any internal error is encountered during computations.
+     */
+    @Override
+    public void computePerformanceMeasures() throws InternalErrorException {
+        totalTimer.start();
+        PopulationVector N = qnm.getPopulationVector();
+        MultiplicitiesVector m = qnm.multiplicities.copy();
+        BigRational[] extended = new BigRational[layer.length];
+        for (int k = -1; k < qnm.M; k++) {
+            BigRational[] values = layer;
+            if (k >= 0) {
+                System.arraycopy(layer, 0, extended, 0, layer.length);
+                addQueue(extended, k, N);
+                values = extended;
+                m.plusOne(k + 1);
+            }
+            for (int s = 0; s < qnm.R; s++) {
+                if (N.get(s) > 0) {
+                    N.minusOne(s + 1);
+                    storeG(m, N, values[layer.length - 1 - stride[s]]);
+                    N.restore();
+                }
+            }
+            m.restore();
+        }
+        totalTimer.pause();
+        super.computePerformanceMeasures();
+    }
+
+    /**
+     * Updates a layer of normalising constants G(m, n), 0 <= n <= N, to
+     * G(m + 1k, n).
+     *
+     * @param values The layer, indexed by the mixed radix rank of n
+     * @param k The index of the queue added (starts from 0)
+     * @param N The greatest population
+     */
+    private void addQueue(BigRational[] values, int k, PopulationVector N) {
+        BigRational[] demands = new BigRational[qnm.R];
+        for (int r = 0; r < qnm.R; r++) {
+            demands[r] = qnm.getDemandAsBigRational(k, r);
+        }
+        BigRationalAccumulator sum = new BigRationalAccumulator();
+        int[] n = new int[qnm.R];
+        for (int i = 0; i < values.length; i++) {
+            sum.reset();
+            sum.add(values[i]);
+            for (int r = 0; r < qnm.R; r++) {
+                if (n[r] > 0) {
+                    sum.addProduct(demands[r], values[i - stride[r]]);
+                }
+            }
+            values[i] = sum.toBigRational();
+            // Move to the next population in mixed radix order
+            for (int r = qnm.R - 1; r >= 0 && ++n[r] > N.get(r); r--) {
+                n[r] = 0;
+            }
+        }
+    }
+
+    /**
+     * Moves a population to the next one in mixed radix order, wrapping
+     * around to zero after N.
+     */
+    private static void nextPopulation(PopulationVector p, PopulationVector N) {
+        for (int r = p.size() - 1; r >= 0; r--) {
+            if (p.get(r) < N.get(r)) {
+                p.set(r, p.get(r) + 1);
+                return;
+            }
+            p.set(r, 0);
+        }
+    }
+
     /*
     /**
      * Added by Jack Bradshaw
@@ -0,0 +1,433 @@
+package QueuingNet;
+
+import DataStructures.BigRational;
+import DataStructures.MultiplicitiesVector;
+import DataStructures.PopulationVector;
+import DataStructures.QNModel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class implements the store of computed normalising constants used by
+ * the RecursiveSolver objects, indexed by a dense rank of the
+ * (MultiplicitiesVector, PopulationVector) pair instead of by hashing copies
+ * of the two vectors.
+ *
+ * Populations are ranked in mixed radix within the box 0 <= n <= N. Each
+ * population owns a lazily allocated BigRational[] chunk, indexed by the rank
+ * of the multiplicities vector in the lexicographic order of the region
+ *
+ *     lower_k <= m_k <= upper_k,  sum_k (m_k - lower_k) <= level,
+ *
+ * where the level is either a fixed maximum increase, or (for RECAL, where
+ * the multiplicities grow by at most one for each job removed) the number of
+ * jobs removed from N. The rank is computed in O(M) from a precomputed table
+ * of the number of suffixes of each length and sum.
+ *
+ * Pairs outside these bounds, such as those used for the performance
+ * measures, are kept in nested HashMaps as before.
+ *
+ * Memory can be bounded in two ways: evictPopulationsBelow() drops every
+ * population more than a given number of levels below the current one, and
+ * setCapacity() caps the number of stored constants by evicting the chunks of
+ * the least recently used populations. Evicted constants are simply
+ * recomputed by the solver when they are needed again.
+ *
+ * Several threads may call get() at once, as the parallel RECALs do, as long
+ * as no thread calls put() meanwhile. Under a capacity every read reorders
+ * the least recently used list, which is then done under its lock.
+ */
+public class GTable {
+
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    /**
+     * Populations with more multiplicities vectors than this are kept in the
+     * overflow map.
+     */
+    private static final long MAX_CHUNK = Integer.MAX_VALUE - 8;
+    private static final long SATURATED = Long.MAX_VALUE >> 2;
+
+    private final int R, M;
+    private final int[] maxPopulation;
+    private final int populationTotal;
+    private final long[] populationStride;
+    private final int[] lower;
+    private final int[] range;
+    private final int maxIncrease;
+    private final boolean increaseBoundedByPopulation;
+    /**
+     * suffixes[k][t] is the number of vectors (d_k, ..., d_M-1) with
+     * 0 <= d_j <= range[j] and sum at most t - 1, and suffixSums[k][t] is
+     * suffixes[k][0] + ... + suffixes[k][t].
+     */
+    private final long[][] suffixes;
+    private final long[][] suffixSums;
+
+    private BigRational[][][] pages;
+    /**
+     * The rank and total of every population that has a chunk, with the least
+     * recently used first.
+     */
+    private LinkedHashMap<Long, Integer> chunks = new LinkedHashMap<Long, Integer>(16, 0.75f, true);
+    private Map<PopulationVector, Map<MultiplicitiesVector, BigRational>> overflow;
+    private int size;
+    /**
+     * The greatest number of stored constants, or 0 if unbounded.
+     */
+    private int capacity;
+    /**
+     * Atomic, as lookups may come from several threads.
+     */
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+    private long evictions;
+
+    /**
+     * Creates an empty GTable.
+     *
+     * @param maxPopulation The greatest population, N
+     * @param lowerMultiplicities The smallest multiplicities vector stored densely
+     * @param upperMultiplicities The greatest value of each element of the multiplicities vectors stored densely
+     * @param maxIncrease The greatest sum of m - lowerMultiplicities stored densely
+     * @param increaseBoundedByPopulation If true, the sum of m - lowerMultiplicities is also at most sum(N) - sum(n) for population n
+     */
+    public GTable(PopulationVector maxPopulation, MultiplicitiesVector lowerMultiplicities, MultiplicitiesVector upperMultiplicities, int maxIncrease, boolean increaseBoundedByPopulation) {
+        R = maxPopulation.size();
+        M = lowerMultiplicities.size();
+        this.maxPopulation = new int[R];
+        populationStride = new long[R];
+        long stride = 1;
+        int total = 0;
+        for (int r = R - 1; r >= 0; r--) {
+            this.maxPopulation[r] = maxPopulation.get(r);
+            total += this.maxPopulation[r];
+            populationStride[r] = stride;
+            stride = saturatingMultiply(stride, this.maxPopulation[r] + 1);
+        }
+        populationTotal = total;
+        lower = new int[M];
+        range = new int[M];
+        for (int k = 0; k < M; k++) {
+            lower[k] = lowerMultiplicities.get(k);
+            range[k] = Math.max(0, upperMultiplicities.get(k) - lower[k]);
+        }
+        this.maxIncrease = maxIncrease;
+        this.increaseBoundedByPopulation = increaseBoundedByPopulation;
+
+        suffixes = new long[M + 1][maxIncrease + 2];
+        suffixSums = new long[M + 1][maxIncrease + 2];
+        for (int k = M; k >= 0; k--) {
+            for (int t = 1; t <= maxIncrease + 1; t++) {
+                if (k == M) {
+                    // Only the empty vector, with sum 0
+                    suffixes[k][t] = 1;
+                } else if (suffixes[k + 1][t] >= SATURATED) {
+                    suffixes[k][t] = SATURATED;
+                } else {
+                    // Vectors with sum exactly t - 1 are those with d_k = v and a suffix summing to t - 1 - v
+                    long exactly = suffixes[k + 1][t] - suffixes[k + 1][Math.max(0, t - 1 - range[k])];
+                    suffixes[k][t] = Math.min(SATURATED, suffixes[k][t - 1] + exactly);
+                }
+                suffixSums[k][t] = Math.min(SATURATED, suffixSums[k][t - 1] + suffixes[k][t]);
+            }
+        }
+
+        // Populations beyond a sensible directory size are all kept in the overflow map
+        if (stride < SATURATED && (stride >> PAGE_BITS) < Integer.MAX_VALUE - 8) {
+            pages = new BigRational[(int) ((stride + PAGE_SIZE - 1) >> PAGE_BITS)][][];
+        }
+        overflow = new HashMap<PopulationVector, Map<MultiplicitiesVector, BigRational>>();
+    }
+
+    /**
+     * Creates an empty GTable for the Convolution algorithm, which visits the
+     * populations 0 <= n <= N and the multiplicities 0 <= m <= M0 of the model.
+     *
+     * @param qnm The QNModel object that we are working on
+     * @return The GTable
+     */
+    public static GTable forConvolution(QNModel qnm) {
+        return new GTable(qnm.N, new MultiplicitiesVector(0, qnm.multiplicities.size()), qnm.multiplicities, qnm.multiplicities.sum(), false);
+    }
+
+    /**
+     * Creates an empty GTable for the RECAL algorithm, which visits the
+     * populations 0 <= n <= N and the multiplicities m >= M0 of the model
+     * with sum(m - M0) <= sum(N - n).
+     *
+     * @param qnm The QNModel object that we are working on
+     * @param growsEmptyQueues False if the multiplicities of the queues which are empty in M0 stay zero, as in the recursive RECAL
+     * @return The GTable
+     */
+    public static GTable forRECAL(QNModel qnm, boolean growsEmptyQueues) {
+        int Ntot = qnm.N.sum();
+        MultiplicitiesVector upper = qnm.multiplicities.copy();
+        for (int k = 0; k < upper.size(); k++) {
+            if (k < qnm.M && (growsEmptyQueues || upper.get(k) > 0)) {
+                upper.set(k, upper.get(k) + Ntot);
+            }
+        }
+        return new GTable(qnm.N, qnm.multiplicities, upper, Ntot, true);
+    }
+
+    /**
+     * Returns a stored normalising constant.
+     *
+     * @param m The MultiplicitiesVector
+     * @param p The PopulationVector
+     * @return The normalising constant, or null if it has not been stored
+     */
+    public BigRational get(MultiplicitiesVector m, PopulationVector p) {
+        long populationRank = populationRank(p);
+        if (populationRank >= 0) {
+            int level = levelFor(p);
+            long multiplicityRank = multiplicityRank(m, level);
+            if (multiplicityRank >= 0) {
+                BigRational[][] page = pages[(int) (populationRank >> PAGE_BITS)];
+                BigRational[] chunk = (page == null) ? null : page[(int) (populationRank & (PAGE_SIZE - 1))];
+                BigRational toReturn = (chunk == null) ? null : chunk[(int) multiplicityRank];
+                if (toReturn != null && capacity > 0) {
+                    synchronized (chunks) {
+                        chunks.get(populationRank); // Marks the population as recently used
+                    }
+                }
+                return count(toReturn);
+            }
+        }
+        Map<MultiplicitiesVector, BigRational> step1 = overflow.get(p);
+        return count((step1 == null) ? null : step1.get(m));
+    }
+
+    private BigRational count(BigRational toReturn) {
+        if (toReturn == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return toReturn;
+    }
+
+    /**
+     * Stores a normalising constant.
+     *
+     * @param m The MultiplicitiesVector
+     * @param p The PopulationVector
+     * @param Gval The normalising constant
+     */
+    public void put(MultiplicitiesVector m, PopulationVector p, BigRational Gval) {
+        long populationRank = populationRank(p);
+        if (populationRank >= 0) {
+            int level = levelFor(p);
+            long multiplicityRank = multiplicityRank(m, level);
+            if (multiplicityRank >= 0) {
+                int pageIndex = (int) (populationRank >> PAGE_BITS);
+                int chunkIndex = (int) (populationRank & (PAGE_SIZE - 1));
+                if (pages[pageIndex] == null) {
+                    pages[pageIndex] = new BigRational[PAGE_SIZE][];
+                }
+                BigRational[] chunk = pages[pageIndex][chunkIndex];
+                if (chunk == null) {
+                    chunk = new BigRational[(int) chunkSize(level)];
+                    pages[pageIndex][chunkIndex] = chunk;
+                    chunks.put(populationRank, p.sum());
+                } else if (capacity > 0) {
+                    chunks.get(populationRank);
+                }
+                if (chunk[(int) multiplicityRank] == null) {
+                    size++;
+                }
+                chunk[(int) multiplicityRank] = Gval;
+                if (capacity > 0 && size > capacity) {
+                    evictLeastRecentlyUsed(populationRank);
+                }
+                return;
+            }
+        }
+        Map<MultiplicitiesVector, BigRational> step1 = overflow.get(p);
+        if (step1 == null) {
+            step1 = new HashMap<MultiplicitiesVector, BigRational>();
+            overflow.put(p.copy(), step1);
+        }
+        if (step1.put(m.copy(), Gval) == null) {
+            size++;
+        }
+    }
+
+    /**
+     * Removes all the stored normalising constants.
+     */
+    public void clear() {
+        if (pages != null) {
+            Arrays.fill(pages, null);
+        }
+        chunks.clear();
+        overflow.clear();
+        size = 0;
+    }
+
+    /**
+     * Removes the stored normalising constants of every population whose
+     * elements sum to less than a given total. They are counted as evictions.
+     *
+     * @param total The smallest population total kept
+     */
+    public void evictPopulationsBelow(int total) {
+        Iterator<Map.Entry<Long, Integer>> it = chunks.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Integer> e = it.next();
+            if (e.getValue() < total) {
+                dropChunk(e.getKey());
+                it.remove();
+            }
+        }
+        Iterator<Map.Entry<PopulationVector, Map<MultiplicitiesVector, BigRational>>> jt = overflow.entrySet().iterator();
+        while (jt.hasNext()) {
+            Map.Entry<PopulationVector, Map<MultiplicitiesVector, BigRational>> e = jt.next();
+            if (e.getKey().sum() < total) {
+                size -= e.getValue().size();
+                evictions += e.getValue().size();
+                jt.remove();
+            }
+        }
+    }
+
+    /**
+     * Caps the number of stored normalising constants. Whenever a new one
+     * would exceed the cap, the chunks of the least recently used populations
+     * are evicted. Constants kept outside the dense chunks are never evicted
+     * this way.
+     *
+     * @param capacity The greatest number of stored constants, or 0 for no cap
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(0, capacity);
+    }
+
+    /**
+     * Evicts least recently used chunks until the cap is respected, keeping
+     * the chunk of the population being written.
+     */
+    private void evictLeastRecentlyUsed(long keep) {
+        Iterator<Long> it = chunks.keySet().iterator();
+        while (size > capacity && it.hasNext()) {
+            long rank = it.next();
+            if (rank != keep) {
+                dropChunk(rank);
+                it.remove();
+            }
+        }
+    }
+
+    private void dropChunk(long populationRank) {
+        BigRational[][] page = pages[(int) (populationRank >> PAGE_BITS)];
+        int chunkIndex = (int) (populationRank & (PAGE_SIZE - 1));
+        for (BigRational value : page[chunkIndex]) {
+            if (value != null) {
+                size--;
+                evictions++;
+            }
+        }
+        page[chunkIndex] = null;
+    }
+
+    /**
+     * Returns the number of lookups that found a stored constant.
+     * @return The number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that found no stored constant.
+     * @return The number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of stored constants that have been evicted.
+     * @return The number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of stored normalising constants.
+     * @return The number of stored normalising constants
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the mixed radix rank of a population, or -1 if it lies outside
+     * the box 0 <= n <= N or the table keeps no dense chunks.
+     */
+    private long populationRank(PopulationVector p) {
+        if (pages == null || p.size() != R) {
+            return -1;
+        }
+        long rank = 0;
+        for (int r = 0; r < R; r++) {
+            int nr = p.getInt(r);
+            if (nr < 0 || nr > maxPopulation[r]) {
+                return -1;
+            }
+            rank += nr * populationStride[r];
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the greatest sum of m - lowerMultiplicities stored densely for
+     * a population that lies in the box.
+     */
+    private int levelFor(PopulationVector p) {
+        if (increaseBoundedByPopulation) {
+            return Math.min(maxIncrease, populationTotal - p.sum());
+        }
+        return maxIncrease;
+    }
+
+    private long chunkSize(int level) {
+        return suffixes[0][level + 1];
+    }
+
+    /**
+     * Returns the rank of a multiplicities vector among those of the region
+     * with the given level, or -1 if it lies outside the region or the
+     * region is too large for a chunk.
+     */
+    private long multiplicityRank(MultiplicitiesVector m, int level) {
+        if (level < 0 || m.size() != M || chunkSize(level) > MAX_CHUNK) {
+            return -1;
+        }
+        long rank = 0;
+        int t = level;
+        for (int k = 0; k < M; k++) {
+            int d = m.getInt(k) - lower[k];
+            if (d < 0 || d > range[k] || d > t) {
+                return -1;
+            }
+            // Skip the vectors with the same prefix and d_k = v < d, which
+            // have suffixes[k + 1][t - v + 1] completions each
+            rank += suffixSums[k + 1][t + 1] - suffixSums[k + 1][t + 1 - d];
+            t -= d;
+        }
+        return rank;
+    }
+
+    private static long saturatingMultiply(long a, long b) {
+        if (a >= SATURATED / b) {
+            return SATURATED;
+        }
+        return a * b;
+    }
+}
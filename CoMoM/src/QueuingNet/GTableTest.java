@@ -0,0 +1,150 @@
+package QueuingNet;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import DataStructures.BigRational;
+import DataStructures.MultiplicitiesVector;
+import DataStructures.PopulationVector;
+
+public class GTableTest {
+
+    private static final Integer[] N = {2, 3};
+    private static final Integer[] LOWER = {1, 0, 2};
+    private static final Integer[] UPPER = {3, 2, 4};
+    private static final int MAX_INCREASE = 3;
+
+    private static GTable table() {
+        return new GTable(new PopulationVector(N), new MultiplicitiesVector(LOWER), new MultiplicitiesVector(UPPER), MAX_INCREASE, true);
+    }
+
+    private static List<PopulationVector> populations() {
+        List<PopulationVector> populations = new ArrayList<PopulationVector>();
+        for (int n0 = 0; n0 <= N[0]; n0++) {
+            for (int n1 = 0; n1 <= N[1]; n1++) {
+                populations.add(new PopulationVector(new Integer[]{n0, n1}));
+            }
+        }
+        return populations;
+    }
+
+    /**
+     * Returns every multiplicities vector of the dense region of a
+     * population, including those one step outside it.
+     */
+    private static List<MultiplicitiesVector> multiplicities() {
+        List<MultiplicitiesVector> multiplicities = new ArrayList<MultiplicitiesVector>();
+        for (int m0 = LOWER[0] - 1; m0 <= UPPER[0] + 1; m0++) {
+            for (int m1 = LOWER[1] - 1; m1 <= UPPER[1] + 1; m1++) {
+                for (int m2 = LOWER[2] - 1; m2 <= UPPER[2] + 1; m2++) {
+                    multiplicities.add(new MultiplicitiesVector(new Integer[]{m0, m1, m2}));
+                }
+            }
+        }
+        return multiplicities;
+    }
+
+    /**
+     * Every pair, inside or outside the dense region, must be stored under a
+     * key of its own, so no value may overwrite another.
+     */
+    @Test
+    public void testRankingIsInjective() {
+        GTable table = table();
+        List<PopulationVector> populations = populations();
+        List<MultiplicitiesVector> multiplicities = multiplicities();
+        int value = 0;
+        for (PopulationVector p : populations) {
+            for (MultiplicitiesVector m : multiplicities) {
+                table.put(m, p, new BigRational(value++));
+            }
+        }
+        populations.add(new PopulationVector(new Integer[]{N[0] + 1, 0}));
+        populations.add(new PopulationVector(new Integer[]{0, 0, 0}));
+        for (int i = populations.size() - 2; i < populations.size(); i++) {
+            for (MultiplicitiesVector m : multiplicities) {
+                table.put(m, populations.get(i), new BigRational(value++));
+            }
+        }
+        assertEquals(value, table.size());
+
+        value = 0;
+        for (PopulationVector p : populations) {
+            for (MultiplicitiesVector m : multiplicities) {
+                assertEquals(new BigRational(value++), table.get(m, p));
+            }
+        }
+        assertEquals(value, table.getHits());
+        assertEquals(0, table.getMisses());
+
+        assertNull(table.get(new MultiplicitiesVector(new Integer[]{1, 0}), populations.get(0)));
+        assertEquals(1, table.getMisses());
+    }
+
+    @Test
+    public void testOverwrite() {
+        GTable table = table();
+        MultiplicitiesVector m = new MultiplicitiesVector(LOWER);
+        PopulationVector p = new PopulationVector(N);
+        table.put(m, p, BigRational.ONE);
+        table.put(m, p, BigRational.ZERO);
+        assertEquals(1, table.size());
+        assertEquals(BigRational.ZERO, table.get(m, p));
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get(m, p));
+    }
+
+    @Test
+    public void testEvictPopulationsBelow() {
+        GTable table = table();
+        MultiplicitiesVector m = new MultiplicitiesVector(LOWER);
+        for (PopulationVector p : populations()) {
+            table.put(m, p, new BigRational(p.sum()));
+        }
+        table.evictPopulationsBelow(3);
+        for (PopulationVector p : populations()) {
+            if (p.sum() < 3) {
+                assertNull(table.get(m, p));
+            } else {
+                assertEquals(new BigRational(p.sum()), table.get(m, p));
+            }
+        }
+        assertEquals(6, table.getEvictions());
+        assertEquals(6, table.size());
+    }
+
+    /**
+     * Under a capacity the least recently used populations are evicted
+     * first, and the population being written is always kept.
+     */
+    @Test
+    public void testCapacity() {
+        GTable table = table();
+        table.setCapacity(2);
+        MultiplicitiesVector m = new MultiplicitiesVector(LOWER);
+        PopulationVector a = new PopulationVector(new Integer[]{0, 0});
+        PopulationVector b = new PopulationVector(new Integer[]{0, 1});
+        PopulationVector c = new PopulationVector(new Integer[]{1, 0});
+        table.put(m, a, BigRational.ONE);
+        table.put(m, b, BigRational.ONE);
+        table.get(m, a);
+        table.put(m, c, BigRational.ONE);
+        assertEquals(2, table.size());
+        assertEquals(1, table.getEvictions());
+        assertNull(table.get(m, b));
+        assertEquals(BigRational.ONE, table.get(m, a));
+        assertEquals(BigRational.ONE, table.get(m, c));
+
+        table.setCapacity(1);
+        MultiplicitiesVector m2 = new MultiplicitiesVector(new Integer[]{LOWER[0] + 1, LOWER[1], LOWER[2]});
+        table.put(m2, c, BigRational.ZERO);
+        assertEquals(2, table.size());
+        assertEquals(BigRational.ZERO, table.get(m2, c));
+        assertNull(table.get(m, a));
+    }
+}
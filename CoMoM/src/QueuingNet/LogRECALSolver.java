@@ -0,0 +1,331 @@
+package QueuingNet;
+
+import DataStructures.BigRational;
+import DataStructures.PopulationVector;
+import DataStructures.QNModel;
+import Exceptions.InternalErrorException;
+import Utilities.MiscFunctions;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * This class implements a fast, approximate solver, which runs the
+ * non-recursive RECAL recursion in double precision. The logarithm of each
+ * normalising constant is stored instead of the constant itself, so that G
+ * cannot overflow.
+ *
+ * Every term of the RECAL recursion is non-negative, so no cancellation can
+ * occur and the relative error only grows slowly with the population.
+ * relativeError() measures it against the results of an exact solver, so that
+ * the fast solver can be preferred whenever its error is small enough.
+ */
+public class LogRECALSolver extends QNSolver {
+
+    /**
+     * The increments delta over qnm.multiplicities for which normalising
+     * constants are kept, up to a sum of qnm.N.sum(), are numbered so that
+     * those summing up to s come first. levelEnd[s] is the number of
+     * increments summing up to s.
+     */
+    private int[] levelEnd;
+    /**
+     * next[i * qnm.M + k] is the number of increment i + 1k, or -1 if it is
+     * not kept.
+     */
+    private int[] next;
+    /**
+     * multiplicity[i * qnm.M + k] is element k of qnm.multiplicities plus
+     * increment i.
+     */
+    private int[] multiplicity;
+    /**
+     * logInt[n] is the natural logarithm of n.
+     */
+    private double[] logInt;
+    private double[] logDelay;
+    private double[][] logDemand;
+    /**
+     * True if no class has think time. Each step of the recursion then adds
+     * one to the multiplicities, so a sweep to a target population T only
+     * needs, at population p, the increments summing up to between
+     * T.sum() - p.sum() and qnm.N.sum() - p.sum().
+     */
+    private boolean noDelays;
+    /**
+     * The results, as computed in double precision.
+     */
+    private double logG;
+    private double[] X;
+    private double[][] Q;
+
+    /**
+     * Creates and initialises a LogRECALSolver object.
+     *
+     * @param qnm The QNModel object that we are working on
+     */
+    public LogRECALSolver(QNModel qnm) {
+        super(qnm);
+    }
+
+    /**
+     * Enumerates the increments of the multiplicities that the recursion
+     * visits and precomputes the logarithms it needs.
+     *
+     * @throws InternalErrorException Thrown when there are too many increments to enumerate
+     */
+    private void initialise() throws InternalErrorException {
+        int M = qnm.M, Ntot = qnm.N.sum();
+        // There are (Ntot + M choose M) increments summing up to at most Ntot
+        long count = 1;
+        for (int k = 1; k <= M; k++) {
+            count = count * (Ntot + k) / k;
+            if (count * M > Integer.MAX_VALUE) {
+                throw new InternalErrorException("The network is too large for RECAL.");
+            }
+        }
+        int n = (int) count;
+        next = new int[n * M];
+        multiplicity = new int[n * M];
+        levelEnd = new int[Ntot + 1];
+        /*
+         * Every non-zero increment is created exactly once, from its parent,
+         * by adding one to the last non-zero element of the parent or to any
+         * element after it.
+         */
+        int[] parent = new int[n];
+        int[] last = new int[n];
+        for (int k = 0; k < M; k++) {
+            multiplicity[k] = qnm.multiplicities.get(k);
+        }
+        int size = 1;
+        int levelStart = 0;
+        Arrays.fill(next, -1);
+        for (int s = 0; s < Ntot; s++) {
+            levelEnd[s] = size;
+            for (int i = levelStart; i < levelEnd[s]; i++) {
+                for (int k = last[i]; k < M; k++) {
+                    System.arraycopy(multiplicity, i * M, multiplicity, size * M, M);
+                    multiplicity[size * M + k]++;
+                    parent[size] = i;
+                    last[size] = k;
+                    next[i * M + k] = size++;
+                }
+            }
+            // i + 1k, for k before the last non-zero element j of i, is (parent + 1k) + 1j
+            for (int i = Math.max(levelStart, 1); i < levelEnd[s]; i++) {
+                int j = last[i];
+                for (int k = 0; k < j; k++) {
+                    next[i * M + k] = next[next[parent[i] * M + k] * M + j];
+                }
+            }
+            levelStart = levelEnd[s];
+        }
+        levelEnd[Ntot] = size;
+        int maxMultiplicity = 0;
+        for (int v : multiplicity) {
+            maxMultiplicity = Math.max(maxMultiplicity, v);
+        }
+        logInt = new double[maxMultiplicity + 1];
+        for (int v = 0; v <= maxMultiplicity; v++) {
+            logInt[v] = Math.log(v);
+        }
+        logDelay = new double[qnm.R];
+        logDemand = new double[qnm.M][qnm.R];
+        noDelays = true;
+        for (int r = 0; r < qnm.R; r++) {
+            logDelay[r] = Math.log(qnm.getDelay(r));
+            noDelays &= (qnm.getDelay(r) == 0);
+            for (int k = 0; k < qnm.M; k++) {
+                logDemand[k][r] = Math.log(qnm.getDemand(k, r));
+            }
+        }
+    }
+
+    /**
+     * Runs the recursion from the zero population up to a target population,
+     * increasing the population of one class at a time.
+     *
+     * @param target The target population, whose elements sum up to at most qnm.N.sum()
+     * @return log G(qnm.multiplicities + increment i, target), for every i below levelEnd[qnm.N.sum() - target.sum()]
+     */
+    private double[] sweep(PopulationVector target) {
+        int Ntot = qnm.N.sum();
+        int finalLevel = Ntot - target.sum();
+        double[] cur = new double[levelEnd[Ntot]]; // log G(m, 0) = log 1
+        double[] prev = new double[levelEnd[Ntot]];
+        int level = 0;
+        for (int r = 0; r < qnm.R; r++) {
+            for (int nr = 1; nr <= target.get(r); nr++) {
+                level++;
+                double[] swap = prev;
+                prev = cur;
+                cur = swap;
+                double logNr = Math.log(nr);
+                int s = Ntot - level;
+                int from = (noDelays && s > finalLevel) ? levelEnd[s - finalLevel - 1] : 0;
+                for (int i = from; i < levelEnd[s]; i++) {
+                    cur[i] = computeEntry(prev, i, r) - logNr;
+                }
+            }
+        }
+        return cur;
+    }
+
+    /**
+     * Computes the logarithm of Z_r G(m, p - 1r) + sum_k D_kr m_k G(m + 1k, p - 1r).
+     *
+     * @param prev The logarithms of the normalising constants of p - 1r
+     * @param i The index of the increment of m
+     * @param r The index of the class whose population was last increased (starts from 0)
+     * @return The logarithm of the sum
+     */
+    private double computeEntry(double[] prev, int i, int r) {
+        // The terms are added relative to the greatest one, which cannot overflow
+        int M = qnm.M;
+        double max = logDelay[r] + prev[i];
+        for (int k = 0; k < M; k++) {
+            max = Math.max(max, logDemand[k][r] + logInt[multiplicity[i * M + k]] + prev[next[i * M + k]]);
+        }
+        if (max == Double.NEGATIVE_INFINITY) {
+            return max;
+        }
+        double sum = Math.exp(logDelay[r] + prev[i] - max);
+        for (int k = 0; k < M; k++) {
+            sum += Math.exp(logDemand[k][r] + logInt[multiplicity[i * M + k]] + prev[next[i * M + k]] - max);
+        }
+        return max + Math.log(sum);
+    }
+
+    /**
+     * Prints a short welcome message that says which solver is used.
+     */
+    @Override
+    public void printWelcome() {
+        System.out.println("Using RECAL (double precision, log-scaled)");
+    }
+
+    /**
+     * Computes the normalising constant for the specified QNModel.
+     *
+     * @throws InternalErrorException An exception is thrown if any internal error is encountered during computations.
+     */
+    @Override
+    public void computeNormalisingConstant() throws InternalErrorException {
+        totalTimer.start();
+        initialise();
+        logG = sweep(qnm.N)[0];
+        totalTimer.pause();
+        memUsage = MiscFunctions.memoryUsage();
+        G = exp(logG);
+        qnm.setNormalisingConstant(G);
+    }
+
+    /**
+     * Computes and stores the performance measures (mean throughputs and mean
+     * queue lengths) for the current model. Each population N - 1s is reached
+     * by a sweep of its own.
+     *
+     * @throws InternalErrorException Thrown when any computation fails
+     */
+    @Override
+    public void computePerformanceMeasures() throws InternalErrorException {
+        if (logG == Double.NEGATIVE_INFINITY) {
+            throw new InternalErrorException("Cannot compute performance measures. (G = 0)");
+        }
+        totalTimer.start();
+        X = new double[qnm.R];
+        Q = new double[qnm.M][qnm.R];
+        PopulationVector p = qnm.N.copy();
+        for (int s = 0; s < qnm.R; s++) {
+            if (p.get(s) == 0) {
+                continue; // G(m, N - 1s) = 0
+            }
+            p.minusOne(s + 1);
+            double[] logGs = sweep(p);
+            p.restore();
+            X[s] = Math.exp(logGs[0] - logG);
+            for (int k = 0; k < qnm.M; k++) {
+                Q[k][s] = Math.exp(logDemand[k][s] + logGs[next[k]] - logG);
+            }
+        }
+        totalTimer.pause();
+        BigRational[] Xr = new BigRational[qnm.R];
+        BigRational[][] Qr = new BigRational[qnm.M][qnm.R];
+        for (int s = 0; s < qnm.R; s++) {
+            Xr[s] = new BigRational(BigDecimal.valueOf(X[s]));
+            for (int k = 0; k < qnm.M; k++) {
+                Qr[k][s] = new BigRational(BigDecimal.valueOf(Q[k][s]));
+            }
+        }
+        qnm.setPerformanceMeasures(Qr, Xr);
+    }
+
+    /**
+     * Returns the greatest relative error of the results of this solver
+     * against those of an exact solver for the same network. The normalising
+     * constant is always compared, and the performance measures are compared
+     * too if both solvers have computed them.
+     *
+     * @param exact The QNModel whose results have been computed by an exact solver
+     * @return The greatest relative error
+     */
+    public double relativeError(QNModel exact) {
+        BigRational exactG = exact.getNormalisingConstant();
+        double error;
+        if (exactG.isZero()) {
+            error = (logG == Double.NEGATIVE_INFINITY) ? 0 : Double.POSITIVE_INFINITY;
+        } else {
+            error = Math.abs(Math.expm1(logG - log(exactG.getNumerator()) + log(exactG.getDenominator())));
+        }
+        if (X != null && exact.arePerformanceMeasuresComputed()) {
+            BigRational[] exactX = exact.getMeanThroughputs();
+            BigRational[][] exactQ = exact.getMeanQueueLengths();
+            for (int s = 0; s < qnm.R; s++) {
+                error = Math.max(error, relativeError(X[s], toDouble(exactX[s])));
+                for (int k = 0; k < qnm.M; k++) {
+                    error = Math.max(error, relativeError(Q[k][s], toDouble(exactQ[k][s])));
+                }
+            }
+        }
+        return error;
+    }
+
+    private static double relativeError(double a, double exact) {
+        if (exact == 0) {
+            return (a == 0) ? 0 : Double.POSITIVE_INFINITY;
+        }
+        return Math.abs((a - exact) / exact);
+    }
+
+    /**
+     * Returns the double nearest to a BigRational, unlike
+     * BigRational.approximateAsDouble(), which keeps 11 decimal digits.
+     */
+    private static double toDouble(BigRational a) {
+        return new BigDecimal(a.getNumerator()).divide(new BigDecimal(a.getDenominator()), MathContext.DECIMAL64).doubleValue();
+    }
+
+    /**
+     * Returns the natural logarithm of a positive BigInteger, which may be too
+     * large for a double.
+     */
+    private static double log(BigInteger n) {
+        int shift = Math.max(0, n.bitLength() - 62);
+        return Math.log(n.shiftRight(shift).doubleValue()) + shift * Math.log(2);
+    }
+
+    /**
+     * Returns e^x as a BigRational with the precision of a double, for any x.
+     */
+    private static BigRational exp(double x) {
+        if (x == Double.NEGATIVE_INFINITY) {
+            return BigRational.ZERO;
+        }
+        double log10 = x / Math.log(10);
+        int exponent = (int) Math.floor(log10);
+        BigDecimal mantissa = BigDecimal.valueOf(Math.pow(10, log10 - exponent));
+        return new BigRational(mantissa.scaleByPowerOfTen(exponent));
+    }
+}
@@ -0,0 +1,74 @@
+package QueuingNet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import DataStructures.QNModel;
+
+public class LogRECALSolverTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    private static QNModel model(Integer[] N, Integer[] Z, Integer[][] D) throws Exception {
+        Integer[] multiplicities = new Integer[D.length];
+        for (int k = 0; k < D.length; k++) {
+            multiplicities[k] = 1;
+        }
+        return new QNModel(N.length, D.length, N, Z, multiplicities, D);
+    }
+
+    /**
+     * Solves the network exactly with RECAL and approximately with LogRECAL,
+     * and returns the relative error of the latter.
+     */
+    private static double relativeError(Integer[] N, Integer[] Z, Integer[][] D, boolean performanceMeasures) throws Exception {
+        QNModel exact = model(N, Z, D);
+        RECALSolver recal = new RECALSolver(exact);
+        recal.computeNormalisingConstant();
+        QNModel approximate = model(N, Z, D);
+        LogRECALSolver log = new LogRECALSolver(approximate);
+        log.computeNormalisingConstant();
+        if (performanceMeasures) {
+            recal.computePerformanceMeasures();
+            log.computePerformanceMeasures();
+        }
+        return log.relativeError(exact);
+    }
+
+    @Test
+    public void testWithThinkTime() throws Exception {
+        Integer[][] D = {{1, 2}, {4, 5}, {7, 8}};
+        assertEquals(0, relativeError(new Integer[]{5, 5}, new Integer[]{3, 3}, D, true), TOLERANCE);
+    }
+
+    /**
+     * Without think time the sweeps skip the increments that cannot reach
+     * the target population.
+     */
+    @Test
+    public void testWithoutThinkTime() throws Exception {
+        Integer[][] D = {{1, 2, 3}, {4, 5, 6}};
+        assertEquals(0, relativeError(new Integer[]{3, 2, 4}, new Integer[]{0, 0, 0}, D, true), TOLERANCE);
+    }
+
+    /**
+     * A class with no jobs has no sweep of its own in the performance
+     * measures.
+     */
+    @Test
+    public void testEmptyClass() throws Exception {
+        Integer[][] D = {{2, 3}, {5, 1}};
+        assertEquals(0, relativeError(new Integer[]{4, 0}, new Integer[]{1, 2}, D, true), TOLERANCE);
+    }
+
+    /**
+     * G is far beyond the range of a double, but its logarithm is not.
+     */
+    @Test
+    public void testNoOverflow() throws Exception {
+        Integer[][] D = {{1000}, {2000}};
+        double error = relativeError(new Integer[]{150}, new Integer[]{10}, D, false);
+        assertEquals(0, error, TOLERANCE);
+    }
+}
@@ -18,6 +18,7 @@
 package QueuingNet;
 
 import DataStructures.BigRational;
+import DataStructures.CompressedRowMatrix;
 import Exceptions.InternalErrorException;
 import Utilities.MiscFunctions;
 import DataStructures.MultiplicitiesVector;
@@ -26,8 +27,9 @@ import DataStructures.QNModel;
 import DataStructures.Tuple;
 import Exceptions.InconsistentLinearSystemException;
 import LinearSystemSolver.ModularSolver;
-import LinearSystemSolver.SimpleSolver;
+import LinearSystemSolver.FactorisedSolver;
 import LinearSystemSolver.Solver;
+import LinearSystemSolver.SparseSolver;
 import Utilities.CanonicalMultiplicitiesVectorCalculator;
 import Utilities.Timer;
 import java.math.BigInteger;
@@ -44,7 +46,7 @@ import javax.naming.OperationNotSupportedException;
  *
  * @author Michail Makaronidis, 2010
  */
-public class MoMSolver extends QNSolver {
+public class MoMSolver extends QNSolver implements ResumableSolver {
 
     /**
      * The matrix A of the algorithm.
@@ -52,7 +54,7 @@ public class MoMSolver extends QNSolver {
     /**
      * The matrix B of the algorithm.
      */
-    private BigRational[][] A, B;
+    private CompressedRowMatrix A, B;
     /**
      * Contains the positions of A that need to be updated in each iteration.
      */
@@ -62,7 +64,18 @@ public class MoMSolver extends QNSolver {
     private CanonicalMultiplicitiesVectorCalculator canonicalMVCalc;
     private BigRational[] lastG, prevG;
     private int nThreads;
+    private int moduliMode;
+    /**
+     * The linear system solver given by the user, or null if the solver is
+     * chosen by the number of threads.
+     */
+    private Solver solver;
     private Timer selfTimer, mulTimer, solverTimer;
+    /**
+     * True once lastG and prevG hold the target population, which can then
+     * be extended by resume().
+     */
+    private boolean resumable;
 
     /**
      * Creates and initialises a RECALSolver object.
@@ -70,10 +83,34 @@ public class MoMSolver extends QNSolver {
      * @param nThreads The number of threads the MoMSolver must use for solution. If nThreads >= 2, then LinearSystem.ModularSolver is used.
      */
     public MoMSolver(QNModel qnm, int nThreads) {
+        this(qnm, nThreads, ModularSolver.LARGE_MODULI);
+    }
+
+    /**
+     * Creates and initialises a MoMSolver object.
+     * @param qnm The QNModel object that we are working on
+     * @param nThreads The number of threads the MoMSolver must use for solution. If nThreads >= 2, then LinearSystem.ModularSolver is used.
+     * @param moduliMode The moduli selection mode of the ModularSolver, e.g. ModularSolver.WORD_SIZED_MODULI
+     */
+    public MoMSolver(QNModel qnm, int nThreads, int moduliMode) {
         super(qnm);
+        this.moduliMode = moduliMode;
         initialise(nThreads);
     }
 
+    /**
+     * Creates and initialises a MoMSolver object that uses the given linear
+     * system solver, e.g. a SparseSolver. The solver is not shut down, so that
+     * resume() can use it again.
+     * @param qnm The QNModel object that we are working on
+     * @param solver The linear system solver
+     */
+    public MoMSolver(QNModel qnm, Solver solver) {
+        super(qnm);
+        this.solver = solver;
+        initialise(1);
+    }
+
     /**
      * Prints a short welcome message that says which solver is used.
      */
@@ -83,15 +120,15 @@ public class MoMSolver extends QNSolver {
     }
 
     /**
-     * This method can allow in the future easy use of a sparse matrix
-     * implementation of A. A similar method can be written for B.
+     * Writes an element of A, which is assembled in compressed row form, and
+     * marks its column as computable.
      *
      * @param i
      * @param j
      * @param val
      */
     private void writeToA(int i, int j, BigRational val) {
-        A[i][j] = val;//.copy();
+        A.write(i, j, val);
         uncomputables.remove(j);
         /*if (val.abs().greaterThan(maxOfAColumns[j])) {
         maxOfAColumns[j] = val.abs();
@@ -101,9 +138,9 @@ public class MoMSolver extends QNSolver {
     private void generateABU(PopulationVector N, int s) throws InternalErrorException {
         MultiplicitiesVector dM;
         int M = qnm.M, R = qnm.R, row = -1;
-        A = new BigRational[matrixSize][matrixSize];
+        A = new CompressedRowMatrix(matrixSize);
         //maxOfAColumns = new BigRational[matrixSize];
-        B = new BigRational[matrixSize][matrixSize];
+        B = new CompressedRowMatrix(matrixSize);
         UList = new LinkedList<Tuple<Integer, Integer>>();
         uncomputables = new HashSet<Integer>();
 
@@ -111,10 +148,6 @@ public class MoMSolver extends QNSolver {
         maxOfAColumns[j]= BigRational.ZERO;
         }*/
         for (int i = 0; i < matrixSize; i++) {
-            for (int j = 0; j < matrixSize; j++) {
-                A[i][j] = BigRational.ZERO; // We do not use writeToA() as this would aldo remove j from the uncomputables set and we are in the initialisation phase.
-                B[i][j] = BigRational.ZERO;
-            }
             uncomputables.add(i);
         }
         int limit = (int) ((float) R / M * MiscFunctions.binomialCoefficient(M + R - 1, R) - 1);
@@ -133,7 +166,7 @@ public class MoMSolver extends QNSolver {
                         int pos2 = sz * r + canonicalMVCalc.vectoint(dMPlusk);
                         writeToA(row, pos2, qnm.getDemandAsBigRational(k - 1, r - 1).negate());//A[row][pos2] = qnm.getDemandAsBigRational(k - 1, r - 1).negate();
                     }
-                    B[row][pos] = qnm.getDemandAsBigRational(k - 1, s - 1);
+                    B.write(row, pos, qnm.getDemandAsBigRational(k - 1, s - 1));
                     dMPlusk.restore();
                 }
             }
@@ -150,7 +183,7 @@ public class MoMSolver extends QNSolver {
                     for (int k = 1; k <= M; k++) {
                         dMPlusk.plusOne(k);
                         int f = dM.get(k - 1) + qnm.multiplicities.get(k - 1);
-                        BigRational bf = new BigRational(f);
+                        BigRational bf = BigRational.valueOf(f);
                         pos = sz * r + canonicalMVCalc.vectoint(dMPlusk);
                         writeToA(row, pos, bf.negate().multiply(qnm.getDemandAsBigRational(k - 1, r - 1)));//A[row][pos] = bf.negate().multiply(qnm.getDemandAsBigRational(k - 1, r - 1));
                         dMPlusk.restore();
@@ -162,20 +195,20 @@ public class MoMSolver extends QNSolver {
                 int pos = sz * r + i;
                 writeToA(row, pos, N.getAsBigRational(s - 1));//A[row][pos] = N.getAsBigRational(s - 1);
                 UList.add(new Tuple<Integer, Integer>(row, pos));
-                B[row][pos] = qnm.getDelayAsBigRational(s-1);//Z.getAsBigRational(s - 1);
+                B.write(row, pos, qnm.getDelayAsBigRational(s-1));//Z.getAsBigRational(s - 1);
                 MultiplicitiesVector dMPlusk = dM.copy();
                 for (int k = 1; k <= M; k++) {
                     dMPlusk.plusOne(k);
                     int f = dM.get(k - 1) + qnm.multiplicities.get(k - 1);
-                    BigRational bf = new BigRational(f);
-                    B[row][sz * r + canonicalMVCalc.vectoint(dMPlusk)] = bf.multiply(qnm.getDemandAsBigRational(k - 1, s - 1));
+                    BigRational bf = BigRational.valueOf(f);
+                    B.write(row, sz * r + canonicalMVCalc.vectoint(dMPlusk), bf.multiply(qnm.getDemandAsBigRational(k - 1, s - 1)));
                     dMPlusk.restore();
                 }
             }
         }
         for (int i = row + 1; i < sz * R; i++) {
             writeToA(i, i, BigRational.ONE);//A[i][i] = BigRational.ONE;
-            B[i][i] = BigRational.ONE;
+            B.write(i, i, BigRational.ONE);
         }
     }
 
@@ -198,69 +231,38 @@ public class MoMSolver extends QNSolver {
     public void computeNormalisingConstant() throws InternalErrorException {
         totalTimer.start();
         PopulationVector N = qnm.N.copy();
-        int r = 0, Nr;
-        int R = qnm.R, M = qnm.M;
-        BigRational[] curG = new BigRational[matrixSize], G_1 = null;
+        int R = qnm.R;
+        lastG = new BigRational[matrixSize];
         for (int i = 0; i < matrixSize; i++) {
-            curG[i] = BigRational.ONE;
+            lastG[i] = BigRational.ONE;
         }
         PopulationVector N0 = new PopulationVector(0, R);
         N0.set(0, 1);
-        System.out.println("Initialising data structures of class " + (r + 1));
+        System.out.println("Initialising data structures of class 1");
         generateABU(N0, 1);
+        resumable = false;
         try {
-            Solver s;
-            if (nThreads == 1) {
-                s = new SimpleSolver();
-            } else {
-                s = new ModularSolver(nThreads);
-            }
-            Integer maxA = getMaxAElement();
-            Integer val = matrixSize;
-            BigInteger maxB = qnm.getMaxG().multiply(new BigInteger(maxA.toString())).multiply(new BigInteger(val.toString()));
-            s.initialise(A, UList, uncomputables, maxA, maxB, new BigRational(qnm.getMaxG()));
-            N0.set(0, 0);
-            int N0r = 1;
-            int Ntot = 0;
-
-            for (r = 1; r <= R; r++) {
+            Solver s = newSolver();
+            initialiseSolver(s);
+            for (int r = 1; r <= R; r++) {
                 System.out.println("Processing class " + r);
-                for (Nr = N0r; Nr <= N.get(r - 1) - 1; Nr++) {
-                    mulTimer.start();
-                    BigRational[] sysB = MiscFunctions.matrixVectorMultiply(B, curG);
-                    mulTimer.pause();
-                    s.goToULevel(Nr - 1);
-                    curG = solve(s, sysB);
-                    Ntot++;
-                    System.out.println("Population " + Nr + " completed (total population " + Ntot + " jobs)");
-                }
-                G_1 = curG;
-                mulTimer.start();
-                BigRational[] sysB = MiscFunctions.matrixVectorMultiply(B, curG);
-                mulTimer.pause();
-                s.goToULevel(Nr - 1);
-                curG = solve(s, sysB);
-                Ntot++;
-                System.out.println("Population " + Nr + " completed (total population " + Ntot + " jobs)");
+                solveClass(s, r, 1, Math.max(N.get(r - 1), 1));
                 N0.set(r - 1, N.get(r - 1));
                 System.out.println("Class " + r + " completed");
                 if (r < R) {
                     N0.set(r, 1);
-                    N0r = 1;
                     System.out.println("Initialising data structures of class " + (r + 1));
                     generateABU(N0, r + 1);
-                    s.initialise(A, UList, uncomputables, maxA, maxB, new BigRational(qnm.getMaxG()));
+                    initialiseSolver(s);
                 }
             }
-            if (!curG[0].isUndefined()) {
-                this.G = curG[0];
-            } else {
-                throw new InconsistentLinearSystemException("Singular system. Cannot proceed.");
-            }
+            this.G = lastG[0];
             totalTimer.pause();
             memUsage = MiscFunctions.memoryUsage();
             solverTimer = s.getTimer();
-            s.shutdown();
+            if (s != solver) {
+                s.shutdown();
+            }
         } catch (OperationNotSupportedException ex) {
             //ex.printStackTrace();
             throw new InternalErrorException("Error in linear system solver.");
@@ -269,8 +271,101 @@ public class MoMSolver extends QNSolver {
             throw new InternalErrorException(ex.getMessage());
         }
         qnm.setNormalisingConstant(G);
-        this.lastG = curG;
-        this.prevG = G_1;
+        resumable = true;
+    }
+
+    /**
+     * Continues the recursion on the last class from the normalising
+     * constants of the population computed last. The matrices of the last
+     * class are generated again, as the linear system solver updates A in
+     * place.
+     */
+    @Override
+    public void resume(int jobs) throws InternalErrorException {
+        if (!resumable) {
+            throw new InternalErrorException("The normalising constant must be computed before resuming.");
+        }
+        if (jobs < 1) {
+            throw new InternalErrorException("At least one job must be added.");
+        }
+        resumable = false;
+        totalTimer.start();
+        int R = qnm.R, Nr = qnm.N.get(R - 1);
+        qnm.addJobs(R - 1, jobs);
+        PopulationVector N0 = qnm.getPopulationVector();
+        N0.set(R - 1, 1);
+        System.out.println("Initialising data structures of class " + R);
+        generateABU(N0, R);
+        try {
+            Solver s = newSolver();
+            initialiseSolver(s);
+            solveClass(s, R, Nr + 1, qnm.N.get(R - 1));
+            this.G = lastG[0];
+            totalTimer.pause();
+            memUsage = MiscFunctions.memoryUsage();
+            solverTimer = s.getTimer();
+            if (s != solver) {
+                s.shutdown();
+            }
+        } catch (OperationNotSupportedException ex) {
+            throw new InternalErrorException("Error in linear system solver.");
+        } catch (InconsistentLinearSystemException ex) {
+            throw new InternalErrorException(ex.getMessage());
+        }
+        qnm.setNormalisingConstant(G);
+        resumable = true;
+    }
+
+    /**
+     * Runs the recursion on a class from population fromNr to toNr, with
+     * the matrices of that class. lastG must hold the normalising constants
+     * of population fromNr - 1; afterwards it holds those of toNr, and prevG
+     * those of toNr - 1.
+     *
+     * @param s The linear system solver, initialised with the matrices of the class
+     * @param r The class (starts from 1)
+     * @param fromNr The first population of class r to compute
+     * @param toNr The last population of class r to compute
+     */
+    private void solveClass(Solver s, int r, int fromNr, int toNr) throws InconsistentLinearSystemException, OperationNotSupportedException, InternalErrorException {
+        int previousJobs = 0;
+        for (int c = 0; c < r - 1; c++) {
+            previousJobs += qnm.N.get(c);
+        }
+        for (int Nr = fromNr; Nr <= toNr; Nr++) {
+            prevG = lastG;
+            mulTimer.start();
+            BigRational[] sysB = B.multiply(lastG);
+            mulTimer.pause();
+            s.goToULevel(Nr - 1);
+            lastG = solve(s, sysB);
+            System.out.println("Population " + Nr + " completed (total population " + (previousJobs + Nr) + " jobs)");
+        }
+    }
+
+    /**
+     * Initialises the solver with the current A. Only the SparseSolver can
+     * take A in compressed row form; the other solvers are given a dense copy.
+     */
+    private void initialiseSolver(Solver s) throws OperationNotSupportedException, InternalErrorException {
+        if (s instanceof SparseSolver) {
+            ((SparseSolver) s).initialise(A, UList, uncomputables);
+            return;
+        }
+        Integer maxA = getMaxAElement();
+        Integer val = matrixSize;
+        BigInteger maxB = qnm.getMaxG().multiply(new BigInteger(maxA.toString())).multiply(new BigInteger(val.toString()));
+        s.initialise(A.toArray(), UList, uncomputables, maxA, maxB, new BigRational(qnm.getMaxG()));
+    }
+
+    private Solver newSolver() {
+        if (solver != null) {
+            return solver;
+        } else if (nThreads == 1) {
+            return new FactorisedSolver();
+        } else {
+            return new ModularSolver(nThreads, moduliMode);
+        }
     }
 
     @Override
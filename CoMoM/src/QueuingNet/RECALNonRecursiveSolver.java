@@ -24,8 +24,12 @@ import DataStructures.QNModel;
 import Exceptions.InternalErrorException;
 import Utilities.CanonicalMultiplicitiesVectorCalculator;
 import Utilities.MiscFunctions;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * This class implements the RECALSolver object, which computes the normalising
@@ -38,6 +42,12 @@ public class RECALNonRecursiveSolver extends RecursiveSolver {
 
     private CanonicalMultiplicitiesVectorCalculator mvcalc = new CanonicalMultiplicitiesVectorCalculator(qnm);
     private boolean isGComputed = false;
+    /**
+     * The number of threads among which the MultiplicitiesVectors of each
+     * population are shared.
+     */
+    private int nThreads;
+    private ForkJoinPool pool;
 
     /**
      * Creates and initialises a RECALSolver object.
@@ -46,7 +56,20 @@ public class RECALNonRecursiveSolver extends RecursiveSolver {
      * @throws InternalErrorException Thrown when the solver cannot be initialised
      */
     public RECALNonRecursiveSolver(QNModel qnm) throws InternalErrorException {
+        this(qnm, 1);
+    }
+
+    /**
+     * Creates and initialises a RECALSolver object which computes the
+     * normalising constants of each population in parallel.
+     *
+     * @param qnm The QNModel object that we are working on
+     * @param nThreads The number of threads to use
+     * @throws InternalErrorException Thrown when the solver cannot be initialised
+     */
+    public RECALNonRecursiveSolver(QNModel qnm, int nThreads) throws InternalErrorException {
         super(qnm);
+        this.nThreads = (nThreads <= 1) ? 1 : nThreads;
     }
 
     /**
@@ -61,71 +84,157 @@ public class RECALNonRecursiveSolver extends RecursiveSolver {
     @Override
     protected BigRational compute(MultiplicitiesVector finalm, PopulationVector finalp) throws InternalErrorException {
         boolean firstVisit = true, secondVisit = false;
-        BigRational curG;
         PopulationVector p = new PopulationVector(0, qnm.R);
         MultiplicitiesVector mBase = finalm.copy();
         int Ntot = finalp.sum();
-        for (int r = 0; r < qnm.R; r++) {
-            for (int nr = (r == 0) ? 0 : 1; nr <= finalp.get(r); nr++) {
-                //System.out.println("r = "+r+" nr = "+nr+" #mvs = "+mvcalc.findMulVectorsSummingUpTo(Ntot).size());
-                Map<PopulationVector, Map<MultiplicitiesVector, BigRational>> curMap = new HashMap<PopulationVector, Map<MultiplicitiesVector, BigRational>>();
-                p.set(r, nr);
-                boolean isPZeroVector = p.isZeroVector(), pContainsMinusOne = p.containsMinusOne();
-                for (MultiplicitiesVector mDelta : mvcalc.findMulVectorsSummingUpTo(Ntot)) {
-                    MultiplicitiesVector m = mBase.addVec(mDelta);
-                    //curG = recallG(m, p);
-                    //if (curG == null) {
-                    if (!isPZeroVector) {
-                        curG = BigRational.ZERO;
-                        if (pContainsMinusOne) {
-                            //curG = BigRational.ZERO;
-                            continue;
-                        } else if (m.isZeroVector()) {
-                            //curG = initialConditionFor(p);
-                            continue;
-                        } else {
-                            p.minusOne(r + 1);
-                            BigRational delay = qnm.getDelayAsBigRational(r);
-                            if (!delay.isZero()) {
-                                curG = curG.add(recallG(m, p)).multiply(delay);
-                            }
-
-                            for (int k = 0; k < qnm.M; k++) {
-                                m.plusOne(k + 1);
-                                //BigRational toAdd = qnm.getDemandAsBigRational(k, r).multiply(new BigRational(1+mDelta.get(k)));
-                                BigRational toAdd = qnm.getDemandAsBigRational(k, r).multiply(new BigRational(m.get(k) - 1));
-                                toAdd = toAdd.multiply(recallG(m, p));
-                                curG = curG.add(toAdd);
-                                m.restore();
+        if (nThreads > 1) {
+            pool = new ForkJoinPool(nThreads);
+        }
+        try {
+            for (int r = 0; r < qnm.R; r++) {
+                for (int nr = (r == 0) ? 0 : 1; nr <= finalp.get(r); nr++) {
+                    //System.out.println("r = "+r+" nr = "+nr+" #mvs = "+mvcalc.findMulVectorsSummingUpTo(Ntot).size());
+                    p.set(r, nr);
+                    boolean isPZeroVector = p.isZeroVector(), pContainsMinusOne = p.containsMinusOne();
+                    if (!isPZeroVector && !pContainsMinusOne) {
+                        // The normalising constants of p only depend on those of p - 1r
+                        List<MultiplicitiesVector> mDeltas = mvcalc.findMulVectorsSummingUpTo(Ntot);
+                        MultiplicitiesVector[] ms = new MultiplicitiesVector[mDeltas.size()];
+                        for (int i = 0; i < ms.length; i++) {
+                            ms[i] = mBase.addVec(mDeltas.get(i));
+                        }
+                        BigRational[] Gs = new BigRational[ms.length];
+                        p.minusOne(r + 1);
+                        p.hashCode(); // Caches the hash code, so that the threads only read p
+                        computeLevel(ms, Gs, p, r, nr);
+                        p.restore();
+                        for (int i = 0; i < ms.length; i++) {
+                            if (Gs[i] != null) {
+                                storeG(ms[i], p, Gs[i]);
                             }
-                            curG = curG.divide(new BigRational(nr));
-                            p.restore();
                         }
+                    }
+                    Ntot--;
+                    // Only the level just computed is needed by the next one
+                    Gmap.evictPopulationsBelow(p.sum());
+                    if (firstVisit) {
+                        secondVisit = true;
+                        firstVisit = false;
                     } else {
-                        continue;
-                        //curG = BigRational.ONE;
+                        if (secondVisit) {
+                            secondVisit = false;
+                            totalTimer.pause();
+                            memUsage = MiscFunctions.memoryUsage();
+                            totalTimer.start();
+                        }
                     }
-                    storeG(m, p, curG, curMap);
-                    //}
                 }
-                Ntot--;
-                Gmap.clear();
-                Gmap = curMap;
-                //Gmap.putAll(curMap);
-                if (firstVisit) {
-                    secondVisit = true;
-                    firstVisit = false;
-                } else {
-                    if (secondVisit) {
-                        secondVisit = false;
-                        totalTimer.pause();
-                        memUsage = MiscFunctions.memoryUsage();
-                        totalTimer.start();
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+        return recallG(finalm, finalp);
+    }
+
+    /**
+     * Computes the normalising constants G(m, p) of one population p for a
+     * list of MultiplicitiesVectors, sharing the list among the threads.
+     *
+     * @param ms The MultiplicitiesVectors
+     * @param Gs The array where G(ms[i], p) is written, or null if it must not be stored
+     * @param pMinusOne The population p - 1r, which is only read
+     * @param r The index of the class whose population was last increased (starts from 0)
+     * @param nr The population of class r in p
+     * @throws InternalErrorException Thrown when a thread fails
+     */
+    private void computeLevel(final MultiplicitiesVector[] ms, final BigRational[] Gs, final PopulationVector pMinusOne, final int r, final int nr) throws InternalErrorException {
+        if (pool == null || ms.length < 2 * nThreads) {
+            for (int i = 0; i < ms.length; i++) {
+                Gs[i] = computeEntry(ms[i], pMinusOne, r, nr);
+            }
+            return;
+        }
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        int nTasks = 4 * nThreads;
+        for (int t = 0; t < nTasks; t++) {
+            final int from = (int) ((long) ms.length * t / nTasks);
+            final int to = (int) ((long) ms.length * (t + 1) / nTasks);
+            tasks.add(new Callable<Object>() {
+
+                @Override
+                public Object call() throws Exception {
+                    for (int i = from; i < to; i++) {
+                        Gs[i] = computeEntry(ms[i], pMinusOne, r, nr);
                     }
+                    return null;
                 }
+            });
+        }
+        try {
+            for (Future<Object> f : pool.invokeAll(tasks)) {
+                f.get();
             }
+        } catch (InterruptedException ex) {
+            throw new InternalErrorException("RECAL computation interrupted.");
+        } catch (ExecutionException ex) {
+            throw new InternalErrorException("RECAL computation failed: " + ex.getCause());
         }
-        return recallG(finalm, finalp);
+    }
+
+    /**
+     * Computes a normalising constant G(m, p) from the stored constants of
+     * the population p - 1r.
+     *
+     * @param m The MultiplicitiesVector, which is altered and restored
+     * @param pMinusOne The population p - 1r
+     * @param r The index of the class whose population was last increased (starts from 0)
+     * @param nr The population of class r in p
+     * @return The normalising constant, or null if it must not be stored
+     */
+    private BigRational computeEntry(MultiplicitiesVector m, PopulationVector pMinusOne, int r, int nr) {
+        if (m.isZeroVector()) {
+            //curG = initialConditionFor(p);
+            return null;
+        }
+        BigRational curG = BigRational.ZERO;
+        BigRational delay = qnm.getDelayAsBigRational(r);
+        if (!delay.isZero()) {
+            curG = curG.add(recallG(m, pMinusOne)).multiply(delay);
+        }
+
+        for (int k = 0; k < qnm.M; k++) {
+            m.plusOne(k + 1);
+            //BigRational toAdd = qnm.getDemandAsBigRational(k, r).multiply(new BigRational(1+mDelta.get(k)));
+            BigRational toAdd = qnm.getDemandAsBigRational(k, r).multiply(BigRational.valueOf(m.get(k) - 1));
+            toAdd = toAdd.multiply(recallG(m, pMinusOne));
+            curG = curG.add(toAdd);
+            m.restore();
+        }
+        return curG.divide(BigRational.valueOf(nr));
+    }
+
+    /**
+     * Creates an empty GTable covering the normalising constants visited by
+     * RECAL.
+     *
+     * @return The GTable
+     */
+    @Override
+    protected GTable createGTable() {
+        return GTable.forRECAL(qnm, true);
+    }
+
+    /**
+     * Does nothing: only two levels are ever kept in memory, and a constant
+     * evicted from the previous level could not be recomputed.
+     *
+     * @param capacity Ignored
+     */
+    @Override
+    public void setGmapCapacity(int capacity) {
     }
 
     /**
@@ -133,7 +242,11 @@ public class RECALNonRecursiveSolver extends RecursiveSolver {
      */
     @Override
     public void printWelcome() {
-        System.out.println("Using RECAL (non-recursive)");
+        if (nThreads > 1) {
+            System.out.println("Using RECAL (non-recursive, " + nThreads + " threads)");
+        } else {
+            System.out.println("Using RECAL (non-recursive)");
+        }
     }
 
     /**
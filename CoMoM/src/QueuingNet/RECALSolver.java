@@ -23,6 +23,13 @@ import DataStructures.PopulationVector;
 import DataStructures.QNModel;
 import Exceptions.InternalErrorException;
 import Utilities.MiscFunctions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class implements the RECALSolver object, which computes the normalising
@@ -33,6 +40,28 @@ import Utilities.MiscFunctions;
  */
 public class RECALSolver extends RecursiveSolver {
 
+    /**
+     * The number of threads among which the recursion tree is shared.
+     */
+    private int nThreads;
+    private ForkJoinPool pool;
+    /**
+     * In parallel mode, the Node of each normalising constant that has been
+     * reached by the current computation, indexed by its (m, p) pair.
+     * Whichever thread first puts a Node here expands it, and all others wait
+     * for its value. The memo is emptied into Gmap once the computation
+     * finishes, where later computations find the constants without
+     * expanding them again. Between computations the constants are bounded
+     * by the Gmap capacity like those of the serial recursion; during one,
+     * every constant reached is kept.
+     */
+    private ConcurrentHashMap<Key, Node> memo;
+    /**
+     * The Node whose value the solver thread is waiting for.
+     */
+    private volatile Node root;
+    private volatile RuntimeException failure;
+
     /**
      * Creates and initialises a RECALSolver object.
      *
@@ -40,7 +69,24 @@ public class RECALSolver extends RecursiveSolver {
      * @throws InternalErrorException Thrown when the solver cannot be initialised
      */
     public RECALSolver(QNModel qnm) throws InternalErrorException {
+        this(qnm, 1);
+    }
+
+    /**
+     * Creates and initialises a RECALSolver object which explores the
+     * recursion tree in parallel.
+     *
+     * @param qnm The QNModel object that we are working on
+     * @param nThreads The number of threads to use
+     * @throws InternalErrorException Thrown when the solver cannot be initialised
+     */
+    public RECALSolver(QNModel qnm, int nThreads) throws InternalErrorException {
         super(qnm);
+        this.nThreads = (nThreads <= 1) ? 1 : nThreads;
+        if (this.nThreads > 1) {
+            pool = new ForkJoinPool(this.nThreads);
+            memo = new ConcurrentHashMap<Key, Node>();
+        }
     }
 
     /**
@@ -54,6 +100,9 @@ public class RECALSolver extends RecursiveSolver {
      */
     @Override
     protected BigRational compute(MultiplicitiesVector m, PopulationVector p) throws InternalErrorException {
+        if (pool != null) {
+            return computeInParallel(m, p);
+        }
         // First we try to find if this value of G has been already computed and stored previously
         BigRational toRet = recallG(m, p);
         if (toRet == null) {
@@ -81,7 +130,7 @@ public class RECALSolver extends RecursiveSolver {
                         // restore Δm
                         m.restore();
                         BigRational mulFactor = qnm.getDemandAsBigRational(k, r);
-                        mulFactor = mulFactor.multiply(new BigRational(m.get(k) /*+ qnm.multiplicities.get(k)-1*/));
+                        mulFactor = mulFactor.multiply(BigRational.valueOf(m.get(k) /*+ qnm.multiplicities.get(k)-1*/));
                         toAdd = toAdd.multiply(mulFactor);
                         toRet = toRet.add(toAdd);
                     }
@@ -89,7 +138,7 @@ public class RECALSolver extends RecursiveSolver {
                 // restore N
                 p.restore();
                 // divide by Nr
-                toRet = toRet.divide(new BigRational(p.get(r)));
+                toRet = toRet.divide(BigRational.valueOf(p.get(r)));
             }
             // Store for future use (add to Gmap)
             storeG(m, p, toRet);
@@ -97,12 +146,306 @@ public class RECALSolver extends RecursiveSolver {
         return toRet;
     }
 
+    /**
+     * Computes any normalising constant by exploring the recursion tree in
+     * parallel, computing each normalising constant only once.
+     *
+     * @param m The MultiplicitiesVector
+     * @param p The PopulationVector
+     * @return The normalising constant as a BigRational object
+     * @throws InternalErrorException An exception is thrown if any internal error is encountered during computations.
+     */
+    private BigRational computeInParallel(MultiplicitiesVector m, PopulationVector p) throws InternalErrorException {
+        BigRational toRet = initialValue(m, p);
+        if (toRet != null) {
+            return toRet;
+        }
+        failure = null;
+        root = new Node(m.copy(), p.copy());
+        memo.put(new Key(m, p), root);
+        try {
+            pool.execute(new Expansion(root));
+            synchronized (root) {
+                while (root.value == null && failure == null) {
+                    root.wait();
+                }
+            }
+            if (failure != null) {
+                throw new InternalErrorException("RECAL computation failed: " + failure);
+            }
+            // Every Node reached is a descendant of the root, so all have their value
+            for (Node node : memo.values()) {
+                storeG(node.m, node.p, node.value);
+            }
+            return root.value;
+        } catch (InterruptedException ex) {
+            throw new InternalErrorException("RECAL computation interrupted.");
+        } finally {
+            memo.clear();
+        }
+    }
+
+    /**
+     * Records the failure of a pool task and wakes up the solver thread.
+     */
+    private void fail(RuntimeException ex) {
+        failure = ex;
+        Node waiting = root;
+        synchronized (waiting) {
+            waiting.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the normalising constants that need no recursion, as
+     * recallG() does, or null for any other.
+     */
+    private BigRational initialValue(MultiplicitiesVector m, PopulationVector p) {
+        if (p.isZeroVector()) {
+            return BigRational.ONE;
+        } else if (p.containsMinusOne()) {
+            return BigRational.ZERO;
+        } else if (m.isZeroVector()) {
+            return initialConditionFor(p);
+        }
+        return null;
+    }
+
+    /**
+     * A normalising constant G(m, p) of the parallel recursion.
+     *
+     * Nodes are shared between parents through the memo, so a thread never
+     * blocks waiting for a child: blocking joins on shared tasks deadlock
+     * once a work-stealing thread runs an unrelated task on top of a waiting
+     * one. Instead, an expanded Node registers with each unfinished child
+     * and counts them in pending; the child that brings pending to zero
+     * forks the Combination, which computes the value and passes it on to
+     * the Node's own dependents.
+     */
+    private final class Node {
+
+        private final MultiplicitiesVector m;
+        private final PopulationVector p;
+        private int r;
+        /**
+         * Child 0 is G(m, N-Ir) and child k+1 is G(m+1k, N-Ir), each either
+         * a BigRational or a Node. Null if the term is not needed.
+         */
+        private Object[] children;
+        /**
+         * One for each unfinished child, plus one held during expansion.
+         */
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private List<Node> dependents = new ArrayList<Node>(2);
+        private volatile BigRational value;
+
+        Node(MultiplicitiesVector m, PopulationVector p) {
+            this.m = m;
+            this.p = p;
+        }
+
+        /**
+         * Creates the children, taking the ones already in Gmap, and claiming
+         * and expanding the ones that no other Node has reached yet.
+         */
+        void expand() throws InternalErrorException {
+            r = p.findFirstNonZeroElement();
+            PopulationVector pMinusOne = p.copy();
+            pMinusOne.minusOne(r + 1);
+
+            children = new Object[qnm.M + 1];
+            if (qnm.getDelay(r) != 0) {
+                children[0] = child(m.copy(), pMinusOne);
+            }
+            for (int k = 0; k < qnm.M; k++) {
+                if (m.get(k) > 0) {
+                    MultiplicitiesVector mPlusOne = m.copy();
+                    mPlusOne.plusOne(k + 1);
+                    children[k + 1] = child(mPlusOne, pMinusOne);
+                }
+            }
+            for (Object c : children) {
+                if (c instanceof Node) {
+                    pending.incrementAndGet();
+                    if (!((Node) c).addDependent(this)) {
+                        pending.decrementAndGet();
+                    }
+                }
+            }
+            if (pending.decrementAndGet() == 0) {
+                combine();
+            }
+        }
+
+        private Object child(MultiplicitiesVector mChild, PopulationVector pChild) {
+            BigRational initial = initialValue(mChild, pChild);
+            if (initial == null) {
+                // Stored by an earlier computation; nothing is put into Gmap during this one
+                initial = Gmap.get(mChild, pChild);
+            }
+            if (initial != null) {
+                return initial;
+            }
+            Node node = new Node(mChild, pChild);
+            Node existing = memo.putIfAbsent(new Key(mChild, pChild), node);
+            if (existing != null) {
+                return existing;
+            }
+            new Expansion(node).fork();
+            return node;
+        }
+
+        /**
+         * Registers a Node to be notified when the value is known.
+         * @return False if the value is already known
+         */
+        synchronized boolean addDependent(Node dependent) {
+            if (value != null) {
+                return false;
+            }
+            dependents.add(dependent);
+            return true;
+        }
+
+        /**
+         * Computes the value from the children, summing the terms in the same
+         * order as the serial compute() so that the result is identical, and
+         * forks the Combination of every dependent that was waiting only for
+         * this value.
+         */
+        void combine() {
+            BigRational toRet;
+            if (children[0] != null) {
+                toRet = valueOf(children[0]).multiply(qnm.getDelayAsBigRational(r));
+            } else {
+                toRet = BigRational.ZERO;
+            }
+            for (int k = 0; k < qnm.M; k++) {
+                if (children[k + 1] != null) {
+                    BigRational mulFactor = qnm.getDemandAsBigRational(k, r);
+                    mulFactor = mulFactor.multiply(BigRational.valueOf(m.get(k)));
+                    toRet = toRet.add(valueOf(children[k + 1]).multiply(mulFactor));
+                }
+            }
+            toRet = toRet.divide(BigRational.valueOf(p.get(r)));
+            children = null;
+
+            List<Node> waiting;
+            synchronized (this) {
+                value = toRet;
+                waiting = dependents;
+                dependents = null;
+                notifyAll();
+            }
+            for (Node d : waiting) {
+                if (d.pending.decrementAndGet() == 0) {
+                    new Combination(d).fork();
+                }
+            }
+        }
+
+        private BigRational valueOf(Object child) {
+            return (child instanceof BigRational) ? (BigRational) child : ((Node) child).value;
+        }
+    }
+
+    /**
+     * Expands a Node in the pool.
+     */
+    @SuppressWarnings("serial")
+    private final class Expansion extends RecursiveAction {
+
+        private final Node node;
+
+        Expansion(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                node.expand();
+            } catch (InternalErrorException ex) {
+                fail(new IllegalStateException(ex.getMessage()));
+            } catch (RuntimeException ex) {
+                fail(ex);
+            }
+        }
+    }
+
+    /**
+     * Combines the children of a Node in the pool.
+     */
+    @SuppressWarnings("serial")
+    private final class Combination extends RecursiveAction {
+
+        private final Node node;
+
+        Combination(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                node.combine();
+            } catch (RuntimeException ex) {
+                fail(ex);
+            }
+        }
+    }
+
+    /**
+     * An immutable copy of an (m, p) pair, used as a key of the memo.
+     */
+    private static final class Key {
+
+        private final int[] values;
+        private final int hash;
+
+        Key(MultiplicitiesVector m, PopulationVector p) {
+            values = new int[m.size() + p.size()];
+            for (int k = 0; k < m.size(); k++) {
+                values[k] = m.get(k);
+            }
+            for (int r = 0; r < p.size(); r++) {
+                values[m.size() + r] = p.get(r);
+            }
+            hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof Key) && Arrays.equals(values, ((Key) o).values);
+        }
+    }
+
+    /**
+     * Creates an empty GTable covering the normalising constants visited by
+     * RECAL.
+     *
+     * @return The GTable
+     */
+    @Override
+    protected GTable createGTable() {
+        return GTable.forRECAL(qnm, false);
+    }
+
     /**
      * Prints a short welcome message that says which solver is used.
      */
     @Override
     public void printWelcome() {
-        System.out.println("Using RECAL (recursive)");
+        if (nThreads > 1) {
+            System.out.println("Using RECAL (recursive, " + nThreads + " threads)");
+        } else {
+            System.out.println("Using RECAL (recursive)");
+        }
     }
 
     /**
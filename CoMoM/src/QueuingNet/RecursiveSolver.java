@@ -24,7 +24,6 @@ import DataStructures.QNModel;
 import Exceptions.InternalErrorException;
 import Utilities.MiscFunctions;
 import Utilities.Timer;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -44,7 +43,12 @@ public class RecursiveSolver extends QNSolver {
      * Here is stored every normalising constant computed. This speeds up the
      * computation.
      */
-    protected Map<PopulationVector, Map<MultiplicitiesVector, BigRational>> Gmap = new HashMap<PopulationVector, Map<MultiplicitiesVector, BigRational>>();
+    protected GTable Gmap;
+    /**
+     * The greatest number of normalising constants kept in Gmap, or 0 if
+     * unbounded.
+     */
+    private int GmapCapacity;
     /**
      * The factorials for some numbers are pre-computed for efficiency reasons.
      */
@@ -71,11 +75,46 @@ public class RecursiveSolver extends QNSolver {
      */
     private void initialise() throws OperationNotSupportedException {
         totalTimer = new Timer();
-        Gmap.clear();
+        Gmap = newGTable();
         // Necessary for faster computation of initial conditions
         factorial = MiscFunctions.computeFactorials(qnm.N.max());
     }
 
+    /**
+     * Caps the number of normalising constants kept in memory. When the cap
+     * is reached, those of the least recently used populations are evicted,
+     * and are recomputed if they are needed again. A cap well below the
+     * number of constants visited trades memory for a lot of recomputation.
+     *
+     * @param capacity The greatest number of stored constants, or 0 for no cap
+     */
+    public void setGmapCapacity(int capacity) {
+        GmapCapacity = capacity;
+        Gmap.setCapacity(capacity);
+    }
+
+    /**
+     * Creates an empty GTable with the current capacity.
+     *
+     * @return The GTable
+     */
+    protected GTable newGTable() {
+        GTable table = createGTable();
+        table.setCapacity(GmapCapacity);
+        return table;
+    }
+
+    /**
+     * Creates an empty GTable covering the normalising constants visited by
+     * the recursion, which are those of the Convolution algorithm unless
+     * overridden.
+     *
+     * @return The GTable
+     */
+    protected GTable createGTable() {
+        return GTable.forConvolution(qnm);
+    }
+
     /**
      * Returns the initial condition corresponding to a particular
      * PopulationVector object.
@@ -115,28 +154,16 @@ public class RecursiveSolver extends QNSolver {
     }
 
     /**
-     * Stores at a particular Map<PopulationVector, Map<MultiplicitiesVector, BigRational>>
-     * datastructure a computed normalising constant value for future re-use.
+     * Stores at a particular GTable a computed normalising constant value for
+     * future re-use.
      *
      * @param m The MultiplicitiesVector
      * @param p The PopulationVector
      * @param Gval The corresponding normalising constant that has been computed
      * @param map The datastructure at which the constant will be stored
      */
-    protected void storeG(MultiplicitiesVector m, PopulationVector p, BigRational Gval, Map<PopulationVector, Map<MultiplicitiesVector, BigRational>> map) {
-        Map<MultiplicitiesVector, BigRational> step1 = map.get(p);
-        if (step1 == null) {
-            Map<MultiplicitiesVector, BigRational> step2 = new HashMap<MultiplicitiesVector, BigRational>();
-            step2.put(m.copy(), Gval);
-            map.put(p.copy(), step2);
-        } else {
-            //TODO: Remove this when adequately tested
-            /*if (step1.containsKey(m)){
-                throw new InternalErrorException("Attempt to re-enter data into Gmap");
-            }*/
-            // step2 must be null, or else we would have found the value of G.
-            step1.put(m.copy(), Gval);
-        }
+    protected void storeG(MultiplicitiesVector m, PopulationVector p, BigRational Gval, GTable map) {
+        map.put(m, p, Gval);
     }
 
     /**
@@ -156,13 +183,7 @@ public class RecursiveSolver extends QNSolver {
         if (m.isZeroVector()) {
             return initialConditionFor(p);
         } else {
-            Map<MultiplicitiesVector, BigRational> step1 = Gmap.get(p);
-            if (step1 != null) {
-                BigRational toReturn = step1.get(m); // We do not care if a null is returned
-                return toReturn;
-            } else {
-                return null;
-            }
+            return Gmap.get(m, p); // We do not care if a null is returned
         }
     }
 
@@ -195,6 +216,16 @@ public class RecursiveSolver extends QNSolver {
         throw new InternalErrorException("Operation not supported.");
     }
 
+    /**
+     * Prints the time needed for the solver object to evaluate the network,
+     * and how the stored normalising constants were used.
+     */
+    @Override
+    public void printTimeStatistics() {
+        super.printTimeStatistics();
+        System.out.println("Gmap lookups: " + Gmap.getHits() + " hits, " + Gmap.getMisses() + " misses, " + Gmap.getEvictions() + " evictions");
+    }
+
     @Override
     public void computePerformanceMeasures() throws InternalErrorException {
         totalTimer.start();
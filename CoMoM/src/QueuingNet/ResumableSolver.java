@@ -0,0 +1,27 @@
+package QueuingNet;
+
+import javax.naming.OperationNotSupportedException;
+
+import Exceptions.BTFMatrixErrorException;
+import Exceptions.InconsistentLinearSystemException;
+import Exceptions.InternalErrorException;
+
+/**
+ * A solver whose recursion increases the population of the last class last, and which
+ * keeps its state at the end of computeNormalisingConstant(), so that it can continue
+ * from there when jobs are added to the last class instead of starting from population zero.
+ *
+ * To ask what happens when another class grows, move it last with
+ * QNModel.moveClassLast() before the solver is created.
+ */
+public interface ResumableSolver extends QNSolverInterface {
+
+	/**
+	 * Adds jobs to the last class of the model and computes the normalising constant of
+	 * the new population, in one step of the recursion per job added.
+	 * computePerformanceMeasures() then gives the results of the new population.
+	 * @param jobs The number of jobs to add
+	 * @throws InternalErrorException Thrown when the normalising constant has not been computed yet
+	 */
+	public void resume(int jobs) throws InternalErrorException, OperationNotSupportedException, InconsistentLinearSystemException, BTFMatrixErrorException;
+}
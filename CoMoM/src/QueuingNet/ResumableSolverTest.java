@@ -0,0 +1,115 @@
+package QueuingNet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import DataStructures.QNModel;
+import LinearSystemSolver.SparseSolver;
+
+public class ResumableSolverTest {
+
+    private static final Integer[][] D = {{1, 2}, {4, 5}, {7, 8}};
+
+    /**
+     * MoM is singular on the three queue network and in the performance
+     * measures of this one, so only its G is compared.
+     */
+    private static final Integer[][] MOM_D = {{1, 1}, {2, 3}};
+
+    private static QNModel model(Integer[][] D, int N1, int N2) throws Exception {
+        Integer[] multiplicities = new Integer[D.length];
+        for (int k = 0; k < D.length; k++) {
+            multiplicities[k] = 1;
+        }
+        return new QNModel(2, D.length, new Integer[]{N1, N2}, new Integer[]{3, 3}, multiplicities, D);
+    }
+
+    private interface Factory {
+        ResumableSolver create(QNModel qnm) throws Exception;
+    }
+
+    private static void assertSameResults(QNModel expected, QNModel actual, boolean performanceMeasures) {
+        assertEquals(expected.N, actual.N);
+        assertEquals(expected.getNormalisingConstant(), actual.getNormalisingConstant());
+        if (!performanceMeasures) {
+            return;
+        }
+        assertArrayEquals(expected.getMeanThroughputs(), actual.getMeanThroughputs());
+        for (int k = 0; k < expected.M; k++) {
+            assertArrayEquals(expected.getMeanQueueLengths()[k], actual.getMeanQueueLengths()[k]);
+        }
+    }
+
+    private static void solve(ResumableSolver solver, boolean performanceMeasures) throws Exception {
+        solver.computeNormalisingConstant();
+        if (performanceMeasures) {
+            solver.computePerformanceMeasures();
+        }
+    }
+
+    /**
+     * Resuming from (4,4) to (4,5) and then to (4,8) must give the results of
+     * solving those populations from scratch. The fresh solves run in between,
+     * so the resumed solver must not share any state with them.
+     */
+    private static void testResume(Factory factory, Integer[][] D, boolean performanceMeasures) throws Exception {
+        QNModel resumed = model(D, 4, 4);
+        ResumableSolver solver = factory.create(resumed);
+        solve(solver, performanceMeasures);
+        QNModel fresh = model(D, 4, 4);
+        solve(factory.create(fresh), performanceMeasures);
+        assertSameResults(fresh, resumed, performanceMeasures);
+
+        int[] added = {1, 3};
+        int[] N2 = {5, 8};
+        for (int i = 0; i < added.length; i++) {
+            solver.resume(added[i]);
+            if (performanceMeasures) {
+                solver.computePerformanceMeasures();
+            }
+            fresh = model(D, 4, N2[i]);
+            solve(factory.create(fresh), performanceMeasures);
+            assertSameResults(fresh, resumed, performanceMeasures);
+        }
+    }
+
+    @Test
+    public void testCoMoM() throws Exception {
+        testResume(new Factory() {
+            @Override
+            public ResumableSolver create(QNModel qnm) throws Exception {
+                return new CoMoMSimpleSolver(qnm, 1);
+            }
+        }, D, true);
+    }
+
+    @Test
+    public void testMoM() throws Exception {
+        testResume(new Factory() {
+            @Override
+            public ResumableSolver create(QNModel qnm) throws Exception {
+                return new MoMSolver(qnm, 1);
+            }
+        }, MOM_D, false);
+    }
+
+    /**
+     * The solver given to MoM is kept across resume(), so it must accept the
+     * matrices of the last class again.
+     */
+    @Test
+    public void testMoMSparse() throws Exception {
+        testResume(new Factory() {
+            @Override
+            public ResumableSolver create(QNModel qnm) throws Exception {
+                return new MoMSolver(qnm, new SparseSolver());
+            }
+        }, MOM_D, false);
+    }
+
+    @Test(expected = Exceptions.InternalErrorException.class)
+    public void testResumeBeforeCompute() throws Exception {
+        new MoMSolver(model(MOM_D, 4, 4), 1).resume(1);
+    }
+}
@@ -0,0 +1,24 @@
+package QueuingNet;
+
+import DataStructures.BigRational;
+import DataStructures.PopulationVector;
+import Exceptions.InternalErrorException;
+
+/**
+ * Receives the results of every population that CoMoMSolver.sweep() passes through
+ * on its way to the target population.
+ */
+public interface SweepListener {
+
+	/**
+	 * Called once the basis of a population has been computed. The populations arrive in the
+	 * order of the recursion, which increases the population of class 1 up to its target,
+	 * then that of class 2, and so on.
+	 * @param N A copy of the population, which the listener may keep
+	 * @param G The normalising constant of N
+	 * @param X The Mean Throughput of each class
+	 * @param Q The Mean Queue Length of each class at each queue
+	 * @throws InternalErrorException To abort the sweep
+	 */
+	public void populationSolved(PopulationVector N, BigRational G, BigRational[] X, BigRational[][] Q) throws InternalErrorException;
+}
@@ -17,6 +17,7 @@
 package Utilities;
 
 import DataStructures.BigRational;
+import DataStructures.BigRationalAccumulator;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -61,7 +62,7 @@ public class MiscFunctions {
         BigRational val = BigRational.ONE;
         for (Integer i = 0; i <= n; i++) {
             toReturn.put(i, val);
-            val = val.multiply(new BigRational(i + 1));
+            val = val.multiply(BigRational.valueOf(i + 1));
         }
         return toReturn;
     }
@@ -199,12 +200,13 @@ public class MiscFunctions {
 
         if (columnsA == rowsV) {
             BigRational[] c = new BigRational[rowsA];
+            BigRationalAccumulator sum = new BigRationalAccumulator();
             for (int i = 0; i < rowsA; i++) {
-                c[i] = BigRational.ZERO;
+                sum.reset();
                 for (int j = 0; j < columnsA; j++) {
                     if (!A[i][j].isZero()) {
                         if (v[j].isPositive()) {
-                            c[i] = c[i].add(A[i][j].multiply(v[j]));
+                            sum.addProduct(A[i][j], v[j]);
                         } else if (v[j].isUndefined()) {
                             c[i] = new BigRational(-1);
                             c[i].makeUndefined();
@@ -212,6 +214,9 @@ public class MiscFunctions {
                         }
                     }
                 }
+                if (c[i] == null) {
+                    c[i] = sum.toBigRational();
+                }
             }
             return c;
         } else {
@@ -227,12 +232,13 @@ public class MiscFunctions {
 
         if (columnsA == rowsV) {
             BigRational[] c = new BigRational[rowsA];
+            BigRationalAccumulator sum = new BigRationalAccumulator();
             for (int i = 0; i < rowsA; i++) {
-                c[i] = BigRational.ZERO;
+                sum.reset();
                 for (int j = 0; j < columnsA; j++) {
                     if (!A[i][j].isZero()) {
                         if (!v[j].isZero()) {
-                            c[i] = c[i].add(A[i][j].multiply(v[j]));
+                            sum.addProduct(A[i][j], v[j]);
                         } else if (v[j].isUndefined()) {
                             c[i] = new BigRational(-1);
                             c[i].makeUndefined();
@@ -240,6 +246,9 @@ public class MiscFunctions {
                         }
                     }
                 }
+                if (c[i] == null) {
+                    c[i] = sum.toBigRational();
+                }
             }
             return c;
         } else {